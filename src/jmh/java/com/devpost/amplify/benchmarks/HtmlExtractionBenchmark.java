@@ -0,0 +1,62 @@
+package com.devpost.amplify.benchmarks;
+
+import com.devpost.amplify.model.HtmlAnalysisResult;
+import com.devpost.amplify.service.fetch.HtmlExtractor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Extracting the analysis fields from a page, as done for every scraped page and every page
+ * read back from the disk cache. Fixtures live in {@code src/jmh/resources/fixtures}; other
+ * saved pages can be added there and selected with {@code -p fixture=<file>}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HtmlExtractionBenchmark {
+
+	@Param({"article.html", "listing.html"})
+	public String fixture;
+
+	@Param({"8000"})
+	public int maxTextChars;
+
+	private byte[] page;
+
+	@Setup
+	public void setUp() throws IOException {
+		try (InputStream in = HtmlExtractionBenchmark.class.getResourceAsStream("/fixtures/" + fixture)) {
+			if (in == null) {
+				throw new IllegalArgumentException("No fixture " + fixture);
+			}
+			page = in.readAllBytes();
+		}
+	}
+
+	@Benchmark
+	public HtmlAnalysisResult extract() {
+		try {
+			return HtmlExtractor.extract(new ByteArrayInputStream(page), "UTF-8", "https://example.com/" + fixture, maxTextChars);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
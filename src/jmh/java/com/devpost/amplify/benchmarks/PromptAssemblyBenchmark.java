@@ -0,0 +1,92 @@
+package com.devpost.amplify.benchmarks;
+
+import com.devpost.amplify.model.HtmlAnalysisResult;
+import com.devpost.amplify.service.ContextPacker;
+import com.devpost.amplify.service.PromptTemplates;
+import com.devpost.amplify.service.fetch.QueryFetchResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the summarization prompt: packing the scraped pages into the context budget and
+ * formatting the prompt around the packed text.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PromptAssemblyBenchmark {
+
+	private static final String[] WORDS = ("fabric cotton linen organic recycled supply chain brand consumer carbon "
+			+ "footprint garment water energy label certification resale rental repair durable season trend "
+			+ "retailer market price quality worker wage factory transparency circular design material waste").split(" ");
+
+	/** Body text per page, the amplify.scrape.max-text-chars cap or more */
+	@Param({"8000", "32000"})
+	public int pageChars;
+
+	@Param({"5"})
+	public int pages;
+
+	private final ContextPacker packer = new ContextPacker(6000, 160, 0.8);
+	private List<QueryFetchResult> results;
+	private List<String> queries;
+	private String packed;
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(42);
+		results = new ArrayList<>(pages);
+		queries = new ArrayList<>(pages);
+		for (int i = 0; i < pages; i++) {
+			String query = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " guide";
+			queries.add(query);
+			results.add(QueryFetchResult.success(query, new HtmlAnalysisResult(
+					"Page " + i + " about " + query, "Everything about " + query, query, text(random, pageChars))));
+		}
+		packed = packer.pack(results);
+	}
+
+	@Benchmark
+	public String pack() {
+		return packer.pack(results);
+	}
+
+	@Benchmark
+	public String format() {
+		return PromptTemplates.analysisPrompt(queries, packed);
+	}
+
+	@Benchmark
+	public String packAndFormat() {
+		return PromptTemplates.analysisPrompt(queries, packer.pack(results));
+	}
+
+	private static String text(Random random, int chars) {
+		StringBuilder text = new StringBuilder(chars + 64);
+		while (text.length() < chars) {
+			int words = 8 + random.nextInt(16);
+			for (int w = 0; w < words; w++) {
+				text.append(w == 0 ? "" : " ").append(WORDS[random.nextInt(WORDS.length)]);
+			}
+			text.append(". ");
+		}
+		return text.toString();
+	}
+}
@@ -0,0 +1,79 @@
+package com.devpost.amplify.benchmarks;
+
+import com.devpost.amplify.service.pipeline.QueryOutputParser;
+import com.devpost.amplify.service.pipeline.QueryStreamParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing the query agent's output into the list returned by /query. Compare
+ * {@code gc.alloc.rate.norm} of {@code legacy} and {@code outputParser} for the allocation saved
+ * by scanning the text once instead of splitting it and running regexes per line.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryParsingBenchmark {
+
+	private static final Map<String, String> OUTPUTS = Map.of(
+			"csv", "paneer butter masala recipe, how to make paneer at home, best paneer tikka marinade, "
+					+ "paneer nutrition facts, types of paneer dishes",
+			"numbered", "1. paneer butter masala recipe\n2. how to make paneer at home\n3. best paneer tikka marinade\n"
+					+ "4. paneer nutrition facts\n5. types of paneer dishes\n",
+			// What the controller actually sees: the agent's stored list, rendered with toString()
+			"stored-list", List.of("\"paneer butter masala recipe, how to make paneer at home, best paneer tikka "
+					+ "marinade, paneer nutrition facts, types of paneer dishes\"").toString()
+	);
+
+	@Param({"csv", "numbered", "stored-list"})
+	public String format;
+
+	private String output;
+
+	@Setup
+	public void setUp() {
+		output = OUTPUTS.get(format);
+	}
+
+	/** What /query used to do: clean each line with two regexes, then split the first on commas */
+	@Benchmark
+	public String[] legacy() {
+		List<String> lines = Arrays.stream(output.split("\n"))
+				.map(line -> line.replaceAll("^\\d+[.)]\\s*", "").replaceAll("[\\[\\]\"]", "").trim())
+				.filter(s -> !s.isEmpty())
+				.toList();
+		return lines.getFirst().split(",");
+	}
+
+	/** The single-pass parser used by the query agent and /query */
+	@Benchmark
+	public List<String> outputParser() {
+		return QueryOutputParser.parse(output);
+	}
+
+	/** The incremental parser used while the output streams */
+	@Benchmark
+	public List<String> streamParser() {
+		QueryStreamParser parser = new QueryStreamParser();
+		List<String> queries = parser.feed(output);
+		queries.addAll(parser.finish(null));
+		return queries;
+	}
+}
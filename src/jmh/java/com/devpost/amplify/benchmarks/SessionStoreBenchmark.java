@@ -0,0 +1,89 @@
+package com.devpost.amplify.benchmarks;
+
+import com.devpost.amplify.model.SessionStore;
+import com.google.adk.agents.BaseAgent;
+import com.google.adk.agents.InvocationContext;
+import com.google.adk.agents.LlmAgent;
+import com.google.adk.artifacts.InMemoryArtifactService;
+import com.google.adk.sessions.InMemorySessionService;
+import com.google.genai.types.Content;
+import com.google.genai.types.Part;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link SessionStore#getOrCreate} and {@link SessionStore#cleanupExpiredSessions} under
+ * contention. Session ids are drawn from a fixed pool, so most lookups hit and the rest
+ * create a session, the way returning and new users mix in production.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SessionStoreBenchmark {
+
+	@Param({"1000", "100000"})
+	public int sessionIds;
+
+	private final InMemorySessionService sessionService = new InMemorySessionService();
+	private final InMemoryArtifactService artifactService = new InMemoryArtifactService();
+	private final Content input = Content.fromParts(Part.fromText(""));
+	private BaseAgent agent;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		SessionStore.configure(10_000, 256L * 1024 * 1024, Duration.ofMinutes(5));
+		// Never called, only attached to the contexts
+		agent = LlmAgent.builder().name("bench").model("gemini-2.0-flash").instruction("").build();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		SessionStore.clearAllSessions();
+	}
+
+	@Benchmark
+	@Threads(8)
+	public InvocationContext getOrCreate() {
+		return lookup();
+	}
+
+	@Benchmark
+	@Group("withCleanup")
+	@GroupThreads(7)
+	public InvocationContext getOrCreateDuringCleanup() {
+		return lookup();
+	}
+
+	@Benchmark
+	@Group("withCleanup")
+	@GroupThreads(1)
+	public int cleanup() {
+		return SessionStore.cleanupExpiredSessions();
+	}
+
+	private InvocationContext lookup() {
+		String sessionId = "session-" + ThreadLocalRandom.current().nextInt(sessionIds);
+		return SessionStore.getOrCreate(sessionService, artifactService, sessionId, agent, input);
+	}
+}
@@ -0,0 +1,35 @@
+package com.devpost.amplify.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Log-normal response time distribution given by its median and 99th percentile, the usual
+ * shape of remote API latencies: most calls close to the median and a long right tail.
+ */
+record Latency(Duration median, Duration p99) {
+
+	// z-score of the 99th percentile of a standard normal distribution
+	private static final double Z_99 = 2.3263;
+
+	static Latency parse(String median, String p99) {
+		return new Latency(DurationStyle.detectAndParse(median), DurationStyle.detectAndParse(p99));
+	}
+
+	long sampleMillis() {
+		double mu = Math.log(Math.max(1, median.toMillis()));
+		double sigma = Math.max(0, Math.log((double) p99.toMillis() / Math.max(1, median.toMillis())) / Z_99);
+		return Math.round(Math.exp(mu + sigma * ThreadLocalRandom.current().nextGaussian()));
+	}
+
+	void sleep() throws InterruptedException {
+		Thread.sleep(sampleMillis());
+	}
+
+	@Override
+	public String toString() {
+		return "p50=" + median.toMillis() + "ms p99=" + p99.toMillis() + "ms";
+	}
+}
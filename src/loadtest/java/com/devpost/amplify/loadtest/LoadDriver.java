@@ -0,0 +1,287 @@
+package com.devpost.amplify.loadtest;
+
+import com.devpost.amplify.AmplifyApplication;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * End-to-end load test: starts {@link StubUpstreams} in place of Gemini, Custom Search and the
+ * scraped pages, runs the application in-process against them, and drives concurrent sessions
+ * through {@code /query}, {@code /summarize} and {@code /generate}.
+ * <p>
+ * Every session uses its own seed, so search results, pages and LLM responses are never shared
+ * between sessions and the caches only help within a session, as for distinct real users. The
+ * report gives throughput, latency percentiles per endpoint, and peak heap and thread counts
+ * of the JVM (stubs included, they run on virtual threads).
+ * <p>
+ * Options are {@code name=value} arguments (see {@link #DEFAULTS}); arguments starting with
+ * {@code --} are passed on to the application, e.g. {@code --spring.threads.virtual.enabled=true}.
+ */
+public final class LoadDriver {
+
+	private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+	static {
+		DEFAULTS.put("sessions", "200");
+		DEFAULTS.put("concurrency", "50");
+		DEFAULTS.put("content-type", "caption");
+		DEFAULTS.put("request-timeout", "120s");
+		// Time to the first token, and between streamed chunks
+		DEFAULTS.put("llm.median", "800ms");
+		DEFAULTS.put("llm.p99", "4s");
+		DEFAULTS.put("llm.chunk.median", "40ms");
+		DEFAULTS.put("llm.chunk.p99", "250ms");
+		DEFAULTS.put("search.median", "150ms");
+		DEFAULTS.put("search.p99", "900ms");
+		DEFAULTS.put("page.median", "120ms");
+		DEFAULTS.put("page.p99", "2s");
+	}
+
+	private static final List<String> ENDPOINTS = List.of("/query", "/summarize", "/generate");
+
+	private final ObjectMapper mapper = new ObjectMapper();
+	private final Map<String, String> options;
+	private final HttpClient client = HttpClient.newBuilder()
+			.executor(Executors.newVirtualThreadPerTaskExecutor())
+			.connectTimeout(Duration.ofSeconds(10))
+			.build();
+	private final Map<String, Queue<Long>> latencies = new LinkedHashMap<>();
+	private final Map<String, ConcurrentMap<Integer, AtomicInteger>> statuses = new LinkedHashMap<>();
+	private final AtomicInteger completedSessions = new AtomicInteger();
+	private final AtomicLong peakHeap = new AtomicLong();
+	private final AtomicInteger peakThreads = new AtomicInteger();
+
+	private LoadDriver(Map<String, String> options) {
+		this.options = options;
+		for (String endpoint : ENDPOINTS) {
+			latencies.put(endpoint, new ConcurrentLinkedQueue<>());
+			statuses.put(endpoint, new ConcurrentHashMap<>());
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		Map<String, String> options = new LinkedHashMap<>(DEFAULTS);
+		Map<String, String> appProperties = new LinkedHashMap<>();
+		for (String arg : args) {
+			int eq = arg.indexOf('=');
+			if (eq < 0) {
+				throw new IllegalArgumentException("Expected name=value, got: " + arg);
+			}
+			if (arg.startsWith("--")) {
+				appProperties.put(arg.substring(2, eq), arg.substring(eq + 1));
+			} else if (DEFAULTS.containsKey(arg.substring(0, eq))) {
+				options.put(arg.substring(0, eq), arg.substring(eq + 1));
+			} else {
+				throw new IllegalArgumentException("Unknown option " + arg.substring(0, eq) + ", expected one of " + DEFAULTS.keySet());
+			}
+		}
+
+		new LoadDriver(options).run(appProperties);
+		System.exit(0);
+	}
+
+	private void run(Map<String, String> overrides) throws Exception {
+		Path pageCacheDir = Files.createTempDirectory("amplify-loadtest-pages");
+		try (StubUpstreams stubs = new StubUpstreams(
+				latency("llm"), latency("llm.chunk"), latency("search"), latency("page"))) {
+			Map<String, String> properties = new LinkedHashMap<>();
+			properties.put("server.port", "0");
+			properties.put("logging.config", "classpath:logback-loadtest.xml");
+			properties.put("amplify.llm.base-url", stubs.baseUrl());
+			properties.put("amplify.llm.api-key", "stub");
+			properties.put("amplify.search.endpoint", stubs.baseUrl() + "customsearch/v1");
+			properties.put("amplify.search.api-key", "stub");
+			properties.put("amplify.search.cx", "stub");
+			// Every page is on the stub's host, so per-host pacing would measure nothing but itself
+			properties.put("amplify.scrape.min-delay", "1ms");
+			properties.put("amplify.scrape.max-per-host", "64");
+			properties.put("amplify.scrape.burst", "64");
+			properties.put("amplify.scrape.respect-robots", "false");
+			properties.put("amplify.http.max-per-host", "64");
+			properties.put("amplify.llm-cache.enabled", "false");
+			properties.put("amplify.session.persistence", "none");
+			properties.put("amplify.page-cache.disk-dir", pageCacheDir.toString());
+			properties.put("spring.datasource.url", "jdbc:h2:mem:amplify-loadtest;DB_CLOSE_DELAY=-1");
+			properties.putAll(overrides);
+
+			String[] args = properties.entrySet().stream()
+					.map(e -> "--" + e.getKey() + "=" + e.getValue())
+					.toArray(String[]::new);
+			try (ConfigurableApplicationContext app = new SpringApplicationBuilder(AmplifyApplication.class).run(args)) {
+				int port = app.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+				drive("http://127.0.0.1:" + port, stubs, properties);
+			}
+		} finally {
+			deleteRecursively(pageCacheDir);
+		}
+	}
+
+	private void drive(String baseUrl, StubUpstreams stubs, Map<String, String> properties) throws Exception {
+		int sessions = Integer.parseInt(options.get("sessions"));
+		int concurrency = Integer.parseInt(options.get("concurrency"));
+		String runId = Long.toString(System.currentTimeMillis(), 36);
+
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		System.gc();
+		long heapBefore = memory.getHeapMemoryUsage().getUsed();
+		int threadsBefore = threads.getThreadCount();
+
+		ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+		sampler.scheduleAtFixedRate(() -> {
+			peakHeap.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+			peakThreads.accumulateAndGet(threads.getThreadCount(), Math::max);
+		}, 0, 100, TimeUnit.MILLISECONDS);
+
+		Semaphore slots = new Semaphore(concurrency);
+		CountDownLatch done = new CountDownLatch(sessions);
+		long start = System.nanoTime();
+		for (int i = 0; i < sessions; i++) {
+			slots.acquire();
+			String sessionId = "load-" + runId + "-" + i;
+			String seed = "seed " + runId + " " + i;
+			Thread.ofVirtual().name(sessionId).start(() -> {
+				try {
+					session(baseUrl, sessionId, seed);
+				} finally {
+					slots.release();
+					done.countDown();
+				}
+			});
+		}
+		done.await();
+		long elapsedNanos = System.nanoTime() - start;
+
+		sampler.shutdownNow();
+		System.gc();
+		report(sessions, concurrency, elapsedNanos, stubs, properties,
+				heapBefore, memory.getHeapMemoryUsage().getUsed(), threadsBefore, threads.getThreadCount());
+	}
+
+	private void session(String baseUrl, String sessionId, String seed) {
+		boolean ok = call(baseUrl, "/query", Map.of("sessionId", sessionId, "seedTerm", seed))
+				&& call(baseUrl, "/summarize", Map.of("sessionId", sessionId))
+				&& call(baseUrl, "/generate", Map.of("sessionId", sessionId, "contentType", options.get("content-type")));
+		if (ok) {
+			completedSessions.incrementAndGet();
+		}
+	}
+
+	private boolean call(String baseUrl, String endpoint, Map<String, String> body) {
+		int status;
+		long start = System.nanoTime();
+		try {
+			HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + endpoint))
+					.timeout(duration("request-timeout"))
+					.header("Content-Type", "application/json")
+					.POST(HttpRequest.BodyPublishers.ofString(mapper.writeValueAsString(body)))
+					.build();
+			status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			status = -1;
+		} catch (IOException e) {
+			// Timed out or connection refused: counted under status -1
+			status = -1;
+		}
+		latencies.get(endpoint).add(System.nanoTime() - start);
+		statuses.get(endpoint).computeIfAbsent(status, k -> new AtomicInteger()).incrementAndGet();
+		return status / 100 == 2;
+	}
+
+	private void report(int sessions, int concurrency, long elapsedNanos, StubUpstreams stubs, Map<String, String> properties,
+						long heapBefore, long heapAfter, int threadsBefore, int threadsAfter) {
+		double seconds = elapsedNanos / 1e9;
+		System.out.println();
+		System.out.printf("Amplify load test: %d sessions, %d concurrent, %.1f s%n", sessions, concurrency, seconds);
+		System.out.printf("  stub latency: gemini first token %s, chunks %s; search %s; pages %s%n",
+				latency("llm"), latency("llm.chunk"), latency("search"), latency("page"));
+		System.out.printf("  virtual threads: %s%n", properties.getOrDefault("spring.threads.virtual.enabled", "default"));
+		System.out.printf("  sessions completed: %d (%.2f/s), failed: %d%n",
+				completedSessions.get(), completedSessions.get() / seconds, sessions - completedSessions.get());
+		System.out.println();
+		System.out.printf("  %-11s %8s %8s %9s %9s %9s %9s %9s  %s%n",
+				"endpoint", "requests", "req/s", "p50 ms", "p90 ms", "p99 ms", "max ms", "mean ms", "statuses");
+		for (String endpoint : ENDPOINTS) {
+			long[] sorted = latencies.get(endpoint).stream().mapToLong(Long::longValue).sorted().toArray();
+			Map<Integer, Integer> counts = new TreeMap<>();
+			statuses.get(endpoint).forEach((status, count) -> counts.put(status, count.get()));
+			System.out.printf("  %-11s %8d %8.2f %9.0f %9.0f %9.0f %9.0f %9.0f  %s%n",
+					endpoint, sorted.length, sorted.length / seconds,
+					percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99),
+					percentile(sorted, 1.0), mean(sorted), counts);
+		}
+		System.out.println();
+		System.out.printf("  heap used: %d MB before, %d MB peak, %d MB after (after GC)%n",
+				mb(heapBefore), mb(peakHeap.get()), mb(heapAfter));
+		System.out.printf("  live threads: %d before, %d peak, %d after%n", threadsBefore, peakThreads.get(), threadsAfter);
+		System.out.printf("  upstream calls: %s%n", stubs.calls());
+	}
+
+	private Latency latency(String name) {
+		return Latency.parse(options.get(name + ".median"), options.get(name + ".p99"));
+	}
+
+	private Duration duration(String name) {
+		return DurationStyle.detectAndParse(options.get(name));
+	}
+
+	private static double percentile(long[] sorted, double p) {
+		if (sorted.length == 0) {
+			return 0;
+		}
+		int index = (int) Math.ceil(p * sorted.length) - 1;
+		return sorted[Math.max(0, index)] / 1e6;
+	}
+
+	private static double mean(long[] values) {
+		long sum = 0;
+		for (long value : values) {
+			sum += value;
+		}
+		return values.length == 0 ? 0 : sum / 1e6 / values.length;
+	}
+
+	private static long mb(long bytes) {
+		return bytes / (1024 * 1024);
+	}
+
+	private static void deleteRecursively(Path dir) throws IOException {
+		try (Stream<Path> paths = Files.walk(dir)) {
+			for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+				Files.deleteIfExists(path);
+			}
+		}
+	}
+}
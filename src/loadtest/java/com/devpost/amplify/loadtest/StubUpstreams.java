@@ -0,0 +1,248 @@
+package com.devpost.amplify.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Local stand-ins for the Gemini API, Custom Search and the pages it links to, served from one
+ * JDK {@link HttpServer} on a virtual thread per exchange so that simulated latency never
+ * runs out of server threads.
+ * <ul>
+ *     <li>{@code POST /v1beta/models/{model}:generateContent} and {@code :streamGenerateContent}
+ *     answer a query-generation prompt with five comma-separated queries for its seed, and any
+ *     other prompt with an HTML document; streamed answers are split into chunks.</li>
+ *     <li>{@code GET /customsearch/v1?q=} returns three results linking to {@code /pages/}.</li>
+ *     <li>{@code GET /pages/{id}} returns an article-like HTML page; {@code /robots.txt} is 404.</li>
+ * </ul>
+ */
+final class StubUpstreams implements AutoCloseable {
+
+	private static final Pattern SEED = Pattern.compile("seed search term:\\s*\\{*\\s*([^,}\\n]+)");
+	private static final String[] SUFFIXES = {"recipe", "history", "near me", "benefits", "ideas"};
+	private static final int STREAM_CHUNKS = 8;
+	private static final String[] WORDS = (
+			"trend audience content recipe season market growth brand search video local guide "
+					+ "price quality review popular easy quick traditional modern healthy budget tips"
+	).split(" ");
+
+	private final ObjectMapper mapper = new ObjectMapper();
+	private final HttpServer server;
+	private final Latency llmFirstToken;
+	private final Latency llmChunk;
+	private final Latency search;
+	private final Latency page;
+	private final AtomicLong unnamedSeeds = new AtomicLong();
+	private final Map<String, AtomicLong> calls = new ConcurrentHashMap<>();
+
+	StubUpstreams(Latency llmFirstToken, Latency llmChunk, Latency search, Latency page) throws IOException {
+		this.llmFirstToken = llmFirstToken;
+		this.llmChunk = llmChunk;
+		this.search = search;
+		this.page = page;
+
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+		server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+		server.createContext("/v1beta/models/", exchange -> handle(exchange, this::gemini));
+		server.createContext("/customsearch/v1", exchange -> handle(exchange, this::customSearch));
+		server.createContext("/pages/", exchange -> handle(exchange, this::page));
+		server.createContext("/", exchange -> handle(exchange, e -> respond(e, 404, "text/plain", "not found")));
+		server.start();
+	}
+
+	String baseUrl() {
+		return "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+	}
+
+	Map<String, Long> calls() {
+		Map<String, Long> snapshot = new TreeMap<>();
+		calls.forEach((name, count) -> snapshot.put(name, count.get()));
+		return snapshot;
+	}
+
+	@Override
+	public void close() {
+		server.stop(0);
+	}
+
+	private interface Handler {
+		void handle(HttpExchange exchange) throws Exception;
+	}
+
+	private void handle(HttpExchange exchange, Handler handler) {
+		try (exchange) {
+			handler.handle(exchange);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (Exception e) {
+			// Client gave up (timeout) or the stub is shutting down
+		}
+	}
+
+	private void count(String name) {
+		calls.computeIfAbsent(name, k -> new AtomicLong()).incrementAndGet();
+	}
+
+	private void gemini(HttpExchange exchange) throws Exception {
+		String path = exchange.getRequestURI().getPath();
+		boolean streaming = path.endsWith(":streamGenerateContent");
+		if (!streaming && !path.endsWith(":generateContent")) {
+			respond(exchange, 404, "text/plain", "unknown method " + path);
+			return;
+		}
+		count(streaming ? "gemini.stream" : "gemini.generate");
+
+		JsonNode request = mapper.readTree(exchange.getRequestBody());
+		String text = answer(request);
+		int promptChars = texts(request).stream().mapToInt(String::length).sum();
+
+		llmFirstToken.sleep();
+		if (!streaming) {
+			respond(exchange, 200, "application/json", mapper.writeValueAsString(response(text, promptChars, true)));
+			return;
+		}
+
+		exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+		exchange.sendResponseHeaders(200, 0);
+		OutputStream out = exchange.getResponseBody();
+		List<String> chunks = chunks(text);
+		for (int i = 0; i < chunks.size(); i++) {
+			if (i > 0) {
+				llmChunk.sleep();
+			}
+			boolean last = i == chunks.size() - 1;
+			String event = "data: " + mapper.writeValueAsString(response(chunks.get(i), promptChars, last)) + "\r\n\r\n";
+			out.write(event.getBytes(StandardCharsets.UTF_8));
+			out.flush();
+		}
+	}
+
+	private String answer(JsonNode request) {
+		String instruction = String.join("\n", texts(request.path("systemInstruction")));
+		if (instruction.isEmpty()) {
+			instruction = String.join("\n", texts(request));
+		}
+		if (!instruction.contains("comma-separated")) {
+			return html("Analysis", ThreadLocalRandom.current().nextInt(), 12);
+		}
+
+		Matcher matcher = SEED.matcher(instruction);
+		String seed = matcher.find() ? matcher.group(1).strip() : "topic " + unnamedSeeds.incrementAndGet();
+		List<String> queries = new ArrayList<>(SUFFIXES.length);
+		for (String suffix : SUFFIXES) {
+			queries.add(seed + " " + suffix);
+		}
+		return String.join(", ", queries);
+	}
+
+	private static List<String> texts(JsonNode node) {
+		List<String> texts = new ArrayList<>();
+		for (JsonNode text : node.findValues("text")) {
+			texts.add(text.asText());
+		}
+		return texts;
+	}
+
+	private static List<String> chunks(String text) {
+		List<String> chunks = new ArrayList<>(STREAM_CHUNKS);
+		int size = Math.max(1, (text.length() + STREAM_CHUNKS - 1) / STREAM_CHUNKS);
+		for (int start = 0; start < text.length(); start += size) {
+			chunks.add(text.substring(start, Math.min(text.length(), start + size)));
+		}
+		return chunks;
+	}
+
+	private ObjectNode response(String text, int promptChars, boolean last) {
+		ObjectNode response = mapper.createObjectNode();
+		ObjectNode candidate = response.putArray("candidates").addObject();
+		ObjectNode content = candidate.putObject("content");
+		content.put("role", "model");
+		content.putArray("parts").addObject().put("text", text);
+		candidate.put("index", 0);
+		if (last) {
+			candidate.put("finishReason", "STOP");
+		}
+		ObjectNode usage = response.putObject("usageMetadata");
+		usage.put("promptTokenCount", promptChars / 4);
+		usage.put("candidatesTokenCount", text.length() / 4);
+		usage.put("totalTokenCount", (promptChars + text.length()) / 4);
+		response.put("modelVersion", "stub");
+		return response;
+	}
+
+	private void customSearch(HttpExchange exchange) throws Exception {
+		count("search");
+		String query = "";
+		String rawQuery = exchange.getRequestURI().getRawQuery();
+		if (rawQuery != null) {
+			for (String param : rawQuery.split("&")) {
+				if (param.startsWith("q=")) {
+					query = URLDecoder.decode(param.substring(2), StandardCharsets.UTF_8);
+				}
+			}
+		}
+
+		search.sleep();
+		ObjectNode response = mapper.createObjectNode();
+		ArrayNode items = response.putArray("items");
+		for (int i = 0; i < 3; i++) {
+			String id = Integer.toHexString(query.hashCode()) + "-" + i;
+			items.addObject()
+					.put("title", query + " result " + i)
+					.put("link", baseUrl() + "pages/" + id)
+					.put("snippet", "About " + query + ", result " + i)
+					.put("displayLink", "127.0.0.1");
+		}
+		respond(exchange, 200, "application/json", mapper.writeValueAsString(response));
+	}
+
+	private void page(HttpExchange exchange) throws Exception {
+		count("page");
+		String id = exchange.getRequestURI().getPath().substring("/pages/".length());
+		page.sleep();
+		respond(exchange, 200, "text/html; charset=utf-8", html("Page " + id, id.hashCode(), 40));
+	}
+
+	private static String html(String title, int seed, int paragraphs) {
+		Random random = new Random(seed);
+		StringBuilder html = new StringBuilder(paragraphs * 400)
+				.append("<!DOCTYPE html><html><head><title>").append(title).append("</title></head><body>")
+				.append("<nav><a href=\"/\">Home</a> <a href=\"/about\">About</a></nav><article><h1>")
+				.append(title).append("</h1>");
+		for (int p = 0; p < paragraphs; p++) {
+			html.append("<p>");
+			for (int w = 0; w < 60; w++) {
+				html.append(WORDS[random.nextInt(WORDS.length)]).append(w % 12 == 11 ? ". " : " ");
+			}
+			html.append("</p>");
+		}
+		return html.append("</article><footer>Stub page</footer></body></html>").toString();
+	}
+
+	private static void respond(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", contentType);
+		exchange.sendResponseHeaders(status, bytes.length);
+		exchange.getResponseBody().write(bytes);
+	}
+}
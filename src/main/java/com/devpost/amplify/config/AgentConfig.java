@@ -0,0 +1,179 @@
+package com.devpost.amplify.config;
+
+import com.devpost.amplify.service.agents.ContentGenerationAgent;
+import com.devpost.amplify.service.agents.PartialSummaryAgent;
+import com.devpost.amplify.service.agents.QueryGenerationAgent;
+import com.devpost.amplify.service.agents.SummarizationAgent;
+import com.devpost.amplify.service.llm.EmbeddingModelPromptEmbedder;
+import com.devpost.amplify.service.llm.HashingPromptEmbedder;
+import com.devpost.amplify.service.llm.LlmResponseCache;
+import com.devpost.amplify.service.llm.PromptEmbedder;
+import com.devpost.amplify.service.resilience.UpstreamGuard;
+import com.google.adk.agents.LlmAgent;
+import com.google.adk.artifacts.InMemoryArtifactService;
+import com.google.adk.models.Gemini;
+import com.google.adk.runner.Runner;
+import com.google.adk.sessions.InMemorySessionService;
+import com.google.genai.Client;
+import com.google.genai.types.HttpOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * The Gemini-backed agents and the ADK runner providing their session and artifact services.
+ */
+@Configuration
+public class AgentConfig {
+    private static final Logger logger = LoggerFactory.getLogger(AgentConfig.class);
+
+    // Prompt for generating related queries
+    private static final String QUERY_PROMPT = """
+    Given a seed search term: {{input}},
+    generate 5 highly relevant and specific search queries a user might also search.
+    
+    Only return the list as a single comma-separated line (CSV format), without any explanations, numbering, or extra text.
+    Example output: "paneer butter masala recipe, how to make paneer at home, best paneer tikka marinade, paneer nutrition facts, types of paneer dishes"
+    """;
+
+    private static final String ANALYSIS_PROMPT = """
+    You are an expert summarizer. Below is scraped content for search queries from high-ranking web pages.
+    Your task is to extract key points and generate a structured summary for marketing professionals or businesses to use for their own content.
+    Share as structured html file with proper formatting that can be used to display directly on a web page
+    Below are the main sections that should be present
+    Main Concepts:
+        - ...
+    Trends and Patterns:
+        - ...
+    Popular Sources:
+        - ...
+    Audience Insights:
+        - ...
+    Content Gaps or Opportunities:
+        - ...
+
+    {{input}}
+    """;
+
+    // Prompt for condensing the scraped content of a single query into notes for the merge step
+    private static final String PARTIAL_PROMPT = """
+    You condense scraped web content into short factual notes for a later merge step.
+    Keep concrete facts, names, numbers and sources. Drop navigation text, ads and repetition.
+    Reply with plain-text bullet points only, no HTML, greetings or acknowledgements.
+
+    {{input}}
+    """;
+
+    // Prompt for generating content based on earlier analysis
+    private static final String CONTENT_PROMPT = """
+    Based on the summary or insights provided,
+    generate a high-quality piece of content.
+    Maintain clarity and make it informative. Generate in the form of a template that's easily editable and include placeholders.
+    Share as structured html file with proper formatting that can be used to display directly on a web page
+    Just share the actual content. No affirmations, greetings or acknowledgements. Below is the analysis
+    
+    {{input}}
+    """;
+
+    private final String modelName;
+    private final String baseUrl;
+    private final String apiKey;
+
+    /**
+     * @param baseUrl Gemini API endpoint to use instead of the default one (e.g. a local stub
+     *                for load tests); blank for the default
+     */
+    public AgentConfig(
+            @Value("${amplify.llm.model:gemini-2.0-flash}") String modelName,
+            @Value("${amplify.llm.base-url:}") String baseUrl,
+            @Value("${amplify.llm.api-key:${GOOGLE_API_KEY:}}") String apiKey
+    ) {
+        this.modelName = modelName;
+        this.baseUrl = baseUrl;
+        this.apiKey = apiKey;
+    }
+
+    @Bean
+    public QueryGenerationAgent queryGenerationAgent(LlmResponseCache responseCache, UpstreamGuard geminiGuard) {
+        LlmAgent llmGenQuery = agent("query_gen")
+                .description("Generate related queries")
+                .instruction(QUERY_PROMPT)
+                .build();
+        return new QueryGenerationAgent(llmGenQuery, responseCache, geminiGuard);
+    }
+
+    @Bean
+    public SummarizationAgent summarizationAgent(LlmResponseCache responseCache, UpstreamGuard geminiGuard) {
+        LlmAgent llmAnalyseResult = agent("analyse_gen")
+                .description("Analyse related Content")
+                .instruction(ANALYSIS_PROMPT)
+                .build();
+        return new SummarizationAgent(llmAnalyseResult, responseCache, geminiGuard);
+    }
+
+    @Bean
+    public PartialSummaryAgent partialSummaryAgent(LlmResponseCache responseCache, UpstreamGuard geminiGuard) {
+        LlmAgent llmPartialSummary = agent("partial_summary_gen")
+                .description("Condense the content of one query")
+                .instruction(PARTIAL_PROMPT)
+                .build();
+        return new PartialSummaryAgent(llmPartialSummary, responseCache, geminiGuard);
+    }
+
+    @Bean
+    public ContentGenerationAgent contentGenerationAgent(LlmResponseCache responseCache, UpstreamGuard geminiGuard) {
+        LlmAgent llmGenContent = agent("content_gen")
+                .description("Generate final content")
+                .instruction(CONTENT_PROMPT)
+                .build();
+        return new ContentGenerationAgent(llmGenContent, responseCache, geminiGuard);
+    }
+
+    private LlmAgent.Builder agent(String name) {
+        LlmAgent.Builder builder = LlmAgent.builder().name(name);
+        if (baseUrl.isBlank()) {
+            return builder.model(modelName);
+        }
+        Client client = Client.builder()
+                .apiKey(apiKey)
+                .httpOptions(HttpOptions.builder().baseUrl(baseUrl).build())
+                .build();
+        return builder.model(new Gemini(modelName, client));
+    }
+
+    /**
+     * The runner is only used for its session and artifact services; agents are run directly.
+     */
+    @Bean
+    public Runner runner(QueryGenerationAgent queryAgent) {
+        return new Runner(
+                queryAgent,
+                "Amplify",
+                new InMemoryArtifactService(),
+                new InMemorySessionService()
+        );
+    }
+
+    /**
+     * Embeddings used to find near-duplicate prompts: {@code hashing} (local, no network)
+     * or {@code vertex} (the Vertex AI embedding model, when its autoconfiguration is enabled).
+     */
+    @Bean
+    public PromptEmbedder promptEmbedder(
+            @Value("${amplify.llm-cache.embedder:hashing}") String embedder,
+            ObjectProvider<EmbeddingModel> embeddingModel
+    ) {
+        if ("vertex".equals(embedder)) {
+            EmbeddingModel model = embeddingModel.getIfAvailable();
+            if (model != null) {
+                return new EmbeddingModelPromptEmbedder(model);
+            }
+            logger.warn("No EmbeddingModel available, falling back to hashing prompt embeddings");
+        }
+        return new HashingPromptEmbedder();
+    }
+}
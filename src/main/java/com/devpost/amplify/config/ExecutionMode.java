@@ -0,0 +1,42 @@
+package com.devpost.amplify.config;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * How blocking work (agent calls, search and scrape I/O) is scheduled.
+ * <p>
+ * The mode follows {@code spring.threads.virtual.enabled}: when it is set, Tomcat
+ * dispatches every request on its own virtual thread, so a handler parked on
+ * {@code blockingSubscribe()} during a Gemini round-trip no longer pins an OS thread.
+ */
+public enum ExecutionMode {
+    /** Fixed pools of platform threads, one OS thread per in-flight call */
+    PLATFORM,
+    /** One virtual thread per task */
+    VIRTUAL;
+
+    public static ExecutionMode of(boolean virtualThreadsEnabled) {
+        return virtualThreadsEnabled ? VIRTUAL : PLATFORM;
+    }
+
+    /**
+     * Create an executor for blocking tasks.
+     *
+     * @param namePrefix      thread name prefix
+     * @param platformThreads pool size used in {@link #PLATFORM} mode
+     */
+    public ExecutorService newExecutor(String namePrefix, int platformThreads) {
+        if (this == VIRTUAL) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(namePrefix + "-", 1).factory());
+        }
+
+        AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(platformThreads, r -> {
+            Thread t = new Thread(r, namePrefix + "-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+}
@@ -0,0 +1,43 @@
+package com.devpost.amplify.config;
+
+import com.devpost.amplify.service.resilience.AdaptiveLimiter;
+import com.devpost.amplify.service.resilience.CircuitBreaker;
+import com.devpost.amplify.service.resilience.UpstreamGuard;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Adaptive concurrency limits and circuit breakers for the upstreams every request depends on.
+ */
+@Configuration
+public class ResilienceConfig {
+
+    @Bean
+    public UpstreamGuard geminiGuard(
+            @Value("${amplify.upstream.gemini.initial-limit:8}") int initialLimit,
+            @Value("${amplify.upstream.gemini.min-limit:2}") int minLimit,
+            @Value("${amplify.upstream.gemini.max-limit:64}") int maxLimit,
+            @Value("${amplify.upstream.gemini.failure-rate-threshold:0.5}") double failureRateThreshold,
+            @Value("${amplify.upstream.gemini.open-duration:30s}") Duration openDuration
+    ) {
+        return new UpstreamGuard("gemini",
+                new AdaptiveLimiter(initialLimit, minLimit, maxLimit),
+                new CircuitBreaker(failureRateThreshold, openDuration));
+    }
+
+    @Bean
+    public UpstreamGuard searchGuard(
+            @Value("${amplify.upstream.search.initial-limit:8}") int initialLimit,
+            @Value("${amplify.upstream.search.min-limit:2}") int minLimit,
+            @Value("${amplify.upstream.search.max-limit:32}") int maxLimit,
+            @Value("${amplify.upstream.search.failure-rate-threshold:0.5}") double failureRateThreshold,
+            @Value("${amplify.upstream.search.open-duration:30s}") Duration openDuration
+    ) {
+        return new UpstreamGuard("search",
+                new AdaptiveLimiter(initialLimit, minLimit, maxLimit),
+                new CircuitBreaker(failureRateThreshold, openDuration));
+    }
+}
@@ -0,0 +1,51 @@
+package com.devpost.amplify.config;
+
+import com.devpost.amplify.model.SessionStore;
+import com.devpost.amplify.model.snapshot.AppendOnlySessionLog;
+import com.devpost.amplify.model.snapshot.H2SessionSnapshotStore;
+import com.devpost.amplify.model.snapshot.SessionSnapshotStore;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Applies the configured bounds, idle timeout and persistence backend to the static {@link SessionStore}.
+ */
+@Configuration
+public class SessionStoreConfig {
+
+    public SessionStoreConfig(
+            @Value("${amplify.session.max-entries:10000}") long maxEntries,
+            @Value("${amplify.session.max-bytes:268435456}") long maxBytes,
+            @Value("${amplify.session.idle-timeout:5m}") Duration idleTimeout
+    ) {
+        SessionStore.configure(maxEntries, maxBytes, idleTimeout);
+    }
+
+    /**
+     * Snapshot backend selected by {@code amplify.session.persistence}:
+     * {@code none}, {@code log} (append-only file) or {@code h2} (application datasource).
+     */
+    @Bean(destroyMethod = "close")
+    public SessionSnapshotStore sessionSnapshotStore(
+            @Value("${amplify.session.persistence:none}") String persistence,
+            @Value("${amplify.session.log-path:data/sessions.log}") Path logPath,
+            ObjectProvider<JdbcTemplate> jdbcTemplate
+    ) throws IOException {
+        SessionSnapshotStore snapshotStore = switch (persistence) {
+            case "none" -> SessionSnapshotStore.NONE;
+            case "log" -> new AppendOnlySessionLog(logPath);
+            case "h2" -> new H2SessionSnapshotStore(jdbcTemplate.getObject());
+            default -> throw new IllegalArgumentException("Unknown amplify.session.persistence: " + persistence);
+        };
+
+        SessionStore.useSnapshotStore(snapshotStore);
+        return snapshotStore;
+    }
+}
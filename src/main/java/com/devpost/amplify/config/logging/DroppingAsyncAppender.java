@@ -0,0 +1,226 @@
+package com.devpost.amplify.config.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import ch.qos.logback.core.spi.AppenderAttachable;
+import ch.qos.logback.core.spi.AppenderAttachableImpl;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands events to the attached appenders on a background thread, so request threads never
+ * wait on the console or on Cloud Logging.
+ * <p>
+ * The queue is bounded. Like logback's own {@code AsyncAppender}, the last
+ * {@code discardingThreshold} slots (a fifth of the queue by default) are kept for WARN and
+ * ERROR events: once the queue is that full, events below WARN are dropped instead of
+ * blocking the caller. WARN and ERROR events, which are the ones that explain an overload,
+ * wait up to {@code maxWarnBlockMillis} for a slot when even the reserve is used up, and are
+ * only dropped after that. The writer drains events in batches of up to {@code maxBatchSize},
+ * and at most every {@code reportIntervalMillis} writes a warning with the number of events
+ * dropped since the last report. Caller data (file and line) is not captured.
+ */
+public class DroppingAsyncAppender extends UnsynchronizedAppenderBase<ILoggingEvent>
+        implements AppenderAttachable<ILoggingEvent> {
+
+    private final AppenderAttachableImpl<ILoggingEvent> appenders = new AppenderAttachableImpl<>();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong droppedWarnings = new AtomicLong();
+    private final AtomicLong droppedTotal = new AtomicLong();
+
+    private int queueSize = 8192;
+    private int maxBatchSize = 256;
+    private long reportIntervalMillis = 10_000;
+    private long maxFlushTimeMillis = 1_000;
+    private int discardingThreshold = -1;
+    private long maxWarnBlockMillis = 100;
+
+    private BlockingQueue<ILoggingEvent> queue;
+    private Thread writer;
+    private volatile boolean running;
+
+    @Override
+    public void start() {
+        if (isStarted()) {
+            return;
+        }
+        if (!appenders.iteratorForAppenders().hasNext()) {
+            addError("No appenders attached to " + getName());
+            return;
+        }
+
+        queue = new ArrayBlockingQueue<>(queueSize);
+        if (discardingThreshold < 0) {
+            discardingThreshold = queueSize / 5;
+        }
+        running = true;
+        writer = new Thread(this::drain, "AsyncLogWriter-" + getName());
+        writer.setDaemon(true);
+        writer.start();
+        super.start();
+    }
+
+    @Override
+    public void stop() {
+        if (!isStarted()) {
+            return;
+        }
+        super.stop();
+
+        // Let the writer flush what is queued, but don't hold up shutdown for long
+        running = false;
+        writer.interrupt();
+        try {
+            writer.join(maxFlushTimeMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive()) {
+            addWarn("Gave up flushing " + queue.size() + " queued events after " + maxFlushTimeMillis + " ms");
+        }
+        appenders.detachAndStopAllAppenders();
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        // Capture the thread name, MDC and formatted message while still on the caller's thread
+        event.prepareForDeferredProcessing();
+        if (!event.getLevel().isGreaterOrEqual(Level.WARN)) {
+            if (queue.remainingCapacity() <= discardingThreshold || !queue.offer(event)) {
+                dropped.incrementAndGet();
+            }
+            return;
+        }
+
+        try {
+            if (!queue.offer(event) && !queue.offer(event, maxWarnBlockMillis, TimeUnit.MILLISECONDS)) {
+                droppedWarnings.incrementAndGet();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            droppedWarnings.incrementAndGet();
+        }
+    }
+
+    /** Events dropped since the appender started */
+    public long getDroppedTotal() {
+        return droppedTotal.get() + dropped.get() + droppedWarnings.get();
+    }
+
+    private void drain() {
+        List<ILoggingEvent> batch = new ArrayList<>(maxBatchSize);
+        long nextReport = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(reportIntervalMillis);
+        while (running || !queue.isEmpty()) {
+            try {
+                ILoggingEvent first = running
+                        ? queue.poll(reportIntervalMillis, TimeUnit.MILLISECONDS)
+                        : queue.poll();
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, maxBatchSize - 1);
+                    for (ILoggingEvent event : batch) {
+                        appenders.appendLoopOnAppenders(event);
+                    }
+                    batch.clear();
+                }
+            } catch (InterruptedException e) {
+                // Interrupted by stop(): loop once more to flush what is left
+            }
+
+            if (System.nanoTime() - nextReport >= 0 || !running) {
+                reportDropped();
+                nextReport = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(reportIntervalMillis);
+            }
+        }
+    }
+
+    private void reportDropped() {
+        long below = dropped.getAndSet(0);
+        long warnings = droppedWarnings.getAndSet(0);
+        if (below + warnings == 0) {
+            return;
+        }
+
+        long total = droppedTotal.addAndGet(below + warnings);
+        LoggerContext loggerContext = (LoggerContext) getContext();
+        LoggingEvent warning = new LoggingEvent(
+                DroppingAsyncAppender.class.getName(),
+                loggerContext.getLogger(DroppingAsyncAppender.class),
+                Level.WARN,
+                "Dropped {} log events below WARN and {} WARN/ERROR events because the async queue was full"
+                        + " ({} since start)",
+                null,
+                new Object[]{below, warnings, total});
+        appenders.appendLoopOnAppenders(warning);
+    }
+
+    public void setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+    }
+
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+    }
+
+    public void setReportIntervalMillis(long reportIntervalMillis) {
+        this.reportIntervalMillis = reportIntervalMillis;
+    }
+
+    public void setMaxFlushTimeMillis(long maxFlushTimeMillis) {
+        this.maxFlushTimeMillis = maxFlushTimeMillis;
+    }
+
+    /** Free slots below which events under WARN are dropped; defaults to a fifth of the queue */
+    public void setDiscardingThreshold(int discardingThreshold) {
+        this.discardingThreshold = discardingThreshold;
+    }
+
+    public void setMaxWarnBlockMillis(long maxWarnBlockMillis) {
+        this.maxWarnBlockMillis = Math.max(0, maxWarnBlockMillis);
+    }
+
+    @Override
+    public void addAppender(Appender<ILoggingEvent> appender) {
+        appenders.addAppender(appender);
+    }
+
+    @Override
+    public Iterator<Appender<ILoggingEvent>> iteratorForAppenders() {
+        return appenders.iteratorForAppenders();
+    }
+
+    @Override
+    public Appender<ILoggingEvent> getAppender(String name) {
+        return appenders.getAppender(name);
+    }
+
+    @Override
+    public boolean isAttached(Appender<ILoggingEvent> appender) {
+        return appenders.isAttached(appender);
+    }
+
+    @Override
+    public void detachAndStopAllAppenders() {
+        appenders.detachAndStopAllAppenders();
+    }
+
+    @Override
+    public boolean detachAppender(Appender<ILoggingEvent> appender) {
+        return appenders.detachAppender(appender);
+    }
+
+    @Override
+    public boolean detachAppender(String name) {
+        return appenders.detachAppender(name);
+    }
+}
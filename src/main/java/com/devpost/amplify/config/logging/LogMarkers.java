@@ -0,0 +1,19 @@
+package com.devpost.amplify.config.logging;
+
+import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
+
+/**
+ * Markers that the logging configuration treats specially.
+ */
+public final class LogMarkers {
+
+    /**
+     * Debug lines logged once per query or page. Under load these are sampled by the
+     * {@link MarkerSamplingFilter} instead of all being written.
+     */
+    public static final Marker PER_QUERY = MarkerFactory.getMarker("PER_QUERY");
+
+    private LogMarkers() {
+    }
+}
@@ -0,0 +1,38 @@
+package com.devpost.amplify.config.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lets only one in {@code keepOneIn} events carrying {@code marker} through. Runs before the
+ * event is created, so the dropped ones cost no formatting. Warnings and errors are never
+ * sampled.
+ */
+public class MarkerSamplingFilter extends TurboFilter {
+    private final AtomicLong seen = new AtomicLong();
+    private String marker = LogMarkers.PER_QUERY.getName();
+    private int keepOneIn = 10;
+
+    @Override
+    public FilterReply decide(Marker eventMarker, Logger logger, Level level, String format,
+                              Object[] params, Throwable t) {
+        if (eventMarker == null || !eventMarker.contains(marker) || level.isGreaterOrEqual(Level.WARN)) {
+            return FilterReply.NEUTRAL;
+        }
+        // Neutral rather than accept, so the logger level still applies to the kept events
+        return seen.getAndIncrement() % keepOneIn == 0 ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+
+    public void setMarker(String marker) {
+        this.marker = marker;
+    }
+
+    public void setKeepOneIn(int keepOneIn) {
+        this.keepOneIn = Math.max(1, keepOneIn);
+    }
+}
@@ -1,124 +1,125 @@
 package com.devpost.amplify.controller;
 
-import com.devpost.amplify.model.HtmlAnalysisResult;
 import com.devpost.amplify.model.SessionStore;
+import com.devpost.amplify.service.ContextPacker;
+import com.devpost.amplify.service.MapReduceSummarizer;
+import com.devpost.amplify.service.PromptTemplates;
+import com.devpost.amplify.service.StageTimings;
+import com.devpost.amplify.service.SummaryMode;
 import com.devpost.amplify.service.agents.ContentGenerationAgent;
 import com.devpost.amplify.service.agents.QueryGenerationAgent;
 import com.devpost.amplify.service.agents.SummarizationAgent;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.devpost.amplify.service.batch.BatchJob;
+import com.devpost.amplify.service.batch.BatchService;
+import com.devpost.amplify.service.fetch.CustomSearchClient;
+import com.devpost.amplify.service.fetch.FetchPipeline;
+import com.devpost.amplify.service.fetch.FetchedContent;
+import com.devpost.amplify.service.fetch.PageCache;
+import com.devpost.amplify.service.fetch.QueryFetchResult;
+import com.devpost.amplify.service.fetch.ScrapeScheduler;
+import com.devpost.amplify.service.jobs.JobQueue;
+import com.devpost.amplify.service.jobs.PipelineJob;
+import com.devpost.amplify.service.http.OutboundHttpClient;
+import com.devpost.amplify.service.pipeline.FusedPipeline;
+import com.devpost.amplify.service.pipeline.QueryOutputParser;
+import com.devpost.amplify.service.pipeline.QueryStreamParser;
+import com.devpost.amplify.service.pipeline.TextDeltas;
+import com.devpost.amplify.service.llm.LlmResponseCache;
+import com.devpost.amplify.service.resilience.UpstreamGuard;
+import com.devpost.amplify.service.resilience.UpstreamRejectedException;
 import com.google.adk.agents.InvocationContext;
-import com.google.adk.agents.LlmAgent;
-import com.google.adk.artifacts.InMemoryArtifactService;
 import com.google.adk.events.Event;
 import com.google.adk.runner.Runner;
-import com.google.adk.sessions.InMemorySessionService;
 import com.google.genai.types.Content;
 import com.google.genai.types.Part;
 import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.disposables.Disposable;
+import io.reactivex.rxjava3.schedulers.Schedulers;
 import org.apache.commons.lang.StringUtils;
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 
 @CrossOrigin(origins = "*")
 @RestController
 @RequestMapping()
 public class AmplifyController {
 
+    private static final long STREAM_TIMEOUT_MILLIS = 5 * 60 * 1000;
+
     private final Runner runner;
     private final QueryGenerationAgent queryAgent;
     private final ContentGenerationAgent contentAgent;
     private final SummarizationAgent analyseAgent;
+    private final FetchPipeline fetchPipeline;
+    private final PageCache pageCache;
+    private final CustomSearchClient searchClient;
+    private final LlmResponseCache responseCache;
+    private final OutboundHttpClient httpClient;
+    private final ScrapeScheduler scrapeScheduler;
+    private final ContextPacker contextPacker;
+    private final MapReduceSummarizer mapReduceSummarizer;
+    private final BatchService batchService;
+    private final JobQueue jobQueue;
+    private final FusedPipeline fusedPipeline;
+    private final UpstreamGuard geminiGuard;
+    private final UpstreamGuard searchGuard;
 
     private final Logger logger = LoggerFactory.getLogger(AmplifyController.class);
 
-    public AmplifyController() throws Exception {
-        // Prompt for generating related queries
-        String queryPrompt = """
-        Given a seed search term: {{input}},
-        generate 5 highly relevant and specific search queries a user might also search.
-        
-        Only return the list as a single comma-separated line (CSV format), without any explanations, numbering, or extra text.
-        Example output: "paneer butter masala recipe, how to make paneer at home, best paneer tikka marinade, paneer nutrition facts, types of paneer dishes"
-        """;
-
-        String analysisPrompt = """
-        You are an expert summarizer. Below is scraped content for search queries from high-ranking web pages.
-        Your task is to extract key points and generate a structured summary for marketing professionals or businesses to use for their own content.
-        Share as structured html file with proper formatting that can be used to display directly on a web page
-        Below are the main sections that should be present
-        Main Concepts:
-            - ...
-        Trends and Patterns:
-            - ...
-        Popular Sources:
-            - ...
-        Audience Insights:
-            - ...
-        Content Gaps or Opportunities:
-            - ...
-
-        {{input}}
-        """;
-
-        // Prompt for generating content based on earlier analysis
-        String contentPrompt = """
-        Based on the summary or insights provided,
-        generate a high-quality piece of content.
-        Maintain clarity and make it informative. Generate in the form of a template that's easily editable and include placeholders.
-        Share as structured html file with proper formatting that can be used to display directly on a web page
-        Just share the actual content. No affirmations, greetings or acknowledgements. Below is the analysis
-        
-        {{input}}
-        """;
-
-        LlmAgent llmGenQuery = LlmAgent.builder()
-                .name("query_gen")
-                .model("gemini-2.0-flash")
-                .description("Generate related queries")
-                .instruction(queryPrompt)
-                .build();
-
-        LlmAgent llmAnalyseResult = LlmAgent.builder()
-                .name("analyse_gen")
-                .model("gemini-2.0-flash")
-                .description("Analyse related Content")
-                .instruction(analysisPrompt)
-                .build();
-
-        LlmAgent llmGenContent = LlmAgent.builder()
-                .name("content_gen")
-                .model("gemini-2.0-flash")
-                .description("Generate final content")
-                .instruction(contentPrompt)
-                .build();
-
-        this.queryAgent = new QueryGenerationAgent(llmGenQuery);
-        this.contentAgent = new ContentGenerationAgent(llmGenContent);
-        this.analyseAgent = new SummarizationAgent(llmAnalyseResult);
-
-        this.runner = new Runner(
-                llmGenQuery,
-                "Amplify",
-                new InMemoryArtifactService(),
-                new InMemorySessionService()
-        );
+    public AmplifyController(
+            Runner runner,
+            QueryGenerationAgent queryAgent,
+            SummarizationAgent analyseAgent,
+            ContentGenerationAgent contentAgent,
+            FetchPipeline fetchPipeline,
+            PageCache pageCache,
+            CustomSearchClient searchClient,
+            LlmResponseCache responseCache,
+            OutboundHttpClient httpClient,
+            ScrapeScheduler scrapeScheduler,
+            ContextPacker contextPacker,
+            MapReduceSummarizer mapReduceSummarizer,
+            BatchService batchService,
+            JobQueue jobQueue,
+            FusedPipeline fusedPipeline,
+            UpstreamGuard geminiGuard,
+            UpstreamGuard searchGuard
+    ) {
+        this.runner = runner;
+        this.queryAgent = queryAgent;
+        this.analyseAgent = analyseAgent;
+        this.contentAgent = contentAgent;
+        this.fetchPipeline = fetchPipeline;
+        this.pageCache = pageCache;
+        this.searchClient = searchClient;
+        this.responseCache = responseCache;
+        this.httpClient = httpClient;
+        this.scrapeScheduler = scrapeScheduler;
+        this.contextPacker = contextPacker;
+        this.mapReduceSummarizer = mapReduceSummarizer;
+        this.batchService = batchService;
+        this.jobQueue = jobQueue;
+        this.fusedPipeline = fusedPipeline;
+        this.geminiGuard = geminiGuard;
+        this.searchGuard = searchGuard;
     }
 
     @PostMapping("/query")
@@ -131,6 +132,8 @@ public class AmplifyController {
         }
 
         try {
+            geminiGuard.checkAdmission();
+
             InvocationContext ctx = SessionStore.getOrCreate(
                     runner.sessionService(),
                     runner.artifactService(),
@@ -143,35 +146,27 @@ public class AmplifyController {
             ctx.session().state().put("input", seed);
             ctx.session().state().put("seedTerm", seed);
 
-            Flowable<Event> flow = queryAgent.runAsync(ctx);
-            flow.blockingSubscribe();
+            Flowable<Event> flow = Boolean.parseBoolean(input.get("prefetch"))
+                    ? queriesWithPrefetch(ctx)
+                    : queryAgent.runAsync(ctx);
+            flow.ignoreElements().blockingAwait();
 
-            Object queries = ctx.session().state().get("relatedQueries").toString();
-            if (queries == null) {
+            List<String> relatedQueries = QueryOutputParser.parse(ctx.session().state().get("relatedQueries"));
+            if (relatedQueries.isEmpty()) {
                 return ResponseEntity.internalServerError().body("Failed to generate queries");
             }
 
-            List<String> relatedQueries;
-
-            // Ensure proper format for LLM output
-            if (queries instanceof String str) {
-                relatedQueries = Arrays.stream(str.split("\n"))
-                        .map(line -> line.replaceAll("^\\d+[.)]\\s*", "").replaceAll("[\\[\\]\"]", "").trim())
-                        .filter(s -> !s.isEmpty())
-                        .toList();
-            } else {
-                return ResponseEntity.badRequest().body("LLM output not in expected string format: " + queries);
-            }
-
             SessionStore.save(sessionId, ctx);
 
             logger.info("Generated {} queries for session {}", relatedQueries.size(), sessionId);
 
             return ResponseEntity.ok(Map.of(
-                    "relatedQueries", relatedQueries.getFirst().split(","),
+                    "relatedQueries", relatedQueries,
                     "sessionInfo", SessionStore.getSessionInfo(sessionId)
             ));
 
+        } catch (UpstreamRejectedException e) {
+            return rejected(e);
         } catch (Exception e) {
             logger.error("Error generating queries for session {}: {}", sessionId, e.getMessage(), e);
             return ResponseEntity.internalServerError().body("Error generating queries: " + e.getMessage());
@@ -186,7 +181,16 @@ public class AmplifyController {
             return ResponseEntity.badRequest().body("sessionId is required");
         }
 
+        SummaryMode mode;
+        try {
+            mode = SummaryMode.of(input.get("mode"));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Unknown mode: " + input.get("mode"));
+        }
+
         try {
+            geminiGuard.checkAdmission();
+
             InvocationContext ctx = SessionStore.getOrCreate(
                     runner.sessionService(),
                     runner.artifactService(),
@@ -195,148 +199,22 @@ public class AmplifyController {
                     Content.fromParts(Part.fromText(""))
             );
 
-            // Handle the case where relatedQueries might be stored as different types
-            List<String> queries;
-            if (input.containsKey("queries") && StringUtils.isNotBlank(input.get("queries"))) {
-                queries = Arrays.stream(input.get("queries").split(","))
-                        .map(String::trim)
-                        .filter(s -> !s.isEmpty())
-                        .toList();
-            } else {
-                Object storedQueries = ctx.session().state().get("relatedQueries");
-                if (storedQueries instanceof List) {
-                    queries = (List<String>) storedQueries;
-                } else if (storedQueries instanceof String) {
-                    queries = Arrays.stream(((String) storedQueries).split(","))
-                            .map(String::trim)
-                            .filter(s -> !s.isEmpty())
-                            .toList();
-                } else {
-                    return ResponseEntity.badRequest().body("No queries found in session or input. Please call /query first.");
-                }
+            List<String> queries = resolveQueries(input, ctx);
+            if (queries == null) {
+                return ResponseEntity.badRequest().body("No queries found in session or input. Please call /query first.");
             }
 
             if (queries.isEmpty()) {
                 return ResponseEntity.badRequest().body("No valid queries found");
             }
 
-            logger.info("Processing {} queries for session {}", queries.size(), sessionId);
-
-            StringBuilder aggregatedTextBuilder = new StringBuilder();
-            List<String> failedQueries = new ArrayList<>();
-            List<String> successfulQueries = new ArrayList<>();
-
-            for (String query : queries) {
-                try {
-                    String encodedQuery = URLEncoder.encode(query, StandardCharsets.UTF_8);
-                    String apiUrl = UriComponentsBuilder
-                            .fromUriString("https://www.googleapis.com/customsearch/v1")
-                            .queryParam("q", encodedQuery)
-                            .queryParam("key", "ADD_YOUR_API_KEY_HERE")
-                            .queryParam("cx", "ADD_YOUR_CX_HERE")
-                            .build()
-                            .toUriString();
-
-                    logger.debug("Calling Custom Search API for query: {}", query);
-                    HttpURLConnection connection = (HttpURLConnection) new URL(apiUrl).openConnection();
-                    connection.setRequestMethod("GET");
-                    connection.setConnectTimeout(10_000);
-                    connection.setReadTimeout(10_000);
-
-                    int responseCode = connection.getResponseCode();
-                    if (responseCode != 200) {
-                        logger.warn("Skipping query '{}' due to API response code {}", query, responseCode);
-                        failedQueries.add(query);
-                        continue;
-                    }
-
-                    InputStream res = connection.getInputStream();
-                    JsonNode items = new ObjectMapper().readTree(res).get("items");
-
-                    if (items != null && items.size() > 0) {
-                        JsonNode item = items.get(0);
-                        String link = item.path("link").asText();
-
-                        if (StringUtils.isNotBlank(link)) {
-                            // Rate limiting
-                            Thread.sleep(500 + (int)(Math.random() * 400));
-
-                            Document doc = Jsoup.connect(link)
-                                    .userAgent("Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36")
-                                    .timeout(10000)
-                                    .get();
-
-                            String title = doc.title();
-                            String metaDescription = doc.selectFirst("meta[name=description]") != null
-                                    ? doc.selectFirst("meta[name=description]").attr("content")
-                                    : "";
-
-                            String h1 = doc.select("h1").stream()
-                                    .map(e -> e.text())
-                                    .findFirst()
-                                    .orElse("");
-
-                            String fullText = doc.body().text();
-
-                            // Limit text length to prevent excessive token usage
-                            if (fullText.length() > 2000) {
-                                fullText = fullText.substring(0, 2000) + "...";
-                            }
-
-                            HtmlAnalysisResult analysisResult = new HtmlAnalysisResult(title, metaDescription, h1, fullText);
-                            aggregatedTextBuilder.append(analysisResult.toString())
-                                    .append("\n\n----\n\n");
-
-                            successfulQueries.add(query);
-                            logger.debug("Successfully fetched content for query: {}", query);
-                        }
-                    } else {
-                        logger.warn("No items found for query '{}'", query);
-                        failedQueries.add(query);
-                    }
-
-                } catch (Exception e) {
-                    logger.error("Error processing query '{}': {}", query, e.getMessage());
-                    failedQueries.add(query);
-                }
-            }
-
-            String aggregatedText = aggregatedTextBuilder.toString();
-
-            // Prepare input for analysis
-            Content analysisInput;
-            if (aggregatedText.isBlank()) {
-                logger.info("No search content available. Using fallback analysis for queries: {}", queries);
-                analysisInput = Content.fromParts(Part.fromText(String.format("""
-                Assume the following queries were searched: %s
-                Provide a structured analysis even without page content.
-                Share without any affirmation, greeting or acknowledgement.
-                Use LLM knowledge to estimate:
-                - Main Concepts
-                - Trends
-                - Gaps
-                - Audience types
-                - Source patterns
-                """, String.join(", ", queries))));
-            } else {
-                analysisInput = Content.fromParts(Part.fromText(String.format("""
-                You are an expert summarizer. Summarize the following scraped content.
-                Share without any affirmation, greeting or acknowledgement.
-                Use LLM knowledge to estimate:
-                - Main Concepts
-                - Trends
-                - Gaps
-                - Audience types
-                - Source patterns
-                === Begin Content ===
-                %s
-                === End Content ===
-                """, aggregatedText)));
-            }
+            logger.info("Processing {} queries for session {} in {} mode", queries.size(), sessionId, mode);
 
-            ctx.session().state().put("input", analysisInput);
+            MapReduceSummarizer.Prepared prepared = prepareAnalysis(ctx, queries, mode);
 
-            analyseAgent.runAsync(ctx).blockingSubscribe();
+            long summarizeStart = System.nanoTime();
+            analyseAgent.runAsync(ctx).ignoreElements().blockingAwait();
+            prepared.timings().record(mode == SummaryMode.FULL ? "summarize" : "reduce", summarizeStart);
             Object analysisResult = ctx.session().state().get("analysisText");
 
             if (analysisResult == null) {
@@ -346,22 +224,108 @@ public class AmplifyController {
             String summary = analysisResult.toString();
             SessionStore.save(sessionId, ctx);
 
-            logger.info("Analysis completed for session {}. Successful queries: {}, Failed queries: {}",
-                    sessionId, successfulQueries.size(), failedQueries.size());
+            logger.info("Analysis completed for session {}. Successful queries: {}, Failed queries: {}, timings: {}",
+                    sessionId, prepared.processedQueries().size(), prepared.failedQueries().size(),
+                    prepared.timings());
 
             return ResponseEntity.ok(Map.of(
                     "summary", summary,
-                    "processedQueries", successfulQueries,
-                    "failedQueries", failedQueries,
+                    "processedQueries", prepared.processedQueries(),
+                    "failedQueries", prepared.failedQueries(),
+                    "reusedQueries", prepared.reusedQueries(),
+                    "timings", prepared.timings().asMap(),
                     "sessionInfo", SessionStore.getSessionInfo(sessionId)
             ));
 
+        } catch (UpstreamRejectedException e) {
+            return rejected(e);
         } catch (Exception e) {
             logger.error("Error during analysis for session {}: {}", sessionId, e.getMessage(), e);
             return ResponseEntity.internalServerError().body("Analysis failed: " + e.getMessage());
         }
     }
 
+    /**
+     * Streaming variant of {@link #summarize}. Sends a {@code fetched} event once scraping is done,
+     * a {@code chunk} event for every piece of summary text as the model produces it, and a
+     * final {@code done} event with the processed and failed queries.
+     */
+    @PostMapping(value = "/summarize/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> summarizeStream(@RequestBody Map<String, String> input) {
+        String sessionId = input.get("sessionId");
+
+        if (StringUtils.isBlank(sessionId)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "sessionId is required");
+        }
+
+        SummaryMode mode;
+        try {
+            mode = SummaryMode.of(input.get("mode"));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown mode: " + input.get("mode"));
+        }
+
+        geminiGuard.checkAdmission();
+
+        InvocationContext ctx = SessionStore.getOrCreate(
+                runner.sessionService(),
+                runner.artifactService(),
+                sessionId,
+                analyseAgent,
+                Content.fromParts(Part.fromText(""))
+        );
+
+        List<String> queries = resolveQueries(input, ctx);
+        if (queries == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No queries found in session or input. Please call /query first.");
+        }
+
+        if (queries.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No valid queries found");
+        }
+
+        logger.info("Streaming analysis of {} queries for session {} in {} mode", queries.size(), sessionId, mode);
+
+        SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT_MILLIS);
+        AtomicReference<MapReduceSummarizer.Prepared> preparedRef = new AtomicReference<>();
+        AtomicLong summarizeStart = new AtomicLong();
+
+        Flowable<Event> events = Flowable
+                .fromCallable(() -> prepareAnalysis(ctx, queries, mode))
+                .concatMap(prepared -> {
+                    preparedRef.set(prepared);
+                    sendEvent(emitter, "fetched", Map.of(
+                            "processedQueries", prepared.processedQueries(),
+                            "failedQueries", prepared.failedQueries(),
+                            "reusedQueries", prepared.reusedQueries(),
+                            "timings", prepared.timings().asMap()
+                    ));
+                    summarizeStart.set(System.nanoTime());
+                    return analyseAgent.runAsync(SessionStore.streaming(ctx));
+                });
+
+        streamToEmitter(emitter, events, ctx, "analysisText", analysis -> {
+            SessionStore.save(sessionId, ctx);
+            MapReduceSummarizer.Prepared prepared = preparedRef.get();
+            prepared.timings().record(mode == SummaryMode.FULL ? "summarize" : "reduce", summarizeStart.get());
+
+            logger.info("Streamed analysis completed for session {}. Successful queries: {}, Failed queries: {}, "
+                            + "timings: {}",
+                    sessionId, prepared.processedQueries().size(), prepared.failedQueries().size(),
+                    prepared.timings());
+
+            return Map.of(
+                    "processedQueries", prepared.processedQueries(),
+                    "failedQueries", prepared.failedQueries(),
+                    "reusedQueries", prepared.reusedQueries(),
+                    "timings", prepared.timings().asMap(),
+                    "sessionInfo", SessionStore.getSessionInfo(sessionId)
+            );
+        });
+
+        return ResponseEntity.ok(emitter);
+    }
+
     @PostMapping("/generate")
     public ResponseEntity<?> generate(@RequestBody Map<String, String> input) {
         String sessionId = input.get("sessionId");
@@ -372,6 +336,8 @@ public class AmplifyController {
         }
 
         try {
+            geminiGuard.checkAdmission();
+
             // Get the existing context to retrieve analysis
             InvocationContext ctx = SessionStore.getOrCreate(
                     runner.sessionService(),
@@ -386,73 +352,19 @@ public class AmplifyController {
                 return ResponseEntity.badRequest().body("No analysis found. Please call /summarize first.");
             }
 
-            // Create the content generation prompt based on content type
-            String contentPrompt;
-            if ("blog-post".equals(contentType)) {
-                contentPrompt = String.format("""
-                Based on the analysis provided below, generate a comprehensive blog post.
-                
-                Requirements:
-                - Create an engaging title
-                - Include proper headings and subheadings
-                - Make it informative and well-structured
-                - Include actionable insights
-                - Format as HTML for web display
-                - No greetings, acknowledgements, or affirmations
-                
-                Analysis:
-                %s
-                """, analysisText);
-            } else if ("social-media".equals(contentType)) {
-                contentPrompt = String.format("""
-                Based on the analysis provided below, generate engaging social media content.
-                
-                Requirements:
-                - Create multiple post variations (2-3 different posts)
-                - Include relevant hashtags
-                - Make it engaging and shareable
-                - Keep within social media character limits
-                - Format for direct posting
-                - No greetings, acknowledgements, or affirmations
-                
-                Analysis:
-                %s
-                """, analysisText);
-            } else {
-                contentPrompt = String.format("""
-                Based on the analysis provided below, generate high-quality marketing content.
-                
-                Requirements:
-                - Make it informative and actionable
-                - Structure it professionally
-                - Include key insights and recommendations
-                - Format as HTML for web display
-                - No greetings, acknowledgements, or affirmations
-                
-                Analysis:
-                %s
-                """, analysisText);
-            }
-
             // Set the complete prompt as input
-            ctx.session().state().put("input", contentPrompt);
+            ctx.session().state().put("input", PromptTemplates.contentPrompt(contentType, analysisText));
 
             // Run the content generation
             Flowable<Event> flow = contentAgent.runAsync(ctx);
-            flow.blockingSubscribe();
+            flow.ignoreElements().blockingAwait();
 
             Object content = ctx.session().state().get("generatedContent");
             if (content == null) {
                 return ResponseEntity.internalServerError().body("Content generation failed - no result generated");
             }
 
-            // Store the generated content in session for potential future use
-            ctx.session().state().put("lastGeneratedContent", content);
-            ctx.session().state().put("lastContentType", contentType);
-
-            SessionStore.save(sessionId, ctx);
-
-            logger.info("Content generated for session {} with type {}", sessionId, contentType);
+            storeGeneratedContent(sessionId, ctx, content, contentType);
 
             return ResponseEntity.ok(Map.of(
                     "generatedContent", content.toString(),
@@ -460,12 +372,362 @@ public class AmplifyController {
                     "sessionInfo", SessionStore.getSessionInfo(sessionId)
             ));
 
+        } catch (UpstreamRejectedException e) {
+            return rejected(e);
         } catch (Exception e) {
             logger.error("Error generating content for session {}: {}", sessionId, e.getMessage(), e);
             return ResponseEntity.internalServerError().body("Content generation failed: " + e.getMessage());
         }
     }
 
+    /**
+     * Streaming variant of {@link #generate}. Sends a {@code chunk} event for every piece of
+     * content as the model produces it and a final {@code done} event.
+     */
+    @PostMapping(value = "/generate/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> generateStream(@RequestBody Map<String, String> input) {
+        String sessionId = input.get("sessionId");
+        String contentType = input.get("contentType");
+
+        if (StringUtils.isBlank(sessionId) || StringUtils.isBlank(contentType)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "sessionId and contentType are required");
+        }
+
+        geminiGuard.checkAdmission();
+
+        InvocationContext ctx = SessionStore.getOrCreate(
+                runner.sessionService(),
+                runner.artifactService(),
+                sessionId,
+                contentAgent,
+                Content.fromParts(Part.fromText(""))
+        );
+
+        Object analysisText = ctx.session().state().get("analysisText");
+        if (analysisText == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No analysis found. Please call /summarize first.");
+        }
+
+        ctx.session().state().put("input", PromptTemplates.contentPrompt(contentType, analysisText));
+
+        SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT_MILLIS);
+        streamToEmitter(emitter, contentAgent.runAsync(SessionStore.streaming(ctx)), ctx, "generatedContent", content -> {
+            storeGeneratedContent(sessionId, ctx, content, contentType);
+            return Map.of(
+                    "contentType", contentType,
+                    "sessionInfo", SessionStore.getSessionInfo(sessionId)
+            );
+        });
+
+        return ResponseEntity.ok(emitter);
+    }
+
+    /**
+     * Query generation, summarization and (with a {@code contentType}) content generation in
+     * one call. Scraping for each query starts as soon as the model has produced it. Sends
+     * {@code query} and {@code fetched} events per query, {@code summary} and {@code content}
+     * events with the text as it is generated, and a final {@code done} event; the session
+     * ends up as if /query, /summarize and /generate had been called in turn.
+     */
+    @PostMapping(value = "/pipeline", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> pipeline(@RequestBody Map<String, String> input) {
+        String sessionId = input.get("sessionId");
+        String seed = input.get("seedTerm");
+        String contentType = StringUtils.trimToNull(input.get("contentType"));
+
+        if (StringUtils.isBlank(sessionId) || StringUtils.isBlank(seed)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "sessionId and seedTerm are required");
+        }
+
+        geminiGuard.checkAdmission();
+
+        InvocationContext ctx = SessionStore.getOrCreate(
+                runner.sessionService(),
+                runner.artifactService(),
+                sessionId,
+                queryAgent,
+                Content.fromParts(Part.fromText(seed))
+        );
+
+        logger.info("Running fused pipeline for session {} (contentType: {})", sessionId, contentType);
+
+        SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT_MILLIS);
+        Disposable subscription = fusedPipeline.run(ctx, seed, contentType)
+                .subscribeOn(Schedulers.io())
+                .subscribe(
+                        event -> {
+                            if (event.name().equals("done")) {
+                                SessionStore.save(sessionId, ctx);
+                                logger.info("Fused pipeline completed for session {}: {}", sessionId, event.data());
+                            }
+                            sendEvent(emitter, event.name(), event.data());
+                        },
+                        error -> {
+                            logger.error("Fused pipeline failed for session {}: {}", sessionId, error.getMessage(), error);
+                            sendEvent(emitter, "error", error.getMessage());
+                            emitter.complete();
+                        },
+                        emitter::complete
+                );
+
+        emitter.onTimeout(subscription::dispose);
+        emitter.onError(e -> subscription.dispose());
+        return ResponseEntity.ok(emitter);
+    }
+
+    /**
+     * Start the query → summarize → generate pipeline for a list of seed terms. Takes
+     * {@code seeds} (a list or a comma-separated string) and an optional {@code contentType};
+     * progress and results are polled from {@code GET /batch/{jobId}}. Responds 429 when too many
+     * batches are still running.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<?> submitBatch(@RequestBody Map<String, Object> input) {
+        Object seedsInput = input.get("seeds");
+        List<String> seeds;
+        if (seedsInput instanceof List<?> list) {
+            seeds = list.stream().map(String::valueOf).toList();
+        } else if (seedsInput instanceof String str) {
+            seeds = Arrays.asList(str.split(","));
+        } else {
+            return ResponseEntity.badRequest().body("seeds is required");
+        }
+
+        Object contentType = input.get("contentType");
+        try {
+            BatchJob job = batchService.submit(seeds, contentType == null ? null : contentType.toString());
+            return ResponseEntity.accepted().body(Map.of(
+                    "jobId", job.id(),
+                    "statusUrl", "/batch/" + job.id(),
+                    "status", job.toMap(false)
+            ));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (BatchService.TooManyBatchesException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, "30")
+                    .body(e.getMessage());
+        }
+    }
+
+    /**
+     * Progress of a batch; {@code ?results=false} leaves out the per-seed results.
+     */
+    @GetMapping("/batch/{jobId}")
+    public ResponseEntity<?> getBatch(@PathVariable String jobId,
+                                      @RequestParam(defaultValue = "true") boolean results) {
+        return batchService.get(jobId)
+                .<ResponseEntity<?>>map(job -> ResponseEntity.ok(job.toMap(results)))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).body("Unknown batch " + jobId));
+    }
+
+    /**
+     * Queue a pipeline run for {@code seedTerm}, or for the given {@code queries}, with an optional
+     * {@code contentType}. Responds 429 when the queue is full.
+     */
+    @PostMapping("/jobs")
+    public ResponseEntity<?> submitJob(@RequestBody Map<String, String> input) {
+        String seed = input.get("seedTerm");
+        List<String> queries = StringUtils.isBlank(input.get("queries"))
+                ? List.of()
+                : Arrays.stream(input.get("queries").split(",")).map(String::trim).filter(q -> !q.isEmpty()).toList();
+
+        if (StringUtils.isBlank(seed) && queries.isEmpty()) {
+            return ResponseEntity.badRequest().body("seedTerm or queries is required");
+        }
+
+        try {
+            PipelineJob job = jobQueue.enqueue(seed, queries, StringUtils.trimToNull(input.get("contentType")));
+            return ResponseEntity.accepted().body(Map.of(
+                    "jobId", job.id(),
+                    "statusUrl", "/jobs/" + job.id(),
+                    "eventsUrl", "/jobs/" + job.id() + "/events"
+            ));
+        } catch (JobQueue.QueueFullException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, "30")
+                    .body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<?> getJob(@PathVariable String jobId) {
+        return jobQueue.find(jobId)
+                .<ResponseEntity<?>>map(job -> ResponseEntity.ok(job.toMap()))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).body("Unknown job " + jobId));
+    }
+
+    /**
+     * Pushes a {@code job} event whenever the job's stage or status changes, ending with the
+     * finished job.
+     */
+    @GetMapping(value = "/jobs/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> jobEvents(@PathVariable String jobId) {
+        if (jobQueue.find(jobId).isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown job " + jobId);
+        }
+
+        SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT_MILLIS);
+        Disposable subscription = Flowable.interval(0, 1, TimeUnit.SECONDS, Schedulers.io())
+                .map(tick -> jobQueue.find(jobId))
+                .takeWhile(Optional::isPresent)
+                .map(Optional::get)
+                .distinctUntilChanged((a, b) -> a.status() == b.status() && a.stage() == b.stage())
+                .takeUntil(job -> job.status().isTerminal())
+                .subscribe(
+                        job -> sendEvent(emitter, "job", job.toMap()),
+                        error -> {
+                            logger.error("Job event stream failed: {}", error.getMessage(), error);
+                            sendEvent(emitter, "error", error.getMessage());
+                            emitter.complete();
+                        },
+                        emitter::complete
+                );
+
+        emitter.onTimeout(subscription::dispose);
+        emitter.onError(e -> subscription.dispose());
+        return ResponseEntity.ok(emitter);
+    }
+
+    /**
+     * Queries from the request if present, otherwise those stored by /query.
+     *
+     * @return the queries, or {@code null} if neither the request nor the session has any
+     */
+    @SuppressWarnings("unchecked")
+    private List<String> resolveQueries(Map<String, String> input, InvocationContext ctx) {
+        // Handle the case where relatedQueries might be stored as different types
+        if (input.containsKey("queries") && StringUtils.isNotBlank(input.get("queries"))) {
+            return Arrays.stream(input.get("queries").split(","))
+                    .map(String::trim)
+                    .filter(s -> !s.isEmpty())
+                    .toList();
+        }
+
+        Object storedQueries = ctx.session().state().get("relatedQueries");
+        if (storedQueries instanceof List) {
+            return (List<String>) storedQueries;
+        } else if (storedQueries instanceof String) {
+            return Arrays.stream(((String) storedQueries).split(","))
+                    .map(String::trim)
+                    .filter(s -> !s.isEmpty())
+                    .toList();
+        }
+        return null;
+    }
+
+    /**
+     * Run the query agent with streaming, and start fetching each query in the background as
+     * soon as it is complete in the output, so a following /summarize finds its pages ready.
+     */
+    private Flowable<Event> queriesWithPrefetch(InvocationContext ctx) {
+        QueryStreamParser parser = new QueryStreamParser();
+        TextDeltas deltas = new TextDeltas();
+        return queryAgent.runAsync(SessionStore.streaming(ctx))
+                .doOnNext(event -> parser.feed(deltas.delta(event)).forEach(fetchPipeline::prefetch))
+                .doOnComplete(() -> parser.finish(ctx.session().state().get("relatedQueries"))
+                        .forEach(fetchPipeline::prefetch));
+    }
+
+    /**
+     * Fetch the queries and bind the summarization prompt for {@code mode} as {@code input}.
+     */
+    private MapReduceSummarizer.Prepared prepareAnalysis(InvocationContext ctx, List<String> queries,
+                                                         SummaryMode mode) {
+        if (mode != SummaryMode.FULL) {
+            return mapReduceSummarizer.prepare(ctx, queries, mode == SummaryMode.INCREMENTAL);
+        }
+
+        StageTimings timings = new StageTimings();
+        List<QueryFetchResult> results = timings.time("fetch", () -> fetchPipeline.fetchAll(queries));
+        FetchedContent fetched = timings.time("pack", () -> FetchedContent.of(results, contextPacker));
+        bindAnalysisInput(ctx, queries, fetched);
+        return new MapReduceSummarizer.Prepared(
+                fetched.successfulQueries(), fetched.failedQueries(), List.of(), timings);
+    }
+
+    private void bindAnalysisInput(InvocationContext ctx, List<String> queries, FetchedContent fetched) {
+        if (fetched.aggregatedText().isBlank()) {
+            logger.info("No search content available. Using fallback analysis for queries: {}", queries);
+        }
+
+        Content analysisInput = Content.fromParts(Part.fromText(
+                PromptTemplates.analysisPrompt(queries, fetched.aggregatedText())));
+        ctx.session().state().put("input", analysisInput);
+    }
+
+    private void storeGeneratedContent(String sessionId, InvocationContext ctx, Object content, String contentType) {
+        // Store the generated content in session for potential future use
+        ctx.session().state().put("lastGeneratedContent", content);
+        ctx.session().state().put("lastContentType", contentType);
+
+        SessionStore.save(sessionId, ctx);
+
+        logger.info("Content generated for session {} with type {}", sessionId, contentType);
+    }
+
+    /**
+     * Forward the text of each agent event to the client as a {@code chunk} event. Once the agent
+     * completes, the output stored under {@code outputKey} is handed to {@code onDone} and its
+     * result is sent as the final {@code done} event.
+     */
+    private void streamToEmitter(SseEmitter emitter, Flowable<Event> events, InvocationContext ctx,
+                                 String outputKey, Function<Object, Map<String, Object>> onDone) {
+        AtomicBoolean sentChunk = new AtomicBoolean();
+
+        Disposable subscription = events
+                .subscribeOn(Schedulers.io())
+                .subscribe(
+                        event -> event.content().map(Content::text).ifPresent(text -> {
+                            // A non-partial event after partial ones repeats the full text
+                            if (event.partial().orElse(false) || !sentChunk.get()) {
+                                sentChunk.set(true);
+                                sendEvent(emitter, "chunk", text);
+                            }
+                        }),
+                        error -> {
+                            logger.error("Streaming failed: {}", error.getMessage(), error);
+                            sendEvent(emitter, "error", error.getMessage());
+                            emitter.complete();
+                        },
+                        () -> {
+                            Object output = ctx.session().state().get(outputKey);
+                            if (output == null) {
+                                sendEvent(emitter, "error", "No result generated");
+                            } else {
+                                if (!sentChunk.get()) {
+                                    sendEvent(emitter, "chunk", output.toString());
+                                }
+                                sendEvent(emitter, "done", onDone.apply(output));
+                            }
+                            emitter.complete();
+                        }
+                );
+
+        emitter.onTimeout(subscription::dispose);
+        emitter.onError(e -> subscription.dispose());
+    }
+
+    /**
+     * A Gemini or Custom Search call was shed by its concurrency limiter or circuit breaker.
+     */
+    @ExceptionHandler(UpstreamRejectedException.class)
+    public ResponseEntity<String> rejected(UpstreamRejectedException e) {
+        logger.warn("Rejecting request: {}", e.getMessage());
+        long retryAfterSeconds = Math.max(1, (e.retryAfter().toMillis() + 999) / 1000);
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body(e.getMessage());
+    }
+
+    private void sendEvent(SseEmitter emitter, String name, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data));
+        } catch (IOException | IllegalStateException e) {
+            logger.debug("Could not send '{}' event, client likely disconnected: {}", name, e.getMessage());
+        }
+    }
+
     // Additional utility endpoints for session management
 
     @GetMapping("/session/{sessionId}")
@@ -488,6 +750,30 @@ public class AmplifyController {
         ));
     }
 
+    @GetMapping("/sessions/stats")
+    public ResponseEntity<?> getSessionStats() {
+        return ResponseEntity.ok(SessionStore.getStats());
+    }
+
+    @GetMapping("/cache/stats")
+    public ResponseEntity<?> getCacheStats() {
+        return ResponseEntity.ok(Map.of(
+                "pages", pageCache.stats(),
+                "search", searchClient.stats(),
+                "llm", responseCache.stats(),
+                "prefetch", fetchPipeline.stats()
+        ));
+    }
+
+    @GetMapping("/http/stats")
+    public ResponseEntity<?> getHttpStats() {
+        return ResponseEntity.ok(Map.of(
+                "client", httpClient.stats(),
+                "scrapeScheduler", scrapeScheduler.stats(),
+                "upstreams", Map.of("gemini", geminiGuard.stats(), "search", searchGuard.stats())
+        ));
+    }
+
     @PostMapping("/sessions/cleanup")
     public ResponseEntity<?> forceCleanup() {
         int cleanedCount = SessionStore.cleanupExpiredSessions();
@@ -1,5 +1,14 @@
 package com.devpost.amplify.model;
 
+import com.devpost.amplify.model.snapshot.SessionSnapshot;
+import com.devpost.amplify.model.snapshot.SessionSnapshotStore;
+import com.devpost.amplify.service.metrics.PipelineMetrics;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import com.google.adk.agents.BaseAgent;
 import com.google.adk.agents.InvocationContext;
 import com.google.adk.agents.RunConfig;
@@ -11,22 +20,42 @@ import lombok.Getter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
+import java.util.Collection;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Optional;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class SessionStore {
     private static final Logger logger = LoggerFactory.getLogger(SessionStore.class);
-    private static final String USER = "user";
-    private static final String APP = "Amplify";
-    private static final long SESSION_TIMEOUT_MINUTES = 5;
+    public static final String USER = "user";
+    public static final String APP = "Amplify";
+    private static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(5);
+    private static final long DEFAULT_MAX_ENTRIES = 10_000;
+    private static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
 
-    // Store for session contexts
-    private static final Map<String, SessionEntry> store = new ConcurrentHashMap<>();
+    // Fixed per-session overhead on top of the state values (context, session, maps)
+    private static final long BASE_ENTRY_BYTES = 1024;
+
+    // Sessions expire after this long without being accessed
+    private static volatile Duration idleTimeout = DEFAULT_IDLE_TIMEOUT;
+
+    // Off-heap copies of the sessions, written on save and reloaded on a cache miss
+    private static volatile SessionSnapshotStore snapshots = SessionSnapshotStore.NONE;
+
+    // Sessions expired since the last cleanup tick
+    private static final AtomicInteger expiredSinceCleanup = new AtomicInteger();
+
+    // Bumped by configure(); listeners of a replaced store ignore its removals
+    private static volatile int generation;
+
+    // Store for session contexts, bounded by entry count and estimated size
+    private static volatile Cache<String, SessionEntry> store =
+            newStore(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_BYTES, DEFAULT_IDLE_TIMEOUT, 0);
 
     // Scheduled executor for cleanup tasks
     private static final ScheduledExecutorService cleanupExecutor =
@@ -79,9 +108,131 @@ public class SessionStore {
         }
 
         public boolean isExpired() {
-            return ChronoUnit.MINUTES.between(createdAt, LocalDateTime.now()) >= SESSION_TIMEOUT_MINUTES;
+            return Duration.between(lastAccessedAt, LocalDateTime.now()).compareTo(idleTimeout) >= 0;
+        }
+
+        /**
+         * Rough heap footprint of the session, dominated by scraped text, analysis HTML
+         * and generated content held in the session state.
+         */
+        public long estimateBytes() {
+            long bytes = BASE_ENTRY_BYTES;
+            if (context.session() != null && context.session().state() != null) {
+                for (Map.Entry<String, Object> e : context.session().state().entrySet()) {
+                    bytes += estimateBytes(e.getKey()) + estimateBytes(e.getValue());
+                }
+            }
+            return bytes;
         }
 
+        private static long estimateBytes(Object value) {
+            if (value instanceof CharSequence text) {
+                return 40 + 2L * text.length();
+            } else if (value instanceof Content content) {
+                String text = content.text();
+                return 64 + (text != null ? 2L * text.length() : 0);
+            } else if (value instanceof Collection<?> values) {
+                long bytes = 32;
+                for (Object v : values) {
+                    bytes += estimateBytes(v);
+                }
+                return bytes;
+            }
+            return 16;
+        }
+    }
+
+    /**
+     * Build the backing cache. Caffeine can bound either the entry count or the total weight,
+     * so each entry weighs at least {@code maxBytes / maxEntries}: the byte bound then also
+     * caps the number of entries.
+     * <p>
+     * Idle expiry is tracked in Caffeine's hierarchical timer wheel, so expiring sessions
+     * costs O(expired) per tick rather than a sweep over every session.
+     * <p>
+     * A session evicted for size may still be in use by a running request, so its state is
+     * left alone for the garbage collector; only expired and removed sessions are cleared.
+     */
+    private static Cache<String, SessionEntry> newStore(long maxEntries, long maxBytes, Duration idleTimeout,
+                                                        int storeGeneration) {
+        long minEntryWeight = Math.max(1, maxBytes / maxEntries);
+        long idleNanos = idleTimeout.toNanos();
+        return Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String sessionId, SessionEntry entry) ->
+                        (int) Math.min(Integer.MAX_VALUE, Math.max(minEntryWeight, entry.estimateBytes())))
+                .expireAfter(new Expiry<String, SessionEntry>() {
+                    @Override
+                    public long expireAfterCreate(String sessionId, SessionEntry entry, long currentTime) {
+                        return idleNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String sessionId, SessionEntry entry,
+                                                  long currentTime, long currentDuration) {
+                        return idleNanos;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String sessionId, SessionEntry entry,
+                                                long currentTime, long currentDuration) {
+                        return idleNanos;
+                    }
+                })
+                .scheduler(Scheduler.systemScheduler())
+                .evictionListener((String sessionId, SessionEntry entry, RemovalCause cause) -> {
+                    if (cause == RemovalCause.EXPIRED && storeGeneration == generation) {
+                        expiredSinceCleanup.incrementAndGet();
+                        deleteSnapshot(sessionId);
+                    }
+                })
+                .removalListener((String sessionId, SessionEntry entry, RemovalCause cause) -> {
+                    // save() re-inserts the same entry to refresh its weight
+                    if (cause == RemovalCause.REPLACED || sessionId == null || entry == null
+                            || storeGeneration != generation) {
+                        return;
+                    }
+                    if (cause == RemovalCause.SIZE) {
+                        if (snapshots == SessionSnapshotStore.NONE) {
+                            logger.info("Session {} evicted to stay within size bounds", sessionId);
+                        } else {
+                            // The snapshot written on the last save keeps the session reloadable
+                            logger.info("Session {} paged out to stay within size bounds", sessionId);
+                        }
+                        return;
+                    }
+                    if (cause == RemovalCause.EXPIRED) {
+                        logger.info("Session {} expired after {} idle", sessionId, idleTimeout);
+                    }
+                    cleanupSession(sessionId, entry);
+                })
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Apply the configured bounds and idle timeout. Existing sessions are carried over to the new
+     * store, and the old one is emptied so its pending expirations don't fire for them.
+     */
+    public static synchronized void configure(long maxEntries, long maxBytes, Duration idleTimeout) {
+        SessionStore.idleTimeout = idleTimeout;
+        Cache<String, SessionEntry> previous = store;
+        generation++;
+        Cache<String, SessionEntry> next = newStore(maxEntries, maxBytes, idleTimeout, generation);
+        next.putAll(previous.asMap());
+        store = next;
+        previous.invalidateAll();
+        previous.cleanUp();
+        logger.info("SessionStore bounded to {} sessions / {} bytes, idle timeout {}",
+                maxEntries, maxBytes, idleTimeout);
+    }
+
+    /**
+     * Use the given backend to persist sessions. Saved sessions are reloaded from it when
+     * they are no longer in memory, e.g. after a restart or after being paged out.
+     */
+    public static void useSnapshotStore(SessionSnapshotStore snapshotStore) {
+        snapshots = snapshotStore;
     }
 
     public static InvocationContext getOrCreate(
@@ -91,20 +242,28 @@ public class SessionStore {
             BaseAgent agent,
             Content input
     ) {
-        SessionEntry entry = store.get(sessionId);
-
-        if (entry != null) {
-            if (entry.isExpired()) {
-                logger.info("Session {} expired, removing and creating new one", sessionId);
-                cleanupSession(sessionId, entry);
-                entry = null;
-            } else {
-                logger.debug("Reusing existing session {}", sessionId);
-                return entry.getContext();
-            }
+        long start = System.nanoTime();
+        try {
+            return lookupOrCreate(sessionService, artifactService, sessionId, agent, input);
+        } finally {
+            PipelineMetrics.SESSION_LOOKUP.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
         }
+    }
 
-        if (entry == null) {
+    private static InvocationContext lookupOrCreate(
+            BaseSessionService sessionService,
+            BaseArtifactService artifactService,
+            String sessionId,
+            BaseAgent agent,
+            Content input
+    ) {
+        // Expired sessions are never returned, reading resets the idle timer
+        SessionEntry entry = store.getIfPresent(sessionId);
+
+        if (entry != null) {
+            logger.debug("Reusing existing session {}", sessionId);
+            return entry.getContext();
+        } else {
             logger.info("Creating new session {}", sessionId);
             try {
                 Session session = sessionService.createSession(APP, USER).blockingGet();
@@ -118,11 +277,16 @@ public class SessionStore {
                         RunConfig.builder().build()
                 );
 
+                restoreSnapshot(sessionId).ifPresent(snapshot -> {
+                    session.state().putAll(snapshot.state());
+                    logger.info("Session {} restored from snapshot saved at {}", sessionId, snapshot.savedAt());
+                });
+
                 entry = new SessionEntry(context);
                 store.put(sessionId, entry);
 
                 logger.info("Session {} created successfully. Total active sessions: {}",
-                        sessionId, store.size());
+                        sessionId, store.estimatedSize());
 
                 return entry.getContext();
             } catch (Exception e) {
@@ -130,15 +294,32 @@ public class SessionStore {
                 throw new RuntimeException("Failed to create session", e);
             }
         }
+    }
 
-        return entry.getContext();
+    /**
+     * Copy of the given context that shares its session but asks the model to
+     * stream partial responses (SSE) instead of a single final response.
+     */
+    public static InvocationContext streaming(InvocationContext ctx) {
+        return InvocationContext.create(
+                ctx.sessionService(),
+                ctx.artifactService(),
+                USER,
+                ctx.agent(),
+                ctx.session(),
+                ctx.userContent().orElse(null),
+                RunConfig.builder().setStreamingMode(RunConfig.StreamingMode.SSE).build()
+        );
     }
 
     public static void save(String sessionId, InvocationContext ctx) {
-        SessionEntry entry = store.get(sessionId);
-        if (entry != null && !entry.isExpired()) {
+        SessionEntry entry = store.asMap().get(sessionId);
+        if (entry != null) {
             // Update last accessed time
             entry.getContext();
+            // Re-insert so the size estimate reflects the updated state and the idle timer restarts
+            store.put(sessionId, entry);
+            saveSnapshot(sessionId, ctx);
             logger.debug("Session {} saved/updated", sessionId);
         } else {
             logger.warn("Attempted to save expired or non-existent session {}", sessionId);
@@ -146,11 +327,11 @@ public class SessionStore {
     }
 
     public static void remove(String sessionId) {
-        SessionEntry entry = store.remove(sessionId);
+        SessionEntry entry = store.asMap().remove(sessionId);
+        deleteSnapshot(sessionId);
         if (entry != null) {
-            cleanupSession(sessionId, entry);
             logger.info("Session {} manually removed. Total active sessions: {}",
-                    sessionId, store.size());
+                    sessionId, store.estimatedSize());
         }
     }
 
@@ -158,7 +339,8 @@ public class SessionStore {
      * Get session info for debugging
      */
     public static Map<String, Object> getSessionInfo(String sessionId) {
-        SessionEntry entry = store.get(sessionId);
+        // Looking at a session must not extend its lifetime
+        SessionEntry entry = store.policy().getIfPresentQuietly(sessionId);
         if (entry == null) {
             return Map.of("exists", false);
         }
@@ -176,34 +358,81 @@ public class SessionStore {
      * Get all active sessions count
      */
     public static int getActiveSessionCount() {
-        return store.size();
+        return (int) store.estimatedSize();
     }
 
     /**
-     * Manual cleanup trigger for testing
+     * Hit rate, eviction and size metrics of the store
+     */
+    public static Map<String, Object> getStats() {
+        Cache<String, SessionEntry> current = store;
+        CacheStats stats = current.stats();
+        long estimatedBytes = current.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(0L);
+
+        return Map.of(
+                "activeSessions", current.estimatedSize(),
+                "estimatedBytes", estimatedBytes,
+                "hitCount", stats.hitCount(),
+                "missCount", stats.missCount(),
+                "hitRate", stats.hitRate(),
+                "evictionCount", stats.evictionCount(),
+                "evictedBytes", stats.evictionWeight()
+        );
+    }
+
+    /**
+     * Manual cleanup trigger for testing. Expiry is driven by the timer wheel, this only
+     * flushes pending expirations and reports how many sessions expired since the last call.
      */
     public static int cleanupExpiredSessions() {
-        int cleanedCount = 0;
-
-        for (Map.Entry<String, SessionEntry> entry : store.entrySet()) {
-            if (entry.getValue().isExpired()) {
-                String sessionId = entry.getKey();
-                SessionEntry sessionEntry = store.remove(sessionId);
-                if (sessionEntry != null) {
-                    cleanupSession(sessionId, sessionEntry);
-                    cleanedCount++;
-                }
-            }
-        }
+        store.cleanUp();
+        int cleanedCount = expiredSinceCleanup.getAndSet(0);
 
         if (cleanedCount > 0) {
             logger.info("Cleaned up {} expired sessions. Active sessions remaining: {}",
-                    cleanedCount, store.size());
+                    cleanedCount, store.estimatedSize());
         }
 
         return cleanedCount;
     }
 
+    private static void saveSnapshot(String sessionId, InvocationContext ctx) {
+        try {
+            snapshots.save(new SessionSnapshot(sessionId, System.currentTimeMillis(), ctx.session().state()));
+        } catch (Exception e) {
+            logger.warn("Failed to snapshot session {}: {}", sessionId, e.getMessage());
+        }
+    }
+
+    /**
+     * Load a snapshot unless it has been idle for longer than the timeout.
+     */
+    private static Optional<SessionSnapshot> restoreSnapshot(String sessionId) {
+        try {
+            Optional<SessionSnapshot> snapshot = snapshots.load(sessionId);
+            if (snapshot.isPresent()
+                    && System.currentTimeMillis() - snapshot.get().savedAt() >= idleTimeout.toMillis()) {
+                logger.info("Snapshot of session {} is older than the idle timeout, discarding", sessionId);
+                snapshots.delete(sessionId);
+                return Optional.empty();
+            }
+            return snapshot;
+        } catch (Exception e) {
+            logger.warn("Failed to restore session {}: {}", sessionId, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private static void deleteSnapshot(String sessionId) {
+        try {
+            snapshots.delete(sessionId);
+        } catch (Exception e) {
+            logger.warn("Failed to delete snapshot of session {}: {}", sessionId, e.getMessage());
+        }
+    }
+
     /**
      * Cleanup individual session resources
      */
@@ -230,9 +459,9 @@ public class SessionStore {
      * Force cleanup all sessions (for testing or shutdown)
      */
     public static void clearAllSessions() {
-        int count = store.size();
-        store.forEach((sessionId, entry) -> cleanupSession(sessionId, entry));
-        store.clear();
+        long count = store.estimatedSize();
+        // The removal listener cleans up each session
+        store.invalidateAll();
         logger.info("Cleared all {} sessions", count);
     }
-}
\ No newline at end of file
+}
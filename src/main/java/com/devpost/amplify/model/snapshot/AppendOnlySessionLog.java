@@ -0,0 +1,220 @@
+package com.devpost.amplify.model.snapshot;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Snapshot store backed by a local append-only log file.
+ * <p>
+ * Every save appends a record {@code length:i32 kind:u8 payload}; deletes append a tombstone.
+ * An in-memory index maps each session id to the offset of its latest snapshot, so loads
+ * are a single positional read. The log is replayed on startup (and truncated at the first
+ * torn or undecodable record) and rewritten with only live records once it is mostly garbage.
+ * <p>
+ * Writes are not fsync'd: snapshots survive a process restart or redeploy, which is what
+ * they are for, but not necessarily a host crash.
+ */
+public class AppendOnlySessionLog implements SessionSnapshotStore {
+    private static final Logger logger = LoggerFactory.getLogger(AppendOnlySessionLog.class);
+
+    private static final byte KIND_SNAPSHOT = 1;
+    private static final byte KIND_TOMBSTONE = 2;
+    private static final int HEADER_BYTES = Integer.BYTES + 1;
+    private static final long COMPACTION_MIN_BYTES = 16L * 1024 * 1024;
+
+    private record Location(long offset, int length) {
+    }
+
+    private final Path path;
+    private final Map<String, Location> index = new HashMap<>();
+    private FileChannel channel;
+    private long writePosition;
+    private long liveBytes;
+
+    public AppendOnlySessionLog(Path path) throws IOException {
+        this.path = path.toAbsolutePath();
+        Files.createDirectories(this.path.getParent());
+        this.channel = open(this.path);
+        replay();
+        logger.info("Session log {} opened with {} sessions ({} bytes)", this.path, index.size(), writePosition);
+    }
+
+    @Override
+    public synchronized void save(SessionSnapshot snapshot) throws IOException {
+        byte[] payload = SessionSnapshotCodec.encode(snapshot);
+        long payloadOffset = append(KIND_SNAPSHOT, payload);
+        track(snapshot.sessionId(), new Location(payloadOffset, payload.length));
+        compactIfNeeded();
+    }
+
+    @Override
+    public synchronized Optional<SessionSnapshot> load(String sessionId) throws IOException {
+        Location location = index.get(sessionId);
+        if (location == null) {
+            return Optional.empty();
+        }
+        return Optional.of(SessionSnapshotCodec.decode(read(location)));
+    }
+
+    @Override
+    public synchronized void delete(String sessionId) throws IOException {
+        if (index.containsKey(sessionId)) {
+            append(KIND_TOMBSTONE, sessionId.getBytes(StandardCharsets.UTF_8));
+            track(sessionId, null);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.force(true);
+        channel.close();
+    }
+
+    private static FileChannel open(Path path) throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    private void replay() throws IOException {
+        long size = channel.size();
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+
+        while (position + HEADER_BYTES <= size) {
+            header.clear();
+            readFully(header, position);
+            header.flip();
+            int length = header.getInt();
+            byte kind = header.get();
+
+            long payloadOffset = position + HEADER_BYTES;
+            if (length < 0 || payloadOffset + length > size) {
+                break;
+            }
+
+            byte[] payload = read(new Location(payloadOffset, length));
+            if (kind == KIND_SNAPSHOT) {
+                String sessionId;
+                try {
+                    sessionId = SessionSnapshotCodec.decodeSessionId(payload);
+                } catch (IOException | RuntimeException e) {
+                    logger.warn("Corrupt snapshot record at offset {} in {}: {}", position, path, e.getMessage());
+                    break;
+                }
+                track(sessionId, new Location(payloadOffset, length));
+            } else if (kind == KIND_TOMBSTONE) {
+                track(new String(payload, StandardCharsets.UTF_8), null);
+            } else {
+                logger.warn("Unknown record kind {} at offset {} in {}", kind, position, path);
+                break;
+            }
+            position = payloadOffset + length;
+        }
+
+        if (position < size) {
+            logger.warn("Truncating {} bytes of incomplete or corrupt records from {}", size - position, path);
+            channel.truncate(position);
+        }
+        writePosition = position;
+    }
+
+    private long append(byte kind, byte[] payload) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + payload.length);
+        record.putInt(payload.length).put(kind).put(payload).flip();
+
+        long recordOffset = writePosition;
+        while (record.hasRemaining()) {
+            writePosition += channel.write(record, writePosition);
+        }
+        return recordOffset + HEADER_BYTES;
+    }
+
+    private void track(String sessionId, Location location) {
+        Location previous = location == null ? index.remove(sessionId) : index.put(sessionId, location);
+        if (previous != null) {
+            liveBytes -= HEADER_BYTES + previous.length();
+        }
+        if (location != null) {
+            liveBytes += HEADER_BYTES + location.length();
+        }
+    }
+
+    private byte[] read(Location location) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(location.length());
+        readFully(buffer, location.offset());
+        return buffer.array();
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("Unexpected end of session log " + path);
+            }
+        }
+    }
+
+    /**
+     * Rewrite the log with only the latest snapshot of each live session once
+     * more than half of it is superseded records and tombstones.
+     */
+    private void compactIfNeeded() throws IOException {
+        if (writePosition < COMPACTION_MIN_BYTES || liveBytes * 2 > writePosition) {
+            return;
+        }
+
+        long before = writePosition;
+        Path compacted = path.resolveSibling(path.getFileName() + ".compact");
+        Map<String, Location> relocated = new HashMap<>(index.size() * 2);
+        long compactedBytes = 0;
+
+        try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            long position = 0;
+            for (Map.Entry<String, Location> entry : index.entrySet()) {
+                byte[] payload = read(entry.getValue());
+                ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + payload.length);
+                record.putInt(payload.length).put(KIND_SNAPSHOT).put(payload).flip();
+
+                relocated.put(entry.getKey(), new Location(position + HEADER_BYTES, payload.length));
+                while (record.hasRemaining()) {
+                    position += out.write(record, position);
+                }
+            }
+            out.force(true);
+            compactedBytes = position;
+        } catch (IOException e) {
+            Files.deleteIfExists(compacted);
+            throw e;
+        }
+
+        // The index and write position still describe the original file until the
+        // compacted one is in place and open
+        channel.close();
+        try {
+            Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            channel = open(path);
+            Files.deleteIfExists(compacted);
+            throw e;
+        }
+        channel = open(path);
+        writePosition = compactedBytes;
+        index.clear();
+        index.putAll(relocated);
+        liveBytes = compactedBytes;
+
+        logger.info("Compacted session log {} from {} to {} bytes", path, before, writePosition);
+    }
+}
@@ -0,0 +1,52 @@
+package com.devpost.amplify.model.snapshot;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Snapshot store backed by the application's H2 database. Point
+ * {@code spring.datasource.url} at a file database (e.g. {@code jdbc:h2:file:./data/amplify})
+ * for snapshots to survive restarts.
+ */
+public class H2SessionSnapshotStore implements SessionSnapshotStore {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public H2SessionSnapshotStore(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        jdbcTemplate.execute("""
+                CREATE TABLE IF NOT EXISTS session_snapshot (
+                    session_id VARCHAR(255) PRIMARY KEY,
+                    saved_at   BIGINT NOT NULL,
+                    data       BLOB NOT NULL
+                )
+                """);
+    }
+
+    @Override
+    public void save(SessionSnapshot snapshot) {
+        jdbcTemplate.update(
+                "MERGE INTO session_snapshot (session_id, saved_at, data) KEY (session_id) VALUES (?, ?, ?)",
+                snapshot.sessionId(), snapshot.savedAt(), SessionSnapshotCodec.encode(snapshot));
+    }
+
+    @Override
+    public Optional<SessionSnapshot> load(String sessionId) throws IOException {
+        List<byte[]> rows = jdbcTemplate.query(
+                "SELECT data FROM session_snapshot WHERE session_id = ?",
+                (rs, rowNum) -> rs.getBytes("data"),
+                sessionId);
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(SessionSnapshotCodec.decode(rows.getFirst()));
+    }
+
+    @Override
+    public void delete(String sessionId) {
+        jdbcTemplate.update("DELETE FROM session_snapshot WHERE session_id = ?", sessionId);
+    }
+}
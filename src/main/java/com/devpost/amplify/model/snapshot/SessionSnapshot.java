@@ -0,0 +1,13 @@
+package com.devpost.amplify.model.snapshot;
+
+import java.util.Map;
+
+/**
+ * Persisted copy of a session's state.
+ *
+ * @param sessionId   client facing session id
+ * @param savedAt     epoch millis of the save, used to drop snapshots older than the idle timeout
+ * @param state       persistable state values ({@link String} or list of strings)
+ */
+public record SessionSnapshot(String sessionId, long savedAt, Map<String, Object> state) {
+}
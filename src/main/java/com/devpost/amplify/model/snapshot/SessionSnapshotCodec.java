@@ -0,0 +1,173 @@
+package com.devpost.amplify.model.snapshot;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compact binary encoding of {@link SessionSnapshot}s.
+ * <pre>
+ * snapshot := version:u8 sessionId:str savedAt:i64 count:varint (key:str value)*
+ * value    := 0x01 str | 0x02 count:varint str*
+ * str      := length:varint utf8-bytes
+ * </pre>
+ * Only strings and lists of strings are persisted; other values such as the prompt
+ * {@code Content} bound as {@code input} are transient.
+ */
+public final class SessionSnapshotCodec {
+    private static final byte FORMAT_VERSION = 1;
+    private static final byte TYPE_STRING = 1;
+    private static final byte TYPE_STRING_LIST = 2;
+
+    // Rebuilt on every request, never worth persisting
+    private static final Set<String> TRANSIENT_KEYS = Set.of("input");
+
+    private SessionSnapshotCodec() {
+    }
+
+    /**
+     * Whether a state value can be represented in a snapshot.
+     */
+    public static boolean isPersistable(String key, Object value) {
+        if (TRANSIENT_KEYS.contains(key)) {
+            return false;
+        }
+        if (value instanceof String) {
+            return true;
+        }
+        if (value instanceof List<?> list) {
+            for (Object item : list) {
+                if (!(item instanceof String)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    public static byte[] encode(SessionSnapshot snapshot) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+            DataOutputStream out = new DataOutputStream(bytes);
+
+            out.writeByte(FORMAT_VERSION);
+            writeString(out, snapshot.sessionId());
+            out.writeLong(snapshot.savedAt());
+
+            Map<String, Object> state = new LinkedHashMap<>();
+            snapshot.state().forEach((key, value) -> {
+                if (isPersistable(key, value)) {
+                    state.put(key, value);
+                }
+            });
+
+            writeVarInt(out, state.size());
+            for (Map.Entry<String, Object> entry : state.entrySet()) {
+                writeString(out, entry.getKey());
+                if (entry.getValue() instanceof String str) {
+                    out.writeByte(TYPE_STRING);
+                    writeString(out, str);
+                } else {
+                    List<?> list = (List<?>) entry.getValue();
+                    out.writeByte(TYPE_STRING_LIST);
+                    writeVarInt(out, list.size());
+                    for (Object item : list) {
+                        writeString(out, (String) item);
+                    }
+                }
+            }
+
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            // ByteArrayOutputStream does not throw
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static SessionSnapshot decode(byte[] data) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        checkVersion(in);
+
+        String sessionId = readString(in);
+        long savedAt = in.readLong();
+
+        int count = readVarInt(in);
+        Map<String, Object> state = new LinkedHashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            String key = readString(in);
+            byte type = in.readByte();
+            switch (type) {
+                case TYPE_STRING -> state.put(key, readString(in));
+                case TYPE_STRING_LIST -> {
+                    int size = readVarInt(in);
+                    List<String> list = new ArrayList<>(size);
+                    for (int j = 0; j < size; j++) {
+                        list.add(readString(in));
+                    }
+                    state.put(key, list);
+                }
+                default -> throw new IOException("Unknown value type " + type + " for key " + key);
+            }
+        }
+
+        return new SessionSnapshot(sessionId, savedAt, state);
+    }
+
+    /**
+     * Read only the session id of an encoded snapshot.
+     */
+    public static String decodeSessionId(byte[] data) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        checkVersion(in);
+        return readString(in);
+    }
+
+    private static void checkVersion(DataInputStream in) throws IOException {
+        byte version = in.readByte();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported snapshot format version " + version);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, utf8.length);
+        out.write(utf8);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] utf8 = new byte[readVarInt(in)];
+        in.readFully(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+}
@@ -0,0 +1,38 @@
+package com.devpost.amplify.model.snapshot;
+
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * Backend that keeps session snapshots outside the heap so sessions survive restarts
+ * and can be paged out of memory.
+ */
+public interface SessionSnapshotStore extends AutoCloseable {
+
+    /** Store that persists nothing */
+    SessionSnapshotStore NONE = new SessionSnapshotStore() {
+        @Override
+        public void save(SessionSnapshot snapshot) {
+        }
+
+        @Override
+        public Optional<SessionSnapshot> load(String sessionId) {
+            return Optional.empty();
+        }
+
+        @Override
+        public void delete(String sessionId) {
+        }
+    };
+
+    /** Write or replace the snapshot of a session */
+    void save(SessionSnapshot snapshot) throws IOException;
+
+    Optional<SessionSnapshot> load(String sessionId) throws IOException;
+
+    void delete(String sessionId) throws IOException;
+
+    @Override
+    default void close() throws IOException {
+    }
+}
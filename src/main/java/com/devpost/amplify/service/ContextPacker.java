@@ -0,0 +1,321 @@
+package com.devpost.amplify.service;
+
+import com.devpost.amplify.model.HtmlAnalysisResult;
+import com.devpost.amplify.service.fetch.QueryFetchResult;
+import com.devpost.amplify.service.llm.TokenEstimator;
+import com.devpost.amplify.service.metrics.PipelineMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Builds the scraped-content section of the summarization prompt within a token budget.
+ * <p>
+ * Every page contributes a short header (title, description, heading). Page text is split
+ * into passages of at most {@code max-passage-tokens}, near-duplicate passages across pages
+ * are dropped by word-shingle overlap, and the rest are ranked by BM25 against the query
+ * terms and added best-first until the budget is used. Selected passages are rendered in
+ * their original page order.
+ */
+@Component
+public class ContextPacker {
+    private static final Logger logger = LoggerFactory.getLogger(ContextPacker.class);
+
+    private static final Pattern SENTENCE_END = Pattern.compile("(?<=[.!?])\\s+");
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+    private static final Set<String> STOPWORDS = Set.of(
+            "the", "and", "for", "with", "from", "that", "this", "what", "how", "why", "are", "was",
+            "you", "your", "about", "into", "best", "top", "vs", "can", "does", "which", "who", "when"
+    );
+    private static final int SHINGLE_SIZE = 3;
+    private static final int MAX_DESCRIPTION_CHARS = 300;
+    private static final double BM25_K1 = 1.2;
+    private static final double BM25_B = 0.75;
+
+    private final int tokenBudget;
+    private final int maxPassageTokens;
+    private final double duplicateThreshold;
+
+    public ContextPacker(
+            @Value("${amplify.context.token-budget:6000}") int tokenBudget,
+            @Value("${amplify.context.max-passage-tokens:160}") int maxPassageTokens,
+            @Value("${amplify.context.duplicate-threshold:0.8}") double duplicateThreshold
+    ) {
+        this.tokenBudget = tokenBudget;
+        this.maxPassageTokens = maxPassageTokens;
+        this.duplicateThreshold = duplicateThreshold;
+    }
+
+    private record Page(int index, String query, HtmlAnalysisResult analysis, String header) {
+    }
+
+    private static final class Passage {
+        private final Page page;
+        private final int ordinal;
+        private final String text;
+        private final int tokens;
+        private final List<String> words;
+        private double score;
+
+        private Passage(Page page, int ordinal, String text) {
+            this.page = page;
+            this.ordinal = ordinal;
+            this.text = text;
+            this.tokens = TokenEstimator.estimate(text);
+            this.words = words(text);
+        }
+    }
+
+    /**
+     * Pack the successful results into prompt text, or return an empty string when there are none.
+     */
+    public String pack(List<QueryFetchResult> results) {
+        return pack(results, tokenBudget);
+    }
+
+    /**
+     * Same as {@link #pack(List)} with an explicit token budget.
+     */
+    public String pack(List<QueryFetchResult> results, int tokenBudget) {
+        return PipelineMetrics.PROMPT_BUILD.record(() -> packWithin(results, tokenBudget));
+    }
+
+    private String packWithin(List<QueryFetchResult> results, int tokenBudget) {
+        List<Page> pages = new ArrayList<>();
+        Set<String> queryTerms = new LinkedHashSet<>();
+        for (QueryFetchResult result : results) {
+            for (String word : words(result.query())) {
+                if (word.length() > 2 && !STOPWORDS.contains(word)) {
+                    queryTerms.add(word);
+                }
+            }
+            if (result.status() == QueryFetchResult.Status.SUCCESS) {
+                pages.add(new Page(pages.size(), result.query(), result.analysis(), header(pages.size() + 1, result)));
+            }
+        }
+        if (pages.isEmpty()) {
+            return "";
+        }
+
+        int remaining = tokenBudget;
+        for (Page page : pages) {
+            remaining -= TokenEstimator.estimate(page.header());
+        }
+
+        List<Passage> candidates = new ArrayList<>();
+        int total = 0;
+        List<Set<Integer>> keptShingles = new ArrayList<>();
+        for (Page page : pages) {
+            int ordinal = 0;
+            for (String text : passages(page.analysis().getFullText())) {
+                total++;
+                Passage passage = new Passage(page, ordinal++, text);
+                Set<Integer> shingles = shingles(passage.words);
+                if (isDuplicate(shingles, keptShingles)) {
+                    continue;
+                }
+                keptShingles.add(shingles);
+                candidates.add(passage);
+            }
+        }
+
+        score(candidates, queryTerms);
+        candidates.sort(Comparator.comparingDouble((Passage p) -> p.score).reversed());
+
+        List<Passage> selected = new ArrayList<>();
+        int used = 0;
+        for (Passage passage : candidates) {
+            if (passage.tokens <= remaining) {
+                selected.add(passage);
+                remaining -= passage.tokens;
+                used += passage.tokens;
+            }
+        }
+        selected.sort(Comparator.comparingInt((Passage p) -> p.page.index()).thenComparingInt(p -> p.ordinal));
+
+        StringBuilder packed = new StringBuilder();
+        int passageIndex = 0;
+        for (Page page : pages) {
+            packed.append(page.header());
+            while (passageIndex < selected.size() && selected.get(passageIndex).page == page) {
+                packed.append(selected.get(passageIndex++).text).append('\n');
+            }
+            packed.append("\n----\n\n");
+        }
+
+        logger.debug("Packed {} of {} passages ({} duplicates) from {} pages into ~{} passage tokens",
+                selected.size(), total, total - candidates.size(), pages.size(), used);
+        return packed.toString();
+    }
+
+    private static String header(int number, QueryFetchResult result) {
+        HtmlAnalysisResult analysis = result.analysis();
+        StringBuilder header = new StringBuilder()
+                .append("[Source ").append(number).append("] ").append(orEmpty(analysis.getTitle())).append('\n')
+                .append("Query: ").append(result.query()).append('\n');
+        String description = orEmpty(analysis.getMetaDescription());
+        if (!description.isBlank()) {
+            if (description.length() > MAX_DESCRIPTION_CHARS) {
+                description = description.substring(0, MAX_DESCRIPTION_CHARS) + "...";
+            }
+            header.append("Description: ").append(description).append('\n');
+        }
+        String h1 = orEmpty(analysis.getH1());
+        if (!h1.isBlank() && !h1.equals(analysis.getTitle())) {
+            header.append("Heading: ").append(h1).append('\n');
+        }
+        return header.append('\n').toString();
+    }
+
+    /**
+     * Split page text into passages of whole sentences, dropping the sentence the
+     * extractor's length cap cut in half.
+     */
+    private List<String> passages(String fullText) {
+        List<String> passages = new ArrayList<>();
+        if (fullText == null || fullText.isBlank()) {
+            return passages;
+        }
+
+        String text = fullText;
+        if (text.endsWith("...")) {
+            int lastSentence = Math.max(text.lastIndexOf(". "), Math.max(text.lastIndexOf("! "), text.lastIndexOf("? ")));
+            int lastBlock = text.lastIndexOf('\n');
+            int cut = Math.max(lastSentence + 1, lastBlock);
+            text = cut > 0 ? text.substring(0, cut) : text;
+        }
+
+        for (String block : text.split("\n")) {
+            if (block.isBlank()) {
+                continue;
+            }
+            if (TokenEstimator.estimate(block) <= maxPassageTokens) {
+                passages.add(block.strip());
+                continue;
+            }
+
+            StringBuilder current = new StringBuilder();
+            int currentTokens = 0;
+            for (String sentence : SENTENCE_END.split(block)) {
+                int sentenceTokens = TokenEstimator.estimate(sentence);
+                if (currentTokens > 0 && currentTokens + sentenceTokens > maxPassageTokens) {
+                    passages.add(current.toString().strip());
+                    current.setLength(0);
+                    currentTokens = 0;
+                }
+                current.append(sentence).append(' ');
+                currentTokens += sentenceTokens;
+            }
+            if (currentTokens > 0) {
+                passages.add(current.toString().strip());
+            }
+        }
+        return passages;
+    }
+
+    private boolean isDuplicate(Set<Integer> shingles, List<Set<Integer>> kept) {
+        if (shingles.isEmpty()) {
+            return true;
+        }
+        for (Set<Integer> other : kept) {
+            int smaller = Math.min(shingles.size(), other.size());
+            int larger = Math.max(shingles.size(), other.size());
+            // Jaccard can't reach the threshold when the sizes are too far apart
+            if (smaller < duplicateThreshold * larger) {
+                continue;
+            }
+            int common = 0;
+            for (Integer shingle : shingles) {
+                if (other.contains(shingle)) {
+                    common++;
+                }
+            }
+            double jaccard = (double) common / (shingles.size() + other.size() - common);
+            if (jaccard >= duplicateThreshold) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void score(List<Passage> passages, Set<String> queryTerms) {
+        if (passages.isEmpty()) {
+            return;
+        }
+
+        Map<String, Integer> documentFrequency = new HashMap<>();
+        double averageLength = 0;
+        for (Passage passage : passages) {
+            averageLength += passage.words.size();
+            for (String term : new HashSet<>(passage.words)) {
+                if (queryTerms.contains(term)) {
+                    documentFrequency.merge(term, 1, Integer::sum);
+                }
+            }
+        }
+        averageLength = Math.max(1, averageLength / passages.size());
+
+        int n = passages.size();
+        for (Passage passage : passages) {
+            Map<String, Integer> termFrequency = new HashMap<>();
+            for (String word : passage.words) {
+                if (queryTerms.contains(word)) {
+                    termFrequency.merge(word, 1, Integer::sum);
+                }
+            }
+
+            double score = 0;
+            for (Map.Entry<String, Integer> entry : termFrequency.entrySet()) {
+                int df = documentFrequency.get(entry.getKey());
+                double idf = Math.log(1 + (n - df + 0.5) / (df + 0.5));
+                double tf = entry.getValue();
+                score += idf * tf * (BM25_K1 + 1)
+                        / (tf + BM25_K1 * (1 - BM25_B + BM25_B * passage.words.size() / averageLength));
+            }
+            // Opening passages usually state what the page is about; this also orders passages
+            // that match no query term
+            score += 0.25 / (1 + passage.ordinal);
+            passage.score = score;
+        }
+    }
+
+    private static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        for (String word : NON_WORD.split(text.toLowerCase(Locale.ROOT))) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    private static Set<Integer> shingles(List<String> words) {
+        Set<Integer> shingles = new HashSet<>();
+        if (words.size() < SHINGLE_SIZE) {
+            if (!words.isEmpty()) {
+                shingles.add(words.hashCode());
+            }
+            return shingles;
+        }
+        for (int i = 0; i + SHINGLE_SIZE <= words.size(); i++) {
+            shingles.add(words.subList(i, i + SHINGLE_SIZE).hashCode());
+        }
+        return shingles;
+    }
+
+    private static String orEmpty(String value) {
+        return value == null ? "" : value;
+    }
+}
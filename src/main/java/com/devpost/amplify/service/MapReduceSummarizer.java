@@ -0,0 +1,199 @@
+package com.devpost.amplify.service;
+
+import com.devpost.amplify.config.ExecutionMode;
+import com.devpost.amplify.service.agents.AgentInvoker;
+import com.devpost.amplify.service.agents.PartialSummaryAgent;
+import com.devpost.amplify.service.fetch.FetchPipeline;
+import com.devpost.amplify.service.fetch.QueryFetchResult;
+import com.devpost.amplify.service.pipeline.QueryKeys;
+import com.google.adk.agents.InvocationContext;
+import com.google.genai.types.Content;
+import com.google.genai.types.Part;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
+
+/**
+ * Summarizes in two stages: each query's scraped content is condensed by its own smaller
+ * LLM call (map, run in parallel), then the summarization agent merges the notes (reduce).
+ * <p>
+ * The session holds each query's packed scraped text ({@code scraped:<query>}) and the
+ * partial summary made from it ({@code partial:<query>}). In {@link SummaryMode#INCREMENTAL}
+ * mode these are reused, so a re-run after editing some queries only fetches and condenses
+ * the queries that changed; entries for queries that are no longer requested are dropped.
+ */
+@Service
+public class MapReduceSummarizer {
+    private static final Logger logger = LoggerFactory.getLogger(MapReduceSummarizer.class);
+    private static final String SCRAPED_PREFIX = "scraped:";
+    private static final String PARTIAL_PREFIX = "partial:";
+
+    /**
+     * What was prepared for the summarization agent.
+     *
+     * @param processedQueries queries with content, whether reused or fetched now
+     * @param failedQueries    queries that could not be fetched
+     * @param reusedQueries    queries whose partial summary was already in the session
+     * @param timings          time spent in each stage so far
+     */
+    public record Prepared(List<String> processedQueries, List<String> failedQueries, List<String> reusedQueries,
+                           StageTimings timings) {
+    }
+
+    private final FetchPipeline fetchPipeline;
+    private final ContextPacker contextPacker;
+    private final AgentInvoker agentInvoker;
+    private final PartialSummaryAgent partialSummaryAgent;
+    private final int partialTokenBudget;
+    private final ExecutorService executor;
+    private final Semaphore permits;
+
+    public MapReduceSummarizer(
+            FetchPipeline fetchPipeline,
+            ContextPacker contextPacker,
+            AgentInvoker agentInvoker,
+            PartialSummaryAgent partialSummaryAgent,
+            @Value("${amplify.summary.partial-token-budget:2000}") int partialTokenBudget,
+            @Value("${amplify.summary.map-concurrency:4}") int mapConcurrency,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads
+    ) {
+        this.fetchPipeline = fetchPipeline;
+        this.contextPacker = contextPacker;
+        this.agentInvoker = agentInvoker;
+        this.partialSummaryAgent = partialSummaryAgent;
+        this.partialTokenBudget = partialTokenBudget;
+        this.executor = ExecutionMode.of(virtualThreads).newExecutor("MapSummaries", mapConcurrency);
+        this.permits = new Semaphore(mapConcurrency);
+    }
+
+    /**
+     * Fetch and condense the queries and bind the merge prompt as {@code input}. The
+     * summarization agent still has to be run on {@code ctx}.
+     *
+     * @param reuse keep partial summaries and scraped text from earlier runs
+     */
+    public Prepared prepare(InvocationContext ctx, List<String> queries, boolean reuse) {
+        StageTimings timings = new StageTimings();
+        ConcurrentMap<String, Object> state = ctx.session().state();
+        dropEntries(state, reuse ? queries : List.of());
+
+        List<String> reused = new ArrayList<>();
+        List<String> toFetch = new ArrayList<>();
+        for (String query : queries) {
+            if (state.get(PARTIAL_PREFIX + QueryKeys.normalize(query)) instanceof String) {
+                reused.add(query);
+            } else if (!(state.get(SCRAPED_PREFIX + QueryKeys.normalize(query)) instanceof String)) {
+                toFetch.add(query);
+            }
+        }
+
+        List<String> failed = new ArrayList<>();
+        if (!toFetch.isEmpty()) {
+            logger.info("Fetching {} of {} queries", toFetch.size(), queries.size());
+            List<QueryFetchResult> results = timings.time("fetch", () -> fetchPipeline.fetchAll(toFetch));
+            timings.time("pack", () -> {
+                for (QueryFetchResult result : results) {
+                    String packed = contextPacker.pack(List.of(result), partialTokenBudget);
+                    if (packed.isBlank()) {
+                        failed.add(result.query());
+                    } else {
+                        state.put(SCRAPED_PREFIX + QueryKeys.normalize(result.query()), packed);
+                    }
+                }
+                return null;
+            });
+        }
+
+        timings.time("map", () -> {
+            condenseMissing(state, queries);
+            return null;
+        });
+
+        Map<String, String> notes = new LinkedHashMap<>();
+        for (String query : queries) {
+            if (state.get(PARTIAL_PREFIX + QueryKeys.normalize(query)) instanceof String partial) {
+                notes.put(query, partial);
+            }
+        }
+
+        String prompt;
+        if (notes.isEmpty()) {
+            logger.info("No search content available. Using fallback analysis for queries: {}", queries);
+            prompt = PromptTemplates.analysisPrompt(queries, "");
+        } else {
+            prompt = PromptTemplates.mergePrompt(notes);
+        }
+        state.put("input", Content.fromParts(Part.fromText(prompt)));
+
+        logger.info("Prepared merge of {} partial summaries, {} reused, {} failed",
+                notes.size(), reused.size(), failed.size());
+        return new Prepared(List.copyOf(notes.keySet()), failed, reused, timings);
+    }
+
+    /**
+     * Condense every query that has scraped text but no partial summary, in parallel.
+     */
+    private void condenseMissing(ConcurrentMap<String, Object> state, List<String> queries) {
+        List<CompletableFuture<Void>> calls = new ArrayList<>();
+        for (String query : queries) {
+            String partialKey = PARTIAL_PREFIX + QueryKeys.normalize(query);
+            boolean summarized = state.get(partialKey) instanceof String;
+            if (summarized || !(state.get(SCRAPED_PREFIX + QueryKeys.normalize(query)) instanceof String scraped)) {
+                continue;
+            }
+
+            calls.add(CompletableFuture.runAsync(() -> {
+                permits.acquireUninterruptibly();
+                try {
+                    String partial = agentInvoker.invoke(partialSummaryAgent,
+                            Content.fromParts(Part.fromText(PromptTemplates.partialSummaryPrompt(query, scraped))),
+                            "partialSummary");
+                    if (partial != null && !partial.isBlank()) {
+                        state.put(partialKey, partial);
+                    }
+                } catch (Exception e) {
+                    logger.error("Error condensing query '{}': {}", query, e.getMessage());
+                } finally {
+                    permits.release();
+                }
+            }, executor));
+        }
+        CompletableFuture.allOf(calls.toArray(CompletableFuture[]::new)).join();
+    }
+
+    /**
+     * Drop the per-query entries of every query not in {@code keep}.
+     */
+    private static void dropEntries(ConcurrentMap<String, Object> state, List<String> keep) {
+        Set<String> current = keep.stream().map(QueryKeys::normalize).collect(Collectors.toSet());
+        state.keySet().removeIf(stateKey -> {
+            String query;
+            if (stateKey.startsWith(SCRAPED_PREFIX)) {
+                query = stateKey.substring(SCRAPED_PREFIX.length());
+            } else if (stateKey.startsWith(PARTIAL_PREFIX)) {
+                query = stateKey.substring(PARTIAL_PREFIX.length());
+            } else {
+                return false;
+            }
+            return !current.contains(query);
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
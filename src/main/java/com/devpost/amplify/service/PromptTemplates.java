@@ -0,0 +1,133 @@
+package com.devpost.amplify.service;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Prompts sent as {@code input} to the summarization and content generation agents.
+ */
+public final class PromptTemplates {
+
+    private PromptTemplates() {
+    }
+
+    /**
+     * Prompt for the summarization agent. Falls back to an LLM-knowledge-only analysis
+     * when no page content could be scraped.
+     */
+    public static String analysisPrompt(List<String> queries, String aggregatedText) {
+        if (aggregatedText == null || aggregatedText.isBlank()) {
+            return String.format("""
+            Assume the following queries were searched: %s
+            Provide a structured analysis even without page content.
+            Share without any affirmation, greeting or acknowledgement.
+            Use LLM knowledge to estimate:
+            - Main Concepts
+            - Trends
+            - Gaps
+            - Audience types
+            - Source patterns
+            """, String.join(", ", queries));
+        }
+
+        return String.format("""
+        You are an expert summarizer. Summarize the following scraped content.
+        Share without any affirmation, greeting or acknowledgement.
+        Use LLM knowledge to estimate:
+        - Main Concepts
+        - Trends
+        - Gaps
+        - Audience types
+        - Source patterns
+        === Begin Content ===
+        %s
+        === End Content ===
+        """, aggregatedText);
+    }
+
+    /**
+     * Prompt for the partial summary agent, covering the scraped content of one query.
+     */
+    public static String partialSummaryPrompt(String query, String packedText) {
+        return String.format("""
+        Search query: %s
+        Condense the following scraped content into notes on the main concepts, trends,
+        sources, audience and gaps it shows.
+        === Begin Content ===
+        %s
+        === End Content ===
+        """, query, packedText);
+    }
+
+    /**
+     * Prompt for the summarization agent when merging per-query notes instead of raw content.
+     *
+     * @param notes partial summaries keyed by query, in query order
+     */
+    public static String mergePrompt(Map<String, String> notes) {
+        StringBuilder sections = new StringBuilder();
+        notes.forEach((query, note) -> sections
+                .append("### Query: ").append(query).append('\n')
+                .append(note.strip()).append("\n\n"));
+
+        return String.format("""
+        You are an expert summarizer. Below are notes condensed from the scraped content of each query.
+        Merge them into one analysis, combining overlapping points rather than repeating them per query.
+        Share without any affirmation, greeting or acknowledgement.
+        === Begin Notes ===
+        %s
+        === End Notes ===
+        """, sections);
+    }
+
+    /**
+     * Prompt for the content generation agent, based on the requested content type.
+     */
+    public static String contentPrompt(String contentType, Object analysisText) {
+        if ("blog-post".equals(contentType)) {
+            return String.format("""
+            Based on the analysis provided below, generate a comprehensive blog post.
+            
+            Requirements:
+            - Create an engaging title
+            - Include proper headings and subheadings
+            - Make it informative and well-structured
+            - Include actionable insights
+            - Format as HTML for web display
+            - No greetings, acknowledgements, or affirmations
+            
+            Analysis:
+            %s
+            """, analysisText);
+        } else if ("social-media".equals(contentType)) {
+            return String.format("""
+            Based on the analysis provided below, generate engaging social media content.
+            
+            Requirements:
+            - Create multiple post variations (2-3 different posts)
+            - Include relevant hashtags
+            - Make it engaging and shareable
+            - Keep within social media character limits
+            - Format for direct posting
+            - No greetings, acknowledgements, or affirmations
+            
+            Analysis:
+            %s
+            """, analysisText);
+        }
+
+        return String.format("""
+        Based on the analysis provided below, generate high-quality marketing content.
+        
+        Requirements:
+        - Make it informative and actionable
+        - Structure it professionally
+        - Include key insights and recommendations
+        - Format as HTML for web display
+        - No greetings, acknowledgements, or affirmations
+        
+        Analysis:
+        %s
+        """, analysisText);
+    }
+}
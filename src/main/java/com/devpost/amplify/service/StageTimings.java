@@ -0,0 +1,41 @@
+package com.devpost.amplify.service;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Wall-clock milliseconds spent in each stage of a request, in the order the stages ran.
+ */
+public class StageTimings {
+    private final Map<String, Long> millis = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    public <T> T time(String stage, Supplier<T> work) {
+        long start = System.nanoTime();
+        try {
+            return work.get();
+        } finally {
+            record(stage, start);
+        }
+    }
+
+    public void record(String stage, long startNanos) {
+        millis.merge(stage, (System.nanoTime() - startNanos) / 1_000_000, Long::sum);
+    }
+
+    public Map<String, Long> asMap() {
+        synchronized (millis) {
+            return Collections.unmodifiableMap(new LinkedHashMap<>(millis));
+        }
+    }
+
+    /**
+     * Same as {@code asMap().toString()}, so a logging call with the timings as an argument
+     * only copies the map when the message is actually written.
+     */
+    @Override
+    public String toString() {
+        return asMap().toString();
+    }
+}
@@ -0,0 +1,25 @@
+package com.devpost.amplify.service;
+
+import java.util.Locale;
+
+/**
+ * How /summarize turns scraped content into an analysis, selected per request with {@code "mode"}.
+ */
+public enum SummaryMode {
+    /** All packed content in a single summarization prompt */
+    FULL,
+    /** One condensing call per query in parallel, then a merge call */
+    MAP_REDUCE,
+    /** Like {@link #MAP_REDUCE}, reusing per-query results kept in the session by earlier runs */
+    INCREMENTAL;
+
+    /**
+     * @throws IllegalArgumentException for an unknown mode
+     */
+    public static SummaryMode of(String mode) {
+        if (mode == null || mode.isBlank()) {
+            return FULL;
+        }
+        return valueOf(mode.strip().replace('-', '_').toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,69 @@
+package com.devpost.amplify.service.agents;
+
+import com.devpost.amplify.model.SessionStore;
+import com.google.adk.agents.BaseAgent;
+import com.google.adk.agents.InvocationContext;
+import com.google.adk.agents.RunConfig;
+import com.google.adk.runner.Runner;
+import com.google.adk.sessions.BaseSessionService;
+import com.google.adk.sessions.Session;
+import com.google.genai.types.Content;
+import com.google.genai.types.Part;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs an agent once outside of any user session.
+ * <p>
+ * Each call gets a scratch ADK session holding only its {@code input}, so several calls can
+ * run in parallel without overwriting each other's input or output keys. The scratch
+ * session is deleted afterwards.
+ */
+@Component
+public class AgentInvoker {
+    private static final Logger logger = LoggerFactory.getLogger(AgentInvoker.class);
+
+    private final Runner runner;
+
+    public AgentInvoker(Runner runner) {
+        this.runner = runner;
+    }
+
+    /**
+     * @return the value the agent stored under {@code outputKey} as text, or {@code null} if it stored none
+     */
+    public String invoke(BaseAgent agent, Object input, String outputKey) {
+        Object output = invokeForOutput(agent, input, outputKey);
+        return output == null ? null : output.toString();
+    }
+
+    /**
+     * @return the value the agent stored under {@code outputKey}, or {@code null} if it stored none
+     */
+    public Object invokeForOutput(BaseAgent agent, Object input, String outputKey) {
+        BaseSessionService sessionService = runner.sessionService();
+        Session session = sessionService.createSession(SessionStore.APP, SessionStore.USER).blockingGet();
+        try {
+            InvocationContext ctx = InvocationContext.create(
+                    sessionService,
+                    runner.artifactService(),
+                    SessionStore.USER,
+                    agent,
+                    session,
+                    Content.fromParts(Part.fromText("")),
+                    RunConfig.builder().build()
+            );
+            ctx.session().state().put("input", input);
+
+            agent.runAsync(ctx).ignoreElements().blockingAwait();
+            return ctx.session().state().get(outputKey);
+        } finally {
+            try {
+                sessionService.deleteSession(SessionStore.APP, SessionStore.USER, session.id()).blockingAwait();
+            } catch (RuntimeException e) {
+                logger.debug("Could not delete scratch session {}: {}", session.id(), e.getMessage());
+            }
+        }
+    }
+}
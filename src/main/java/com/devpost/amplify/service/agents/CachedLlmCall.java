@@ -0,0 +1,69 @@
+package com.devpost.amplify.service.agents;
+
+import com.devpost.amplify.service.llm.LlmResponseCache;
+import com.devpost.amplify.service.llm.TokenEstimator;
+import com.devpost.amplify.service.metrics.PipelineMetrics;
+import com.devpost.amplify.service.resilience.UpstreamGuard;
+import com.google.adk.agents.InvocationContext;
+import com.google.adk.agents.LlmAgent;
+import com.google.adk.events.Event;
+import io.reactivex.rxjava3.core.Flowable;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Runs an {@link LlmAgent} on the prompt bound as {@code input}, answering from the
+ * {@link LlmResponseCache} when an identical (or, if allowed, near-identical) prompt was
+ * seen before.
+ * Calls that do reach the model go through its {@link UpstreamGuard}.
+ */
+final class CachedLlmCall {
+
+    private CachedLlmCall() {
+    }
+
+    /**
+     * @param nearDuplicates whether a response cached for a similar prompt may be reused
+     * @param onText         receives the response text produced so far; called once with the full
+     *                       response on a cache hit, in which case no events are emitted
+     */
+    static Flowable<Event> run(String agentName, LlmAgent llmAgent, InvocationContext ctx,
+                               LlmResponseCache cache, boolean nearDuplicates, UpstreamGuard guard,
+                               Consumer<String> onText) {
+        return Flowable.defer(() -> {
+            String prompt = LlmResponseCache.promptOf(ctx.session().state().get("input"));
+            LlmResponseCache.Lookup lookup = cache.lookup(agentName, prompt, nearDuplicates);
+            if (lookup.response().isPresent()) {
+                onText.accept(lookup.response().get());
+                return Flowable.empty();
+            }
+
+            StreamedText text = new StreamedText();
+            AtomicReference<String> latest = new AtomicReference<>();
+            AtomicBoolean first = new AtomicBoolean(true);
+            long start = System.nanoTime();
+            return guard.guard(llmAgent.runAsync(ctx))
+                    .doOnNext(e -> {
+                        if (first.compareAndSet(true, false)) {
+                            PipelineMetrics.llmFirstEvent(agentName).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                        }
+                        e.content().ifPresent(c -> {
+                            String produced = text.accept(e, c);
+                            if (produced != null) {
+                                latest.set(produced);
+                                onText.accept(produced);
+                            }
+                        });
+                    })
+                    .doOnComplete(() -> {
+                        PipelineMetrics.llmCall(agentName).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                        PipelineMetrics.tokens(agentName, "prompt", TokenEstimator.estimate(prompt));
+                        PipelineMetrics.tokens(agentName, "completion", TokenEstimator.estimate(latest.get()));
+                        cache.store(lookup, latest.get());
+                    });
+        });
+    }
+}
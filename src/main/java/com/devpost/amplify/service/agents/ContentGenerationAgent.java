@@ -1,5 +1,7 @@
 package com.devpost.amplify.service.agents;
 
+import com.devpost.amplify.service.llm.LlmResponseCache;
+import com.devpost.amplify.service.resilience.UpstreamGuard;
 import com.google.adk.agents.BaseAgent;
 import com.google.adk.agents.InvocationContext;
 import com.google.adk.agents.LlmAgent;
@@ -10,18 +12,21 @@ import java.util.List;
 
 public class ContentGenerationAgent extends BaseAgent {
     private final LlmAgent llmAgent;
+    private final LlmResponseCache responseCache;
+    private final UpstreamGuard llmGuard;
 
-    public ContentGenerationAgent(LlmAgent llmAgent) {
+    public ContentGenerationAgent(LlmAgent llmAgent, LlmResponseCache responseCache, UpstreamGuard llmGuard) {
         super("content_generation", "Generate content summary", List.of(llmAgent), null, null);
         this.llmAgent = llmAgent;
+        this.responseCache = responseCache;
+        this.llmGuard = llmGuard;
     }
 
     @Override
     protected Flowable<Event> runAsyncImpl(InvocationContext ctx) {
-        return llmAgent.runAsync(ctx)
-                .doOnNext(e -> e.content().ifPresent(c ->
-                        ctx.session().state().put("generatedContent", c.text())
-                ));
+        return CachedLlmCall.run(name(), llmAgent, ctx, responseCache, false, llmGuard, generated ->
+                ctx.session().state().put("generatedContent", generated)
+        );
     }
 
     @Override
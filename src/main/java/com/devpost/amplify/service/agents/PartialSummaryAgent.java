@@ -0,0 +1,37 @@
+package com.devpost.amplify.service.agents;
+
+import com.devpost.amplify.service.llm.LlmResponseCache;
+import com.devpost.amplify.service.resilience.UpstreamGuard;
+import com.google.adk.agents.BaseAgent;
+import com.google.adk.agents.InvocationContext;
+import com.google.adk.agents.LlmAgent;
+import com.google.adk.events.Event;
+import io.reactivex.rxjava3.core.Flowable;
+
+import java.util.List;
+
+public class PartialSummaryAgent extends BaseAgent {
+    private final LlmAgent llmAgent;
+    private final LlmResponseCache responseCache;
+    private final UpstreamGuard llmGuard;
+
+    public PartialSummaryAgent(LlmAgent llmAgent, LlmResponseCache responseCache, UpstreamGuard llmGuard) {
+        super("partial_summary", "Condenses the scraped content of one query", List.of(llmAgent), null, null);
+        this.llmAgent = llmAgent;
+        this.responseCache = responseCache;
+        this.llmGuard = llmGuard;
+    }
+
+    @Override
+    protected Flowable<Event> runAsyncImpl(InvocationContext ctx) {
+        return CachedLlmCall.run(name(), llmAgent, ctx, responseCache, false, llmGuard, notes ->
+                ctx.session().state().put("partialSummary", notes)
+        );
+    }
+
+    // No live impl
+    @Override
+    protected Flowable<Event> runLiveImpl(InvocationContext ctx) {
+        return Flowable.empty();
+    }
+}
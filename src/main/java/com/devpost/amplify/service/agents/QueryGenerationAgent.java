@@ -1,32 +1,34 @@
 package com.devpost.amplify.service.agents;
 
+import com.devpost.amplify.service.llm.LlmResponseCache;
+import com.devpost.amplify.service.pipeline.QueryOutputParser;
+import com.devpost.amplify.service.resilience.UpstreamGuard;
 import com.google.adk.agents.BaseAgent;
 import com.google.adk.agents.InvocationContext;
 import com.google.adk.agents.LlmAgent;
 import com.google.adk.events.Event;
 import io.reactivex.rxjava3.core.Flowable;
 
-import java.util.Arrays;
 import java.util.List;
 
 public class QueryGenerationAgent extends BaseAgent {
     private final LlmAgent llmAgent;
+    private final LlmResponseCache responseCache;
+    private final UpstreamGuard llmGuard;
 
-    public QueryGenerationAgent(LlmAgent llmAgent) {
+    public QueryGenerationAgent(LlmAgent llmAgent, LlmResponseCache responseCache, UpstreamGuard llmGuard) {
         super("query_generation", "Generate related queries", List.of(llmAgent), null, null);
         this.llmAgent = llmAgent;
+        this.responseCache = responseCache;
+        this.llmGuard = llmGuard;
     }
 
     @Override
     protected Flowable<Event> runAsyncImpl(InvocationContext ctx) {
-        return llmAgent.runAsync(ctx)
-                .doOnNext(e -> {
-                    e.content().ifPresent(c -> {
-                        List<String> queries = Arrays.stream(c.text().split("\n"))
-                                .map(String::trim).filter(s -> !s.isEmpty()).toList();
-                        ctx.session().state().put("relatedQueries", queries);
-                    });
-                });
+        // The prompt is just the seed term, so a reworded seed can safely reuse the cached queries
+        return CachedLlmCall.run(name(), llmAgent, ctx, responseCache, true, llmGuard, text -> {
+            ctx.session().state().put("relatedQueries", QueryOutputParser.parse(text));
+        });
     }
 
     @Override
@@ -0,0 +1,32 @@
+package com.devpost.amplify.service.agents;
+
+import com.google.adk.events.Event;
+import com.google.genai.types.Content;
+
+/**
+ * Accumulates the text of an agent run, whether or not the model streams partial responses.
+ * <p>
+ * With SSE streaming each partial event only carries a chunk, so chunks are appended;
+ * a non-partial event carries the complete response and replaces whatever was accumulated.
+ */
+final class StreamedText {
+    private final StringBuilder partials = new StringBuilder();
+
+    /**
+     * @return the text produced so far, or {@code null} if the event carried no text
+     */
+    String accept(Event event, Content content) {
+        String text = content.text();
+        if (text == null) {
+            return null;
+        }
+
+        if (event.partial().orElse(false)) {
+            partials.append(text);
+            return partials.toString();
+        }
+
+        partials.setLength(0);
+        return text;
+    }
+}
@@ -1,5 +1,7 @@
 package com.devpost.amplify.service.agents;
 
+import com.devpost.amplify.service.llm.LlmResponseCache;
+import com.devpost.amplify.service.resilience.UpstreamGuard;
 import com.google.adk.agents.BaseAgent;
 import com.google.adk.agents.InvocationContext;
 import com.google.adk.agents.LlmAgent;
@@ -10,7 +12,7 @@ import java.util.List;
 
 public class SummarizationAgent extends BaseAgent {
 
-    public SummarizationAgent(LlmAgent llmAgent) {
+    public SummarizationAgent(LlmAgent llmAgent, LlmResponseCache responseCache, UpstreamGuard llmGuard) {
         super(
                 "summarization",
                 "Summarizes raw scraped content",
@@ -19,18 +21,19 @@ public class SummarizationAgent extends BaseAgent {
                 null
         );
         this.llmAgent = llmAgent;
+        this.responseCache = responseCache;
+        this.llmGuard = llmGuard;
     }
     private final LlmAgent llmAgent;
+    private final LlmResponseCache responseCache;
+    private final UpstreamGuard llmGuard;
 
 
     @Override
     protected Flowable<Event> runAsyncImpl(InvocationContext ctx) {
-        return llmAgent.runAsync(ctx)
-                .doOnNext(evt ->
-                        evt.content().ifPresent(c ->
-                                ctx.session().state().put("analysisText", c.text())
-                        )
-                );
+        return CachedLlmCall.run(name(), llmAgent, ctx, responseCache, false, llmGuard, analysis ->
+                ctx.session().state().put("analysisText", analysis)
+        );
     }
 
     // No live impl
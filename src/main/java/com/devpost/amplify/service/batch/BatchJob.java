@@ -0,0 +1,171 @@
+package com.devpost.amplify.service.batch;
+
+import com.devpost.amplify.service.fetch.QueryFetchResult;
+import com.devpost.amplify.service.pipeline.QueryKeys;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Progress and results of one batch of seed terms.
+ * <p>
+ * Queries are fetched at most once per batch: seeds generating the same query share the
+ * fetch started by the first of them.
+ */
+public class BatchJob {
+
+    public enum Stage {
+        PENDING, QUERYING, FETCHING, SUMMARIZING, GENERATING, DONE, FAILED
+    }
+
+    /**
+     * Pipeline state of a single seed, updated by the worker running it.
+     */
+    public static final class SeedRun {
+        private final String seed;
+        private volatile Stage stage = Stage.PENDING;
+        private volatile List<String> queries = List.of();
+        private volatile List<String> failedQueries = List.of();
+        private volatile String analysisText;
+        private volatile String generatedContent;
+        private volatile String error;
+
+        private SeedRun(String seed) {
+            this.seed = seed;
+        }
+
+        public String seed() {
+            return seed;
+        }
+
+        void stage(Stage stage) {
+            this.stage = stage;
+        }
+
+        void queries(List<String> queries) {
+            this.queries = queries;
+        }
+
+        void failedQueries(List<String> failedQueries) {
+            this.failedQueries = failedQueries;
+        }
+
+        void analysisText(String analysisText) {
+            this.analysisText = analysisText;
+        }
+
+        void generatedContent(String generatedContent) {
+            this.generatedContent = generatedContent;
+        }
+
+        void failed(String error) {
+            this.error = error;
+            this.stage = Stage.FAILED;
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("seed", seed);
+            map.put("stage", stage);
+            map.put("queries", queries);
+            map.put("failedQueries", failedQueries);
+            if (analysisText != null) {
+                map.put("analysisText", analysisText);
+            }
+            if (generatedContent != null) {
+                map.put("generatedContent", generatedContent);
+            }
+            if (error != null) {
+                map.put("error", error);
+            }
+            return map;
+        }
+    }
+
+    private final String id;
+    private final long createdAt = System.currentTimeMillis();
+    private final String contentType;
+    private final List<SeedRun> seeds;
+    private final ConcurrentMap<String, CompletableFuture<QueryFetchResult>> fetches = new ConcurrentHashMap<>();
+    private final AtomicInteger fetchRequests = new AtomicInteger();
+    private final AtomicInteger unfinishedSeeds;
+
+    BatchJob(String id, List<String> seeds, String contentType) {
+        this.id = id;
+        this.contentType = contentType;
+        this.seeds = seeds.stream().map(SeedRun::new).toList();
+        this.unfinishedSeeds = new AtomicInteger(this.seeds.size());
+    }
+
+    public String id() {
+        return id;
+    }
+
+    String contentType() {
+        return contentType;
+    }
+
+    List<SeedRun> seeds() {
+        return seeds;
+    }
+
+    /**
+     * The fetch of {@code query} for this batch, started by {@code fetcher} if no seed asked for it yet.
+     */
+    CompletableFuture<QueryFetchResult> fetch(String query,
+                                              Function<String, CompletableFuture<QueryFetchResult>> fetcher) {
+        fetchRequests.incrementAndGet();
+        String key = QueryKeys.normalize(query);
+        return fetches.computeIfAbsent(key, k -> fetcher.apply(query));
+    }
+
+    /**
+     * Record that one seed is done or failed.
+     *
+     * @return whether it was the last one
+     */
+    boolean seedFinished() {
+        return unfinishedSeeds.decrementAndGet() == 0;
+    }
+
+    public boolean isFinished() {
+        return seeds.stream().allMatch(s -> s.stage == Stage.DONE || s.stage == Stage.FAILED);
+    }
+
+    /**
+     * @param includeResults include the per-seed queries, analysis and content
+     */
+    public Map<String, Object> toMap(boolean includeResults) {
+        Map<Stage, Integer> stages = new EnumMap<>(Stage.class);
+        List<Map<String, Object>> results = new ArrayList<>(seeds.size());
+        for (SeedRun seed : seeds) {
+            stages.merge(seed.stage, 1, Integer::sum);
+            if (includeResults) {
+                results.add(seed.toMap());
+            }
+        }
+
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("jobId", id);
+        map.put("status", isFinished() ? "COMPLETED" : "RUNNING");
+        map.put("createdAt", createdAt);
+        map.put("totalSeeds", seeds.size());
+        map.put("completedSeeds", stages.getOrDefault(Stage.DONE, 0));
+        map.put("failedSeeds", stages.getOrDefault(Stage.FAILED, 0));
+        map.put("stages", stages);
+        map.put("distinctQueries", fetches.size());
+        map.put("deduplicatedQueries", fetchRequests.get() - fetches.size());
+        if (includeResults) {
+            map.put("results", results);
+        }
+        return map;
+    }
+}
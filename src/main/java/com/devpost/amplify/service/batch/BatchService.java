@@ -0,0 +1,195 @@
+package com.devpost.amplify.service.batch;
+
+import com.devpost.amplify.config.ExecutionMode;
+import com.devpost.amplify.service.fetch.FetchPipeline;
+import com.devpost.amplify.service.fetch.QueryFetchResult;
+import com.devpost.amplify.service.pipeline.PipelineStages;
+import com.devpost.amplify.service.resilience.UpstreamRejectedException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the query → summarize → generate pipeline for many seed terms in the background.
+ * <p>
+ * Seeds run concurrently on a shared pool and go through the shared {@link FetchPipeline},
+ * so scrapes are bounded by its concurrency and LLM calls by {@link PipelineStages}.
+ * Finished jobs are kept for {@code amplify.batch.retention} so their results can be polled.
+ * <p>
+ * At most {@code amplify.batch.max-pending} batches run at once; further ones are refused.
+ * An LLM call shed by its upstream guard is retried after the guard's {@code retryAfter}
+ * rather than failing the seed.
+ */
+@Service
+public class BatchService {
+    private static final Logger logger = LoggerFactory.getLogger(BatchService.class);
+
+    private final PipelineStages stages;
+    private final FetchPipeline fetchPipeline;
+    private final ExecutorService executor;
+    private final Cache<String, BatchJob> jobs;
+    private final int maxSeeds;
+    private final int maxPending;
+    private final int rejectionRetries;
+    private final AtomicInteger pendingBatches = new AtomicInteger();
+
+    /**
+     * Thrown when {@code amplify.batch.max-pending} batches are still running.
+     */
+    public static class TooManyBatchesException extends RuntimeException {
+        public TooManyBatchesException(int pending) {
+            super("Too many batches in progress (" + pending + ")");
+        }
+    }
+
+    @FunctionalInterface
+    private interface StageCall<T> {
+        T call() throws InterruptedException;
+    }
+
+    public BatchService(
+            PipelineStages stages,
+            FetchPipeline fetchPipeline,
+            @Value("${amplify.batch.max-seeds:500}") int maxSeeds,
+            @Value("${amplify.batch.seed-concurrency:8}") int seedConcurrency,
+            @Value("${amplify.batch.retention:1h}") Duration retention,
+            @Value("${amplify.batch.max-pending:20}") int maxPending,
+            @Value("${amplify.batch.rejection-retries:5}") int rejectionRetries,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads
+    ) {
+        this.stages = stages;
+        this.fetchPipeline = fetchPipeline;
+        this.maxSeeds = maxSeeds;
+        this.maxPending = maxPending;
+        this.rejectionRetries = rejectionRetries;
+        this.executor = ExecutionMode.of(virtualThreads).newExecutor("BatchSeeds", seedConcurrency);
+        this.jobs = Caffeine.newBuilder()
+                .expireAfterWrite(retention)
+                .build();
+    }
+
+    /**
+     * Start a batch. Duplicate seeds are run once.
+     *
+     * @param contentType content to generate for every seed, or {@code null} to stop after the analysis
+     * @throws IllegalArgumentException when there are no seeds or more than {@code amplify.batch.max-seeds}
+     * @throws TooManyBatchesException  when {@code amplify.batch.max-pending} batches are still running
+     */
+    public BatchJob submit(List<String> seeds, String contentType) {
+        List<String> distinctSeeds = new ArrayList<>(new LinkedHashSet<>(seeds.stream()
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .toList()));
+        if (distinctSeeds.isEmpty()) {
+            throw new IllegalArgumentException("No valid seeds found");
+        }
+        if (distinctSeeds.size() > maxSeeds) {
+            throw new IllegalArgumentException("At most " + maxSeeds + " seeds per batch, got " + distinctSeeds.size());
+        }
+
+        int pending = pendingBatches.incrementAndGet();
+        if (pending > maxPending) {
+            pendingBatches.decrementAndGet();
+            throw new TooManyBatchesException(pending - 1);
+        }
+
+        BatchJob job = new BatchJob(UUID.randomUUID().toString(), distinctSeeds, contentType);
+        jobs.put(job.id(), job);
+        for (BatchJob.SeedRun seed : job.seeds()) {
+            executor.execute(() -> run(job, seed));
+        }
+
+        logger.info("Started batch {} with {} seeds", job.id(), distinctSeeds.size());
+        return job;
+    }
+
+    public Optional<BatchJob> get(String jobId) {
+        return Optional.ofNullable(jobs.getIfPresent(jobId));
+    }
+
+    private void run(BatchJob job, BatchJob.SeedRun seed) {
+        try {
+            seed.stage(BatchJob.Stage.QUERYING);
+            List<String> queries = retryRejected(job, seed, () -> stages.generateQueries(seed.seed()));
+            seed.queries(queries);
+
+            seed.stage(BatchJob.Stage.FETCHING);
+            List<CompletableFuture<QueryFetchResult>> fetches = new ArrayList<>(queries.size());
+            for (String query : queries) {
+                fetches.add(job.fetch(query, fetchPipeline::fetchAsync));
+            }
+            List<QueryFetchResult> results = new ArrayList<>(fetches.size());
+            for (CompletableFuture<QueryFetchResult> fetch : fetches) {
+                results.add(fetch.join());
+            }
+            seed.failedQueries(results.stream()
+                    .filter(r -> r.status() == QueryFetchResult.Status.FAILED)
+                    .map(QueryFetchResult::query)
+                    .toList());
+
+            seed.stage(BatchJob.Stage.SUMMARIZING);
+            String analysis = retryRejected(job, seed, () -> stages.summarize(queries, results));
+            seed.analysisText(analysis);
+
+            if (job.contentType() != null) {
+                seed.stage(BatchJob.Stage.GENERATING);
+                seed.generatedContent(retryRejected(job, seed,
+                        () -> stages.generateContent(job.contentType(), analysis)));
+            }
+
+            seed.stage(BatchJob.Stage.DONE);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            seed.failed("interrupted");
+        } catch (Exception e) {
+            logger.error("Batch {} failed for seed '{}': {}", job.id(), seed.seed(), e.getMessage());
+            seed.failed(e.getMessage());
+        }
+
+        if (job.seedFinished()) {
+            pendingBatches.decrementAndGet();
+            logger.info("Batch {} completed", job.id());
+        }
+    }
+
+    /**
+     * Run {@code call}, waiting out the upstream guard's {@code retryAfter} (plus jitter, so
+     * the seeds it shed don't all come back at once) each time it sheds the call.
+     */
+    private <T> T retryRejected(BatchJob job, BatchJob.SeedRun seed, StageCall<T> call) throws InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return call.call();
+            } catch (UpstreamRejectedException e) {
+                if (attempt > rejectionRetries) {
+                    throw e;
+                }
+                long wait = Math.max(100, e.retryAfter().toMillis());
+                wait += ThreadLocalRandom.current().nextLong(wait / 4 + 1);
+                logger.info("Batch {} seed '{}' shed by {}, retrying in {} ms",
+                        job.id(), seed.seed(), e.upstream(), wait);
+                Thread.sleep(wait);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
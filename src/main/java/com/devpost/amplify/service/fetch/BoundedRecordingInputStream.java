@@ -0,0 +1,74 @@
+package com.devpost.amplify.service.fetch;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads at most {@code maxBytes} from the underlying stream, reporting end of stream after
+ * that, and keeps a copy of everything read so the consumed prefix can be cached.
+ */
+class BoundedRecordingInputStream extends FilterInputStream {
+    private final long maxBytes;
+    private final ByteArrayOutputStream recorded = new ByteArrayOutputStream(8192);
+    private long remaining;
+
+    BoundedRecordingInputStream(InputStream in, long maxBytes) {
+        super(in);
+        this.maxBytes = maxBytes;
+        this.remaining = maxBytes;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (remaining <= 0) {
+            return -1;
+        }
+        int b = super.read();
+        if (b >= 0) {
+            remaining--;
+            recorded.write(b);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (remaining <= 0) {
+            return -1;
+        }
+        int n = super.read(b, off, (int) Math.min(len, remaining));
+        if (n > 0) {
+            remaining -= n;
+            recorded.write(b, off, n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        // Skipped bytes would be missing from the recording
+        byte[] buffer = new byte[(int) Math.min(n, 8192)];
+        int read = read(buffer, 0, buffer.length);
+        return Math.max(read, 0);
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    /** Whether the byte cap cut the stream short */
+    boolean truncated() {
+        return remaining <= 0;
+    }
+
+    long bytesRead() {
+        return maxBytes - remaining;
+    }
+
+    byte[] recorded() {
+        return recorded.toByteArray();
+    }
+}
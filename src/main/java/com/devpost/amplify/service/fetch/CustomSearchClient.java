@@ -0,0 +1,191 @@
+package com.devpost.amplify.service.fetch;
+
+import com.devpost.amplify.config.logging.LogMarkers;
+import com.devpost.amplify.model.SearchResult;
+import com.devpost.amplify.service.http.OutboundHttpClient;
+import com.devpost.amplify.service.metrics.PipelineMetrics;
+import com.devpost.amplify.service.pipeline.QueryKeys;
+import com.devpost.amplify.service.resilience.UpstreamGuard;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Timer;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thin wrapper around the Google Custom Search JSON API.
+ * <p>
+ * Results are cached per normalized query, and concurrent identical queries are coalesced
+ * into a single upstream request. Failed searches are not cached. Upstream requests go
+ * through the search {@link UpstreamGuard}, which fails them fast while the API is overloaded
+ * or its circuit is open.
+ */
+@Service
+public class CustomSearchClient {
+    private static final Logger logger = LoggerFactory.getLogger(CustomSearchClient.class);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final OutboundHttpClient httpClient;
+    private final UpstreamGuard searchGuard;
+    private final String endpoint;
+    private final String apiKey;
+    private final String cx;
+    private final AsyncCache<String, List<SearchResult>> cache;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong upstreamCalls = new AtomicLong();
+
+    public CustomSearchClient(
+            OutboundHttpClient httpClient,
+            UpstreamGuard searchGuard,
+            @Value("${amplify.search.endpoint:https://www.googleapis.com/customsearch/v1}") String endpoint,
+            @Value("${amplify.search.api-key:ADD_YOUR_API_KEY_HERE}") String apiKey,
+            @Value("${amplify.search.cx:ADD_YOUR_CX_HERE}") String cx,
+            @Value("${amplify.search-cache.ttl:6h}") Duration ttl,
+            @Value("${amplify.search-cache.empty-ttl:5m}") Duration emptyTtl,
+            @Value("${amplify.search-cache.max-entries:10000}") long maxEntries
+    ) {
+        this.httpClient = httpClient;
+        this.searchGuard = searchGuard;
+        this.endpoint = endpoint;
+        this.apiKey = apiKey;
+        this.cx = cx;
+        long ttlNanos = ttl.toNanos();
+        long emptyTtlNanos = emptyTtl.toNanos();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfter(new Expiry<String, List<SearchResult>>() {
+                    @Override
+                    public long expireAfterCreate(String query, List<SearchResult> results, long currentTime) {
+                        // A query with no results may start returning some soon, don't pin that
+                        return results.isEmpty() ? emptyTtlNanos : ttlNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String query, List<SearchResult> results,
+                                                  long currentTime, long currentDuration) {
+                        return expireAfterCreate(query, results, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String query, List<SearchResult> results,
+                                                long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .buildAsync();
+    }
+
+    /**
+     * Run a search and return every item, in rank order. An empty list means the API
+     * returned no items.
+     *
+     * @throws IOException if the API answered with a non-200 status or could not be reached
+     */
+    public List<SearchResult> search(String query) throws IOException {
+        String key = QueryKeys.normalize(query);
+
+        CompletableFuture<List<SearchResult>> created = new CompletableFuture<>();
+        CompletableFuture<List<SearchResult>> existing = cache.asMap().putIfAbsent(key, created);
+        if (existing != null) {
+            if (existing.isDone()) {
+                hits.incrementAndGet();
+            } else {
+                coalesced.incrementAndGet();
+                logger.debug(LogMarkers.PER_QUERY, "Joining in-flight search for query: {}", query);
+            }
+            return await(existing);
+        }
+
+        // This caller owns the upstream request; the cache drops the future if it fails
+        try {
+            created.complete(fetch(query));
+        } catch (IOException | RuntimeException e) {
+            created.completeExceptionally(e);
+        }
+        return await(created);
+    }
+
+    public Map<String, Object> stats() {
+        return Map.of(
+                "hits", hits.get(),
+                "coalesced", coalesced.get(),
+                "upstreamCalls", upstreamCalls.get(),
+                "entries", cache.synchronous().estimatedSize()
+        );
+    }
+
+    private List<SearchResult> fetch(String query) throws IOException {
+        upstreamCalls.incrementAndGet();
+
+        String encodedQuery = URLEncoder.encode(query, StandardCharsets.UTF_8);
+        String apiUrl = UriComponentsBuilder
+                .fromUriString(endpoint)
+                .queryParam("q", encodedQuery)
+                .queryParam("key", apiKey)
+                .queryParam("cx", cx)
+                .build()
+                .toUriString();
+
+        logger.debug(LogMarkers.PER_QUERY, "Calling Custom Search API for query: {}", query);
+        return searchGuard.call(() -> {
+            Timer.Sample sample = Timer.start();
+            try {
+                return httpClient.get(apiUrl, Map.of(), response -> {
+                    if (response.code() != 200) {
+                        throw new IOException("Custom Search API response code " + response.code());
+                    }
+
+                    JsonNode items = objectMapper.readTree(response.body().byteStream()).get("items");
+                    List<SearchResult> results = new ArrayList<>(items == null ? 0 : items.size());
+                    if (items != null) {
+                        for (JsonNode item : items) {
+                            SearchResult result = new SearchResult();
+                            result.setTitle(item.path("title").asText());
+                            result.setLink(item.path("link").asText());
+                            result.setSnippet(item.path("snippet").asText());
+                            result.setDisplayLink(item.path("displayLink").asText());
+                            result.setKeywordContext(query);
+                            results.add(result);
+                        }
+                    }
+                    return List.copyOf(results);
+                });
+            } finally {
+                sample.stop(PipelineMetrics.SEARCH_CALL);
+            }
+        });
+    }
+
+    private static List<SearchResult> await(CompletableFuture<List<SearchResult>> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            } else if (e.getCause() instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            throw e;
+        }
+    }
+}
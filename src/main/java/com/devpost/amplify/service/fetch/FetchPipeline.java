@@ -0,0 +1,307 @@
+package com.devpost.amplify.service.fetch;
+
+import com.devpost.amplify.config.ExecutionMode;
+import com.devpost.amplify.config.logging.LogMarkers;
+import com.devpost.amplify.model.HtmlAnalysisResult;
+import com.devpost.amplify.model.SearchResult;
+import com.devpost.amplify.service.metrics.PipelineMetrics;
+import com.devpost.amplify.service.pipeline.QueryKeys;
+import com.devpost.amplify.service.resilience.UpstreamRejectedException;
+import jakarta.annotation.PreDestroy;
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Runs the search + scrape stage for every query concurrently.
+ * <p>
+ * Concurrency is bounded by a permit per blocking call and every query gets its own timeout,
+ * so the overall latency tracks the slowest page rather than the sum of all pages. A query
+ * that times out has its remaining work cancelled. Page
+ * downloads are paced per host by the {@link ScrapeScheduler}, so links on distinct hosts go
+ * out at once; pages already in the cache are returned without waiting for their host. When
+ * the top search result cannot be scraped, the next ones are tried before the query fails.
+ * Results are always returned in the order of the input queries.
+ * <p>
+ * Queries can also be {@linkplain #prefetch prefetched} while the client is still deciding
+ * whether to summarize them; a later fetch of the same query joins the prefetch if it is
+ * still running, and otherwise finds its search results and pages cached.
+ */
+@Service
+public class FetchPipeline {
+    private static final Logger logger = LoggerFactory.getLogger(FetchPipeline.class);
+
+    private final CustomSearchClient searchClient;
+    private final PageScraper pageScraper;
+    private final ScrapeScheduler scrapeScheduler;
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final long perQueryTimeoutMillis;
+    private final int maxLinksPerQuery;
+    private final ConcurrentMap<String, CompletableFuture<QueryFetchResult>> prefetches = new ConcurrentHashMap<>();
+
+    private final AtomicLong prefetched = new AtomicLong();
+    private final AtomicLong prefetchJoined = new AtomicLong();
+
+    public FetchPipeline(
+            CustomSearchClient searchClient,
+            PageScraper pageScraper,
+            ScrapeScheduler scrapeScheduler,
+            @Value("${amplify.fetch.max-concurrency:8}") int maxConcurrency,
+            @Value("${amplify.fetch.per-query-timeout-ms:30000}") long perQueryTimeoutMillis,
+            @Value("${amplify.fetch.max-links-per-query:3}") int maxLinksPerQuery,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads
+    ) {
+        this.searchClient = searchClient;
+        this.pageScraper = pageScraper;
+        this.scrapeScheduler = scrapeScheduler;
+        this.perQueryTimeoutMillis = perQueryTimeoutMillis;
+        this.maxLinksPerQuery = Math.max(1, maxLinksPerQuery);
+        this.executor = ExecutionMode.of(virtualThreads).newExecutor("FetchPipeline", maxConcurrency);
+        this.permits = new Semaphore(maxConcurrency);
+    }
+
+    /**
+     * Fetch all queries concurrently and wait for every one of them to finish or time out.
+     */
+    public List<QueryFetchResult> fetchAll(List<String> queries) {
+        List<CompletableFuture<QueryFetchResult>> futures = new ArrayList<>(queries.size());
+        for (String query : queries) {
+            futures.add(fetchAsync(query));
+        }
+
+        List<QueryFetchResult> results = new ArrayList<>(futures.size());
+        for (CompletableFuture<QueryFetchResult> future : futures) {
+            results.add(future.join());
+        }
+        return results;
+    }
+
+    /**
+     * Schedule the search + scrape for a single query. The returned future never completes
+     * exceptionally; errors and timeouts are reported as {@link QueryFetchResult.Status#FAILED}.
+     */
+    public CompletableFuture<QueryFetchResult> fetchAsync(String query) {
+        CompletableFuture<QueryFetchResult> pending = prefetches.get(QueryKeys.normalize(query));
+        if (pending == null) {
+            return fetch(query);
+        }
+
+        prefetchJoined.incrementAndGet();
+        logger.debug(LogMarkers.PER_QUERY, "Joining in-flight prefetch for query: {}", query);
+        // A failed prefetch may have been a transient error or timeout, so that one is retried
+        return pending.thenCompose(result -> result.status() == QueryFetchResult.Status.FAILED
+                ? fetch(query)
+                : CompletableFuture.completedFuture(new QueryFetchResult(query, result.status(), result.analysis())));
+    }
+
+    /**
+     * Start the search + scrape for {@code query} in the background, unless it is already
+     * being prefetched. The results land in the search and page caches.
+     */
+    public void prefetch(String query) {
+        String key = QueryKeys.normalize(query);
+        CompletableFuture<QueryFetchResult> created = new CompletableFuture<>();
+        if (prefetches.putIfAbsent(key, created) != null) {
+            return;
+        }
+
+        prefetched.incrementAndGet();
+        logger.debug(LogMarkers.PER_QUERY, "Prefetching query: {}", query);
+        fetch(query).whenComplete((result, e) -> {
+            prefetches.remove(key, created);
+            created.complete(result);
+        });
+    }
+
+    public Map<String, Object> stats() {
+        return Map.of(
+                "prefetched", prefetched.get(),
+                "prefetchJoined", prefetchJoined.get(),
+                "prefetchesInFlight", prefetches.size()
+        );
+    }
+
+    private CompletableFuture<QueryFetchResult> fetch(String query) {
+        Attempt attempt = new Attempt();
+        return CompletableFuture.supplyAsync(() -> search(query, attempt), executor)
+                .thenCompose(lookup -> lookup.result() != null
+                        ? CompletableFuture.completedFuture(lookup.result())
+                        : scrapeFirstAvailable(query, lookup.links(), 0, attempt))
+                .exceptionally(e -> {
+                    Throwable cause = unwrap(e);
+                    if (cause instanceof ScrapeScheduler.DisallowedException) {
+                        logger.info("Skipping query '{}': {}", query, cause.getMessage());
+                        return QueryFetchResult.skipped(query);
+                    }
+                    if (cause instanceof UpstreamRejectedException) {
+                        logger.warn("Not searching for query '{}': {}", query, cause.getMessage());
+                        return QueryFetchResult.failed(query);
+                    }
+                    logger.error("Error processing query '{}': {}", query, cause.getMessage());
+                    return QueryFetchResult.failed(query);
+                })
+                .completeOnTimeout(null, perQueryTimeoutMillis, TimeUnit.MILLISECONDS)
+                .thenApply(result -> {
+                    if (result == null) {
+                        attempt.cancel();
+                        logger.error("Error processing query '{}': timed out after {} ms", query, perQueryTimeoutMillis);
+                        result = QueryFetchResult.failed(query);
+                    }
+                    if (result.status() != QueryFetchResult.Status.SUCCESS) {
+                        PipelineMetrics.queryNotProcessed(result.status().name());
+                    }
+                    return result;
+                });
+    }
+
+    /**
+     * Either the links to scrape for a query, in result order, or its final result when there
+     * is nothing to scrape.
+     */
+    private record SearchLookup(List<String> links, QueryFetchResult result) {
+    }
+
+    private SearchLookup search(String query, Attempt attempt) {
+        List<SearchResult> results = withPermit(attempt, () -> searchClient.search(query));
+        if (results.isEmpty()) {
+            logger.warn("No items found for query '{}'", query);
+            return new SearchLookup(null, QueryFetchResult.failed(query));
+        }
+
+        List<String> links = new ArrayList<>(maxLinksPerQuery);
+        for (SearchResult result : results) {
+            String link = result.getLink();
+            if (StringUtils.isNotBlank(link) && !links.contains(link)) {
+                links.add(link);
+                if (links.size() == maxLinksPerQuery) {
+                    break;
+                }
+            }
+        }
+        if (links.isEmpty()) {
+            return new SearchLookup(null, QueryFetchResult.skipped(query));
+        }
+        return new SearchLookup(links, null);
+    }
+
+    /**
+     * Scrape {@code links[index]}, falling back to the next result when it is disallowed or
+     * fails; the last link's error decides the outcome if none of them can be scraped.
+     */
+    private CompletableFuture<QueryFetchResult> scrapeFirstAvailable(String query, List<String> links, int index,
+                                                                     Attempt attempt) {
+        String link = links.get(index);
+        return scrapeLink(query, link, attempt)
+                .handle((result, e) -> {
+                    if (e == null) {
+                        return CompletableFuture.completedFuture(result);
+                    }
+                    Throwable cause = unwrap(e);
+                    if (index + 1 == links.size() || attempt.cancelled) {
+                        return CompletableFuture.<QueryFetchResult>failedFuture(cause);
+                    }
+                    logger.debug(LogMarkers.PER_QUERY, "Trying the next result for query '{}', {} failed: {}",
+                            query, link, cause.getMessage());
+                    return scrapeFirstAvailable(query, links, index + 1, attempt);
+                })
+                .thenCompose(Function.identity());
+    }
+
+    private CompletableFuture<QueryFetchResult> scrapeLink(String query, String link, Attempt attempt) {
+        // Cached pages (e.g. warmed by a prefetch) need neither the host's pacing nor its robots.txt
+        return CompletableFuture.supplyAsync(() -> withPermit(attempt, () -> pageScraper.cached(link)), executor)
+                .thenCompose(cached -> cached != null
+                        ? CompletableFuture.completedFuture(QueryFetchResult.success(query, cached))
+                        : scrapeScheduler.submit(link, () -> scrape(query, link, attempt)));
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
+
+    private QueryFetchResult scrape(String query, String link, Attempt attempt) {
+        HtmlAnalysisResult analysisResult = withPermit(attempt, () -> pageScraper.scrape(link));
+        logger.debug(LogMarkers.PER_QUERY, "Successfully fetched content for query: {}", query);
+        return QueryFetchResult.success(query, analysisResult);
+    }
+
+    private <T> T withPermit(Attempt attempt, Callable<T> call) {
+        attempt.begin();
+        try {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(new InterruptedIOException("interrupted"));
+            }
+
+            try {
+                return call.call();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            } finally {
+                permits.release();
+            }
+        } finally {
+            attempt.end();
+        }
+    }
+
+    /**
+     * The work done for one query. When the query times out its blocking call is interrupted
+     * and the calls it has not started yet (the next link, a scrape still waiting for its
+     * host) are refused, so the permit and worker go back to queries that can still finish.
+     */
+    private static final class Attempt {
+        private volatile boolean cancelled;
+        private Thread runner;
+
+        synchronized void begin() {
+            if (cancelled) {
+                throw new CancellationException("query timed out");
+            }
+            runner = Thread.currentThread();
+        }
+
+        synchronized void end() {
+            runner = null;
+            if (cancelled) {
+                // Don't hand a pooled thread to the next task with our interrupt still pending
+                Thread.interrupted();
+            }
+        }
+
+        synchronized void cancel() {
+            cancelled = true;
+            if (runner != null) {
+                runner.interrupt();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,28 @@
+package com.devpost.amplify.service.fetch;
+
+import com.devpost.amplify.service.ContextPacker;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Aggregated output of the fetch stage: the packed scraped text to summarize plus which
+ * queries succeeded or failed.
+ */
+public record FetchedContent(String aggregatedText, List<String> successfulQueries, List<String> failedQueries) {
+
+    public static FetchedContent of(List<QueryFetchResult> results, ContextPacker packer) {
+        List<String> failedQueries = new ArrayList<>();
+        List<String> successfulQueries = new ArrayList<>();
+
+        for (QueryFetchResult result : results) {
+            switch (result.status()) {
+                case SUCCESS -> successfulQueries.add(result.query());
+                case FAILED -> failedQueries.add(result.query());
+                case SKIPPED -> { }
+            }
+        }
+
+        return new FetchedContent(packer.pack(results), successfulQueries, failedQueries);
+    }
+}
@@ -0,0 +1,163 @@
+package com.devpost.amplify.service.fetch;
+
+import com.devpost.amplify.model.HtmlAnalysisResult;
+import org.jsoup.nodes.Element;
+import org.jsoup.parser.Parser;
+import org.jsoup.parser.StreamParser;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Extracts the document title, meta description, first h1 and visible text of a page while
+ * it is being read.
+ * <p>
+ * Elements are handled as soon as they close and then removed, so the document never holds
+ * more than the currently open branch. Boilerplate containers (scripts, styles, navigation,
+ * headers, footers...) are dropped without collecting their text. Reading stops once enough
+ * text has been collected and the first h1 has been seen; pages without an h1 near the top
+ * (listings, many blogs) are only read a little further looking for one. The title and
+ * meta description come from the head, which is always read before any body text. Block texts are separated by newlines in
+ * {@code fullText} so they can be split into passages again.
+ */
+public final class HtmlExtractor {
+    private static final int CHARSET_SNIFF_BYTES = 1024;
+    // Elements read for a missing h1 once the text budget is full
+    private static final int H1_LOOKAHEAD_ELEMENTS = 100;
+    private static final Pattern META_CHARSET = Pattern.compile("charset\\s*=\\s*[\"']?([\\w.:-]+)", Pattern.CASE_INSENSITIVE);
+
+    private static final Set<String> SKIPPED = Set.of(
+            "script", "style", "noscript", "template", "svg", "canvas", "iframe",
+            "nav", "header", "footer", "aside", "form", "button", "select"
+    );
+    private static final String SKIPPED_SELECTOR = String.join(", ", SKIPPED);
+
+    private static final Set<String> BLOCKS = Set.of(
+            "p", "li", "dt", "dd", "h1", "h2", "h3", "h4", "h5", "h6", "pre", "blockquote",
+            "td", "th", "caption", "figcaption", "div", "section", "article", "main", "body"
+    );
+
+    private HtmlExtractor() {
+    }
+
+    /**
+     * Extract from {@code in}, which is read only as far as needed and is not closed.
+     *
+     * @param charset       declared charset, or {@code null} to sniff a meta tag and default to UTF-8
+     * @param maxTextLength characters of body text to keep
+     */
+    public static HtmlAnalysisResult extract(InputStream in, String charset, String baseUri,
+                                             int maxTextLength) throws IOException {
+        BufferedInputStream input = new BufferedInputStream(in);
+        Charset decoding = charset != null && isSupported(charset)
+                ? Charset.forName(charset)
+                : sniffCharset(input);
+
+        String title = null;
+        String metaDescription = "";
+        String h1 = null;
+        StringBuilder text = new StringBuilder(Math.min(maxTextLength, 16384) + 64);
+        int lookahead = H1_LOOKAHEAD_ELEMENTS;
+
+        // Not try-with-resources: closing the parser would close the caller's stream
+        StreamParser streamer = new StreamParser(Parser.htmlParser())
+                .parse(new InputStreamReader(input, decoding), baseUri);
+        try {
+            Iterator<Element> elements = streamer.iterator();
+            while (elements.hasNext()) {
+                Element el = elements.next();
+                String name = el.normalName();
+
+                if (SKIPPED.contains(name)) {
+                    el.remove();
+                    continue;
+                }
+
+                switch (name) {
+                    case "title" -> {
+                        // Only the document title; inline <svg> and <math> have their own, and the
+                        // element is emitted before its skipped container is removed
+                        if (title == null && el.closest("svg, math") == null) {
+                            title = el.text();
+                        }
+                    }
+                    case "meta" -> {
+                        if (metaDescription.isEmpty() && "description".equalsIgnoreCase(el.attr("name"))) {
+                            metaDescription = el.attr("content");
+                        }
+                    }
+                    case "h1" -> {
+                        if (h1 == null) {
+                            h1 = el.text();
+                        }
+                    }
+                    default -> {
+                    }
+                }
+
+                if (BLOCKS.contains(name)) {
+                    // Inside a skipped container that has not closed yet, e.g. a <p> in a <nav>
+                    boolean boilerplate = el.parent() != null && el.parent().closest(SKIPPED_SELECTOR) != null;
+                    if (!boilerplate && text.length() <= maxTextLength) {
+                        String blockText = el.text();
+                        if (!blockText.isEmpty()) {
+                            if (!text.isEmpty()) {
+                                text.append('\n');
+                            }
+                            text.append(blockText);
+                        }
+                    }
+                    el.remove();
+                }
+
+                if (text.length() > maxTextLength && (h1 != null || --lookahead <= 0)) {
+                    break;
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            streamer.stop();
+        }
+
+        String fullText = text.toString();
+        // Limit text length to prevent excessive token usage
+        if (fullText.length() > maxTextLength) {
+            fullText = fullText.substring(0, maxTextLength) + "...";
+        }
+
+        return new HtmlAnalysisResult(title == null ? "" : title, metaDescription, h1 == null ? "" : h1, fullText);
+    }
+
+    /**
+     * Look for a charset declaration near the start of the page without consuming it.
+     */
+    private static Charset sniffCharset(BufferedInputStream input) throws IOException {
+        input.mark(CHARSET_SNIFF_BYTES);
+        byte[] head = input.readNBytes(CHARSET_SNIFF_BYTES);
+        input.reset();
+
+        Matcher matcher = META_CHARSET.matcher(new String(head, StandardCharsets.ISO_8859_1));
+        if (matcher.find() && isSupported(matcher.group(1))) {
+            return Charset.forName(matcher.group(1));
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    private static boolean isSupported(String charset) {
+        try {
+            return Charset.isSupported(charset);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package com.devpost.amplify.service.fetch;
+
+import com.devpost.amplify.model.HtmlAnalysisResult;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Two-tier cache of scraped pages keyed by normalized URL.
+ * <p>
+ * The memory tier holds the extracted {@link HtmlAnalysisResult}, so a hit skips both the
+ * network and the parse. The disk tier holds the gzip-compressed part of each page body read
+ * during extraction, named by the SHA-256 of the normalized URL; a hit there skips the
+ * network and is promoted to memory. The response charset is kept with the body so a disk hit
+ * decodes it the same way as the original download.
+ * Entries older than the TTL are revalidated with {@code If-None-Match}/{@code If-Modified-Since}
+ * rather than downloaded again.
+ */
+@Component
+public class PageCache {
+    private static final Logger logger = LoggerFactory.getLogger(PageCache.class);
+    // Versioned so records written before the charset was stored are treated as misses and aged out
+    private static final String DISK_SUFFIX = ".v2.page.gz";
+
+    /**
+     * Cached page plus the validators needed to revalidate it.
+     */
+    public record CachedPage(HtmlAnalysisResult analysis, String charset, String etag, String lastModified,
+                             long fetchedAt) {
+
+        /** Whether a stale page can be revalidated rather than fetched unconditionally */
+        boolean canRevalidate() {
+            return etag != null || lastModified != null;
+        }
+    }
+
+    /**
+     * Turns a cached page body back into an analysis result.
+     */
+    @FunctionalInterface
+    public interface BodyParser {
+        /**
+         * @param charset the charset the origin declared for the body, or {@code null} to detect it
+         */
+        HtmlAnalysisResult parse(byte[] body, String charset) throws IOException;
+    }
+
+    private final Cache<String, CachedPage> memory;
+    private final Duration ttl;
+    private final Path diskDir;
+    private final long diskMaxBytes;
+    private final AtomicLong diskBytes = new AtomicLong();
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong revalidations = new AtomicLong();
+
+    public PageCache(
+            @Value("${amplify.page-cache.ttl:1h}") Duration ttl,
+            @Value("${amplify.page-cache.memory-entries:2000}") long memoryEntries,
+            @Value("${amplify.page-cache.disk-dir:data/page-cache}") Path diskDir,
+            @Value("${amplify.page-cache.disk-max-bytes:268435456}") long diskMaxBytes
+    ) {
+        this.ttl = ttl;
+        this.diskDir = diskDir;
+        this.diskMaxBytes = diskMaxBytes;
+        this.memory = Caffeine.newBuilder()
+                .maximumSize(memoryEntries)
+                .build();
+
+        if (Files.isDirectory(diskDir)) {
+            try (Stream<Path> files = diskFiles()) {
+                diskBytes.set(files.mapToLong(PageCache::sizeOf).sum());
+            } catch (IOException e) {
+                logger.warn("Could not scan page cache directory {}: {}", diskDir, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Normalize a URL so trivially different links share an entry: lower-case scheme and host,
+     * no default port, no fragment and no {@code utm_*} tracking parameters.
+     */
+    public static String key(String link) {
+        try {
+            URI uri = new URI(link.trim());
+            String scheme = uri.getScheme() == null ? "http" : uri.getScheme().toLowerCase(Locale.ROOT);
+            String host = uri.getHost() == null ? "" : uri.getHost().toLowerCase(Locale.ROOT);
+            int port = uri.getPort();
+            if (("http".equals(scheme) && port == 80) || ("https".equals(scheme) && port == 443)) {
+                port = -1;
+            }
+
+            String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+            String query = uri.getRawQuery() == null ? null : Arrays.stream(uri.getRawQuery().split("&"))
+                    .filter(param -> !param.isEmpty() && !param.startsWith("utm_"))
+                    .collect(Collectors.joining("&"));
+
+            StringBuilder key = new StringBuilder(link.length())
+                    .append(scheme).append("://").append(host);
+            if (port != -1) {
+                key.append(':').append(port);
+            }
+            key.append(path);
+            if (query != null && !query.isEmpty()) {
+                key.append('?').append(query);
+            }
+            return key.toString();
+        } catch (URISyntaxException e) {
+            return link.trim();
+        }
+    }
+
+    /**
+     * Find a cached page in memory, then on disk.
+     *
+     * @return the cached page or {@code null} on a miss
+     */
+    public CachedPage lookup(String key, BodyParser parser) {
+        CachedPage page = memory.getIfPresent(key);
+        if (page != null) {
+            memoryHits.incrementAndGet();
+            return page;
+        }
+
+        page = readFromDisk(key, parser);
+        if (page != null) {
+            diskHits.incrementAndGet();
+            memory.put(key, page);
+            return page;
+        }
+
+        misses.incrementAndGet();
+        return null;
+    }
+
+    public boolean isFresh(CachedPage page) {
+        return System.currentTimeMillis() - page.fetchedAt() < ttl.toMillis();
+    }
+
+    /**
+     * Store a freshly downloaded page in both tiers.
+     */
+    public void store(String key, CachedPage page, byte[] body) {
+        memory.put(key, page);
+        writeToDisk(key, page, body);
+    }
+
+    /**
+     * Mark a stale page as fresh again after the origin answered 304 Not Modified.
+     */
+    public CachedPage revalidated(String key, CachedPage page) {
+        revalidations.incrementAndGet();
+        long now = System.currentTimeMillis();
+        CachedPage refreshed = new CachedPage(page.analysis(), page.charset(), page.etag(), page.lastModified(), now);
+        memory.put(key, refreshed);
+
+        try {
+            Files.setLastModifiedTime(diskPath(key), FileTime.fromMillis(now));
+        } catch (IOException e) {
+            logger.debug("Could not touch cached page for {}: {}", key, e.getMessage());
+        }
+        return refreshed;
+    }
+
+    public Map<String, Object> stats() {
+        return Map.of(
+                "memoryHits", memoryHits.get(),
+                "diskHits", diskHits.get(),
+                "misses", misses.get(),
+                "revalidations", revalidations.get(),
+                "memoryEntries", memory.estimatedSize(),
+                "diskBytes", diskBytes.get()
+        );
+    }
+
+    // Disk format: charset:utf, etag:utf, lastModified:utf, gzip(body). Absent values are empty strings.
+    // The file's mtime is the fetch time.
+    private CachedPage readFromDisk(String key, BodyParser parser) {
+        Path file = diskPath(key);
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            String charset = in.readUTF();
+            String etag = in.readUTF();
+            String lastModified = in.readUTF();
+            byte[] body;
+            try (InputStream gzip = new GZIPInputStream(in)) {
+                body = gzip.readAllBytes();
+            }
+
+            charset = charset.isEmpty() ? null : charset;
+            return new CachedPage(
+                    parser.parse(body, charset),
+                    charset,
+                    etag.isEmpty() ? null : etag,
+                    lastModified.isEmpty() ? null : lastModified,
+                    Files.getLastModifiedTime(file).toMillis()
+            );
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            logger.warn("Discarding unreadable cached page for {}: {}", key, e.getMessage());
+            deleteQuietly(file);
+            return null;
+        }
+    }
+
+    private void writeToDisk(String key, CachedPage page, byte[] body) {
+        Path file = diskPath(key);
+        try {
+            Files.createDirectories(diskDir);
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.length / 4 + 64);
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                out.writeUTF(page.charset() == null ? "" : page.charset());
+                out.writeUTF(page.etag() == null ? "" : page.etag());
+                out.writeUTF(page.lastModified() == null ? "" : page.lastModified());
+                try (OutputStream gzip = new GZIPOutputStream(out)) {
+                    gzip.write(body);
+                }
+            }
+
+            Path tmp = Files.createTempFile(diskDir, "page", ".tmp");
+            Files.write(tmp, bytes.toByteArray());
+            long previousSize = sizeOf(file);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Files.setLastModifiedTime(file, FileTime.fromMillis(page.fetchedAt()));
+
+            if (diskBytes.addAndGet(bytes.size() - previousSize) > diskMaxBytes) {
+                evictFromDisk();
+            }
+        } catch (IOException e) {
+            logger.warn("Could not write cached page for {}: {}", key, e.getMessage());
+        }
+    }
+
+    /**
+     * Delete the least recently fetched bodies until the disk tier is back under 90% of its bound.
+     */
+    private synchronized void evictFromDisk() throws IOException {
+        long target = diskMaxBytes * 9 / 10;
+        if (diskBytes.get() <= target) {
+            return;
+        }
+
+        List<Path> oldestFirst;
+        try (Stream<Path> files = diskFiles()) {
+            oldestFirst = files
+                    .sorted((a, b) -> Long.compare(modifiedAt(a), modifiedAt(b)))
+                    .toList();
+        }
+
+        int evicted = 0;
+        for (Path file : oldestFirst) {
+            if (diskBytes.get() <= target) {
+                break;
+            }
+            long size = sizeOf(file);
+            if (deleteQuietly(file)) {
+                diskBytes.addAndGet(-size);
+                evicted++;
+            }
+        }
+        logger.debug("Evicted {} cached pages from disk, {} bytes remaining", evicted, diskBytes.get());
+    }
+
+    private Stream<Path> diskFiles() throws IOException {
+        return Files.list(diskDir).filter(file -> file.getFileName().toString().endsWith(DISK_SUFFIX));
+    }
+
+    private Path diskPath(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return diskDir.resolve(HexFormat.of().formatHex(digest) + DISK_SUFFIX);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static long modifiedAt(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static boolean deleteQuietly(Path file) {
+        try {
+            return Files.deleteIfExists(file);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
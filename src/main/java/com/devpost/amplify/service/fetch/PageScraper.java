@@ -0,0 +1,131 @@
+package com.devpost.amplify.service.fetch;
+
+import com.devpost.amplify.config.logging.LogMarkers;
+import com.devpost.amplify.model.HtmlAnalysisResult;
+import com.devpost.amplify.service.http.OutboundHttpClient;
+import com.devpost.amplify.service.metrics.PipelineMetrics;
+import io.micrometer.core.instrument.Timer;
+import okhttp3.MediaType;
+import org.jsoup.HttpStatusException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Downloads a page and extracts the fields used for analysis, going through the
+ * {@link PageCache} so repeated links skip the network and the parse.
+ * <p>
+ * The body is fed to the {@link HtmlExtractor} as it arrives and the download stops as soon
+ * as the extractor has enough, or after {@code amplify.scrape.max-download-bytes}.
+ */
+@Service
+public class PageScraper {
+    private static final Logger logger = LoggerFactory.getLogger(PageScraper.class);
+
+    private final PageCache pageCache;
+    private final OutboundHttpClient httpClient;
+    private final long maxDownloadBytes;
+    private final int maxTextLength;
+
+    public PageScraper(
+            PageCache pageCache,
+            OutboundHttpClient httpClient,
+            @Value("${amplify.scrape.max-download-bytes:1048576}") long maxDownloadBytes,
+            @Value("${amplify.scrape.max-text-chars:8000}") int maxTextLength
+    ) {
+        this.pageCache = pageCache;
+        this.httpClient = httpClient;
+        this.maxDownloadBytes = maxDownloadBytes;
+        this.maxTextLength = maxTextLength;
+    }
+
+    /**
+     * The analysis of {@code link} if the cache holds a fresh one, without going to the network.
+     *
+     * @return the cached analysis, or {@code null} if the page has to be fetched
+     */
+    public HtmlAnalysisResult cached(String link) throws IOException {
+        PageCache.CachedPage cached = lookup(PageCache.key(link), link);
+        return cached != null && pageCache.isFresh(cached) ? cached.analysis() : null;
+    }
+
+    public HtmlAnalysisResult scrape(String link) throws IOException {
+        String key = PageCache.key(link);
+        PageCache.CachedPage cached = lookup(key, link);
+        if (cached != null && pageCache.isFresh(cached)) {
+            logger.debug(LogMarkers.PER_QUERY, "Page cache hit for {}", key);
+            return cached.analysis();
+        }
+
+        Map<String, String> headers = new HashMap<>();
+        boolean revalidating = cached != null && cached.canRevalidate();
+        if (revalidating) {
+            if (cached.etag() != null) {
+                headers.put("If-None-Match", cached.etag());
+            }
+            if (cached.lastModified() != null) {
+                headers.put("If-Modified-Since", cached.lastModified());
+            }
+        }
+
+        Timer.Sample sample = Timer.start();
+        try {
+            return fetch(link, key, cached, revalidating, headers);
+        } finally {
+            sample.stop(PipelineMetrics.SCRAPE_FETCH);
+        }
+    }
+
+    private PageCache.CachedPage lookup(String key, String link) throws IOException {
+        return pageCache.lookup(key, (body, charset) -> {
+            Timer.Sample parse = Timer.start();
+            try {
+                return HtmlExtractor.extract(new ByteArrayInputStream(body), charset, link, maxTextLength);
+            } finally {
+                parse.stop(PipelineMetrics.HTML_PARSE);
+            }
+        });
+    }
+
+    private HtmlAnalysisResult fetch(String link, String key, PageCache.CachedPage cached, boolean revalidating,
+                                     Map<String, String> headers) throws IOException {
+        return httpClient.get(link, headers, response -> {
+            if (revalidating && response.code() == 304) {
+                logger.debug(LogMarkers.PER_QUERY, "Page cache entry for {} revalidated", key);
+                return pageCache.revalidated(key, cached).analysis();
+            }
+
+            if (!response.isSuccessful()) {
+                throw new HttpStatusException("HTTP error fetching URL", response.code(), link);
+            }
+
+            MediaType contentType = response.body().contentType();
+            Charset charset = contentType == null ? null : contentType.charset();
+            BoundedRecordingInputStream body = new BoundedRecordingInputStream(response.body().byteStream(), maxDownloadBytes);
+            // The body is parsed as it downloads, so this includes the time spent reading it
+            Timer.Sample parse = Timer.start();
+            String charsetName = charset == null ? null : charset.name();
+            HtmlAnalysisResult analysis = HtmlExtractor.extract(body, charsetName, link, maxTextLength);
+            parse.stop(PipelineMetrics.HTML_PARSE);
+            if (body.truncated()) {
+                logger.debug(LogMarkers.PER_QUERY, "Stopped reading {} at the {} byte cap", link, maxDownloadBytes);
+            }
+            pageCache.store(key, new PageCache.CachedPage(
+                    analysis,
+                    charsetName,
+                    response.header("ETag"),
+                    response.header("Last-Modified"),
+                    System.currentTimeMillis()
+            ), body.recorded());
+
+            return analysis;
+        });
+    }
+}
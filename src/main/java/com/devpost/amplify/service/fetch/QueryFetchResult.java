@@ -0,0 +1,30 @@
+package com.devpost.amplify.service.fetch;
+
+import com.devpost.amplify.model.HtmlAnalysisResult;
+
+/**
+ * Outcome of the search + scrape stage for a single query.
+ */
+public record QueryFetchResult(String query, Status status, HtmlAnalysisResult analysis) {
+
+    public enum Status {
+        /** Page was found and scraped */
+        SUCCESS,
+        /** Search or scrape failed, or the search returned no items */
+        FAILED,
+        /** Search returned an item without a link; the query is neither processed nor failed */
+        SKIPPED
+    }
+
+    public static QueryFetchResult success(String query, HtmlAnalysisResult analysis) {
+        return new QueryFetchResult(query, Status.SUCCESS, analysis);
+    }
+
+    public static QueryFetchResult failed(String query) {
+        return new QueryFetchResult(query, Status.FAILED, null);
+    }
+
+    public static QueryFetchResult skipped(String query) {
+        return new QueryFetchResult(query, Status.SKIPPED, null);
+    }
+}
@@ -0,0 +1,159 @@
+package com.devpost.amplify.service.fetch;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The parts of a robots.txt file that apply to this crawler: the crawl delay and the
+ * allow/disallow path patterns of the matching user-agent group.
+ * <p>
+ * Groups naming {@code agentToken} take precedence over the {@code *} group. A group names the
+ * token when the product token at the start of its {@code User-agent} value, e.g. {@code amplify}
+ * in {@code Amplify/1.0}, equals it ignoring case. Patterns follow
+ * RFC 9309: a rule matches paths starting with it, {@code *} matches any run of characters
+ * and a trailing {@code $} anchors the rule at the end of the path.
+ */
+public record RobotsRules(Duration crawlDelay, List<String> allow, List<String> disallow) {
+
+    public static final RobotsRules ALLOW_ALL = new RobotsRules(Duration.ZERO, List.of(), List.of());
+
+    /**
+     * Whether {@code path} may be fetched. The longest matching rule wins and allow wins ties.
+     */
+    public boolean allows(String path) {
+        String target = path == null || path.isEmpty() ? "/" : path;
+        int allowMatch = longestMatch(allow, target);
+        int disallowMatch = longestMatch(disallow, target);
+        return disallowMatch < 0 || allowMatch >= disallowMatch;
+    }
+
+    private static int longestMatch(List<String> rules, String path) {
+        int longest = -1;
+        for (String rule : rules) {
+            if (rule.length() > longest && matches(rule, path)) {
+                longest = rule.length();
+            }
+        }
+        return longest;
+    }
+
+    /**
+     * Wildcard match of {@code rule} against the start of {@code path}, or the whole path if the
+     * rule ends in {@code $}. On a mismatch the last {@code *} is retried one character further.
+     */
+    static boolean matches(String rule, String path) {
+        boolean anchored = rule.endsWith("$");
+        int end = anchored ? rule.length() - 1 : rule.length();
+        int r = 0;
+        int p = 0;
+        int star = -1;
+        int starPath = 0;
+        while (p < path.length()) {
+            if (r < end && rule.charAt(r) == '*') {
+                star = r++;
+                starPath = p;
+            } else if (r < end && rule.charAt(r) == path.charAt(p)) {
+                r++;
+                p++;
+            } else if (r == end && !anchored) {
+                return true;
+            } else if (star >= 0) {
+                r = star + 1;
+                p = ++starPath;
+            } else {
+                return false;
+            }
+        }
+        while (r < end && rule.charAt(r) == '*') {
+            r++;
+        }
+        return r == end;
+    }
+
+    public static RobotsRules parse(String body, String agentToken) {
+        Group wildcard = null;
+        Group specific = null;
+
+        Group current = null;
+        boolean inAgentLines = false;
+
+        for (String rawLine : body.split("\r?\n|\r")) {
+            int comment = rawLine.indexOf('#');
+            String line = (comment >= 0 ? rawLine.substring(0, comment) : rawLine).trim();
+            int colon = line.indexOf(':');
+            if (colon <= 0) {
+                continue;
+            }
+
+            String field = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            String value = line.substring(colon + 1).trim();
+
+            if (field.equals("user-agent")) {
+                if (!inAgentLines) {
+                    current = new Group();
+                    inAgentLines = true;
+                }
+                if (value.equals("*") && wildcard == null) {
+                    wildcard = current;
+                } else if (productToken(value).equalsIgnoreCase(agentToken) && specific == null) {
+                    specific = current;
+                }
+                continue;
+            }
+
+            inAgentLines = false;
+            if (current == null) {
+                continue;
+            }
+
+            switch (field) {
+                case "allow" -> current.allow.add(value);
+                case "disallow" -> {
+                    // An empty Disallow allows everything
+                    if (!value.isEmpty()) {
+                        current.disallow.add(value);
+                    }
+                }
+                case "crawl-delay" -> {
+                    try {
+                        current.crawlDelay = Duration.ofMillis((long) (Double.parseDouble(value) * 1000));
+                    } catch (NumberFormatException ignored) {
+                        // Malformed values are ignored like any other unknown line
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+
+        Group group = specific != null ? specific : wildcard;
+        if (group == null) {
+            return ALLOW_ALL;
+        }
+        return new RobotsRules(group.crawlDelay, List.copyOf(group.allow), List.copyOf(group.disallow));
+    }
+
+    /**
+     * The leading run of letters, {@code _} and {@code -} in a {@code User-agent} value, which
+     * drops a version or comment such as {@code /1.0 (+https://...)}.
+     */
+    static String productToken(String value) {
+        int end = 0;
+        while (end < value.length()) {
+            char c = value.charAt(end);
+            if (!(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c == '_' || c == '-')) {
+                break;
+            }
+            end++;
+        }
+        return value.substring(0, end);
+    }
+
+    private static final class Group {
+        private final List<String> allow = new ArrayList<>();
+        private final List<String> disallow = new ArrayList<>();
+        private Duration crawlDelay = Duration.ZERO;
+    }
+}
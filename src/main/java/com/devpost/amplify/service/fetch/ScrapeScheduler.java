@@ -0,0 +1,288 @@
+package com.devpost.amplify.service.fetch;
+
+import com.devpost.amplify.config.ExecutionMode;
+import com.devpost.amplify.service.http.OutboundHttpClient;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Paces scrapes per host.
+ * <p>
+ * Every host has a token bucket refilled once per {@code max(min-delay, robots crawl-delay)}
+ * and a cap on concurrent requests. Requests to a host that has a token and a free slot
+ * start immediately; the rest wait in a per-host queue that a timer drains when the next
+ * token is due, so no thread is parked while waiting. Paths disallowed by robots.txt fail
+ * with {@link DisallowedException}.
+ * <p>
+ * A host is forgotten, along with its robots.txt, once it has had nothing queued or in flight
+ * for {@code robots-ttl}; hosts with outstanding requests never expire, so a long queue keeps
+ * its pacing.
+ */
+@Component
+public class ScrapeScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(ScrapeScheduler.class);
+    private static final String ROBOTS_AGENT = "amplify";
+    private static final long MAX_ROBOTS_BYTES = 512 * 1024;
+
+    /**
+     * Thrown when robots.txt disallows the requested path.
+     */
+    public static class DisallowedException extends IOException {
+        public DisallowedException(String link) {
+            super("Disallowed by robots.txt: " + link);
+        }
+    }
+
+    private final OutboundHttpClient httpClient;
+    private final ExecutorService workers;
+    private final ScheduledExecutorService timer;
+    private final Cache<String, Host> hosts;
+    private final long idleTtlNanos;
+    private final long minDelayNanos;
+    private final long maxCrawlDelayNanos;
+    private final int maxPerHost;
+    private final int burst;
+    private final boolean respectRobots;
+
+    private final AtomicLong immediate = new AtomicLong();
+    private final AtomicLong delayed = new AtomicLong();
+    private final AtomicLong disallowed = new AtomicLong();
+
+    public ScrapeScheduler(
+            OutboundHttpClient httpClient,
+            @Value("${amplify.scrape.min-delay:750ms}") Duration minDelay,
+            @Value("${amplify.scrape.max-crawl-delay:10s}") Duration maxCrawlDelay,
+            @Value("${amplify.scrape.max-per-host:2}") int maxPerHost,
+            @Value("${amplify.scrape.burst:1}") int burst,
+            @Value("${amplify.scrape.respect-robots:true}") boolean respectRobots,
+            @Value("${amplify.scrape.robots-ttl:1h}") Duration robotsTtl,
+            @Value("${amplify.fetch.max-concurrency:8}") int maxConcurrency,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads
+    ) {
+        this.httpClient = httpClient;
+        this.minDelayNanos = minDelay.toNanos();
+        this.maxCrawlDelayNanos = maxCrawlDelay.toNanos();
+        this.maxPerHost = maxPerHost;
+        this.burst = Math.max(1, burst);
+        this.respectRobots = respectRobots;
+        this.workers = ExecutionMode.of(virtualThreads).newExecutor("ScrapeScheduler", maxConcurrency);
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ScrapeScheduler-timer");
+            t.setDaemon(true);
+            return t;
+        });
+        this.idleTtlNanos = robotsTtl.toNanos();
+        // Dropping an idle host also forgets its robots.txt, which is then fetched again
+        this.hosts = Caffeine.newBuilder()
+                .expireAfter(new Expiry<String, Host>() {
+                    @Override
+                    public long expireAfterCreate(String origin, Host host, long currentTime) {
+                        return host.expiresAfterNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String origin, Host host, long currentTime, long currentDuration) {
+                        return host.expiresAfterNanos();
+                    }
+
+                    @Override
+                    public long expireAfterRead(String origin, Host host, long currentTime, long currentDuration) {
+                        return host.expiresAfterNanos();
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Run {@code task}, a request to {@code link}, once its host allows another request.
+     */
+    public <T> CompletableFuture<T> submit(String link, Callable<T> task) {
+        URI uri;
+        try {
+            uri = URI.create(link);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(new IOException("Invalid URL: " + link, e));
+        }
+        if (uri.getScheme() == null || uri.getHost() == null) {
+            return CompletableFuture.failedFuture(new IOException("Invalid URL: " + link));
+        }
+
+        String origin = uri.getScheme().toLowerCase(Locale.ROOT) + "://" + uri.getHost().toLowerCase(Locale.ROOT)
+                + (uri.getPort() >= 0 ? ":" + uri.getPort() : "");
+        Host host = hosts.get(origin, Host::new);
+        host.acquire();
+
+        return host.robots().<T>thenCompose(rules -> {
+            // Rules can match the query string too, e.g. "Disallow: /*?sort="
+            String target = uri.getRawQuery() == null ? uri.getRawPath() : uri.getRawPath() + "?" + uri.getRawQuery();
+            if (!rules.allows(target)) {
+                disallowed.incrementAndGet();
+                return CompletableFuture.failedFuture(new DisallowedException(link));
+            }
+            CompletableFuture<T> result = new CompletableFuture<>();
+            host.enqueue(() -> {
+                try {
+                    result.complete(task.call());
+                } catch (Exception e) {
+                    result.completeExceptionally(e);
+                }
+            });
+            return result;
+        }).whenComplete((result, error) -> host.release());
+    }
+
+    public Map<String, Object> stats() {
+        return Map.of(
+                "hosts", hosts.estimatedSize(),
+                "immediate", immediate.get(),
+                "delayed", delayed.get(),
+                "disallowed", disallowed.get()
+        );
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    private final class Host {
+        private final String origin;
+        private final Deque<Runnable> pending = new ArrayDeque<>();
+        // Submitted requests not yet finished: waiting for robots.txt, queued or running
+        private volatile int outstanding;
+        private CompletableFuture<RobotsRules> robots;
+        private long intervalNanos = minDelayNanos;
+        private double tokens = burst;
+        private long refilledAt = System.nanoTime();
+        private int inFlight;
+        private boolean drainScheduled;
+
+        private Host(String origin) {
+            this.origin = origin;
+        }
+
+        /** Called by the cache without this host's lock, so it only reads the volatile count */
+        private long expiresAfterNanos() {
+            return outstanding > 0 ? Long.MAX_VALUE : idleTtlNanos;
+        }
+
+        private synchronized void acquire() {
+            if (outstanding++ == 0) {
+                setExpiry();
+            }
+        }
+
+        private synchronized void release() {
+            if (--outstanding == 0) {
+                setExpiry();
+            }
+        }
+
+        // Reads only update the expiry on the next access, so pin and unpin the host explicitly
+        // when it turns busy or idle. Under this host's lock, so the last transition wins.
+        private void setExpiry() {
+            hosts.policy().expireVariably().ifPresent(policy -> {
+                if (hosts.asMap().get(origin) == this) {
+                    policy.setExpiresAfter(origin, expiresAfterNanos(), TimeUnit.NANOSECONDS);
+                }
+            });
+        }
+
+        private synchronized CompletableFuture<RobotsRules> robots() {
+            if (robots == null) {
+                robots = respectRobots
+                        ? CompletableFuture.supplyAsync(this::fetchRobots, workers)
+                        : CompletableFuture.completedFuture(RobotsRules.ALLOW_ALL);
+            }
+            return robots;
+        }
+
+        private RobotsRules fetchRobots() {
+            RobotsRules rules;
+            try {
+                rules = httpClient.get(origin + "/robots.txt", Map.of(), response -> response.isSuccessful()
+                        ? RobotsRules.parse(response.peekBody(MAX_ROBOTS_BYTES).string(), ROBOTS_AGENT)
+                        : RobotsRules.ALLOW_ALL);
+            } catch (Exception e) {
+                logger.debug("Could not fetch robots.txt for {}: {}", origin, e.getMessage());
+                rules = RobotsRules.ALLOW_ALL;
+            }
+
+            long crawlDelayNanos = Math.min(rules.crawlDelay().toNanos(), maxCrawlDelayNanos);
+            synchronized (this) {
+                intervalNanos = Math.max(minDelayNanos, crawlDelayNanos);
+            }
+            return rules;
+        }
+
+        private synchronized void enqueue(Runnable request) {
+            pending.add(request);
+            drain();
+            (pending.contains(request) ? delayed : immediate).incrementAndGet();
+        }
+
+        private synchronized void drain() {
+            while (!pending.isEmpty() && inFlight < maxPerHost) {
+                long now = System.nanoTime();
+                if (intervalNanos > 0) {
+                    tokens = Math.min(burst, tokens + (double) (now - refilledAt) / intervalNanos);
+                } else {
+                    tokens = burst;
+                }
+                refilledAt = now;
+
+                if (tokens < 1) {
+                    if (!drainScheduled) {
+                        drainScheduled = true;
+                        long waitNanos = (long) Math.ceil((1 - tokens) * intervalNanos);
+                        timer.schedule(this::scheduledDrain, waitNanos, TimeUnit.NANOSECONDS);
+                    }
+                    return;
+                }
+
+                tokens -= 1;
+                inFlight++;
+                Runnable request = pending.poll();
+                workers.execute(() -> {
+                    try {
+                        request.run();
+                    } finally {
+                        finished();
+                    }
+                });
+            }
+        }
+
+        private synchronized void scheduledDrain() {
+            drainScheduled = false;
+            drain();
+        }
+
+        private synchronized void finished() {
+            inFlight--;
+            drain();
+        }
+    }
+}
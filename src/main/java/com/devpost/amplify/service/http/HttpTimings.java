@@ -0,0 +1,66 @@
+package com.devpost.amplify.service.http;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Aggregated latency of the phases of outbound requests.
+ */
+public class HttpTimings {
+
+    public enum Phase {
+        /** TCP connect, including the TLS handshake for HTTPS */
+        CONNECT,
+        /** TLS handshake only */
+        TLS,
+        /** From the start of the call to the first response header byte */
+        TTFB,
+        /** Whole call, including reading the body */
+        TOTAL
+    }
+
+    private static final class Stat {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+    }
+
+    private final Map<Phase, Stat> stats = new EnumMap<>(Phase.class);
+    private final LongAdder newConnections = new LongAdder();
+    private final LongAdder reusedConnections = new LongAdder();
+
+    public HttpTimings() {
+        for (Phase phase : Phase.values()) {
+            stats.put(phase, new Stat());
+        }
+    }
+
+    public void record(Phase phase, long nanos) {
+        Stat stat = stats.get(phase);
+        stat.count.increment();
+        stat.totalNanos.add(nanos);
+        stat.maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public void connectionAcquired(boolean reused) {
+        (reused ? reusedConnections : newConnections).increment();
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        stats.forEach((phase, stat) -> {
+            long count = stat.count.sum();
+            snapshot.put(phase.name().toLowerCase(), Map.of(
+                    "count", count,
+                    "avgMs", count == 0 ? 0 : stat.totalNanos.sum() / count / 1_000_000.0,
+                    "maxMs", stat.maxNanos.get() / 1_000_000.0
+            ));
+        });
+        snapshot.put("newConnections", newConnections.sum());
+        snapshot.put("reusedConnections", reusedConnections.sum());
+        return snapshot;
+    }
+}
@@ -0,0 +1,185 @@
+package com.devpost.amplify.service.http;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.ConnectionPool;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.brotli.BrotliInterceptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared client for all outbound search and scrape traffic.
+ * <p>
+ * Connections are pooled and kept alive, HTTP/2 is negotiated where the server supports it,
+ * and gzip/brotli bodies are decoded transparently. Each host gets a fixed number of
+ * concurrent requests; connect, TLS and time-to-first-byte latencies are aggregated in
+ * {@link HttpTimings}.
+ */
+@Component
+public class OutboundHttpClient {
+    private static final Logger logger = LoggerFactory.getLogger(OutboundHttpClient.class);
+    public static final String USER_AGENT = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36";
+
+    /**
+     * Consumes a response while the per-host permit is held. The response is closed afterwards.
+     */
+    @FunctionalInterface
+    public interface ResponseHandler<T> {
+        T handle(Response response) throws IOException;
+    }
+
+    private final OkHttpClient client;
+    private final HttpTimings timings = new HttpTimings();
+    private final Cache<String, Semaphore> hostPermits;
+    private final int maxPerHost;
+    private final Duration permitTimeout;
+
+    public OutboundHttpClient(
+            @Value("${amplify.http.max-per-host:4}") int maxPerHost,
+            @Value("${amplify.http.max-idle-connections:32}") int maxIdleConnections,
+            @Value("${amplify.http.keep-alive:5m}") Duration keepAlive,
+            @Value("${amplify.http.connect-timeout:10s}") Duration connectTimeout,
+            @Value("${amplify.http.read-timeout:10s}") Duration readTimeout,
+            @Value("${amplify.http.call-timeout:20s}") Duration callTimeout
+    ) {
+        this.maxPerHost = maxPerHost;
+        this.permitTimeout = connectTimeout.plus(readTimeout);
+        // Scraping touches many hosts only once, so a host's permits are dropped along with its idle connections
+        this.hostPermits = Caffeine.newBuilder()
+                .expireAfterAccess(keepAlive)
+                .build();
+        this.client = new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(maxIdleConnections, keepAlive.toMillis(), TimeUnit.MILLISECONDS))
+                .protocols(List.of(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .addInterceptor(BrotliInterceptor.INSTANCE)
+                .connectTimeout(connectTimeout)
+                .readTimeout(readTimeout)
+                // The read timeout is per socket read, so a slowly trickling body needs an overall bound too
+                .callTimeout(callTimeout)
+                .followRedirects(true)
+                .eventListenerFactory(call -> new TimingListener())
+                .build();
+    }
+
+    /**
+     * Send a GET request and hand the response to {@code handler}.
+     */
+    public <T> T get(String url, Map<String, String> headers, ResponseHandler<T> handler) throws IOException {
+        HttpUrl httpUrl = HttpUrl.parse(url);
+        if (httpUrl == null) {
+            throw new IOException("Invalid URL: " + url);
+        }
+
+        Request.Builder request = new Request.Builder().url(httpUrl).get().header("User-Agent", USER_AGENT);
+        headers.forEach(request::header);
+
+        Semaphore permits = hostPermits.get(httpUrl.host(), host -> new Semaphore(maxPerHost));
+        try {
+            if (!permits.tryAcquire(permitTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new IOException("Timed out waiting for a connection slot to " + httpUrl.host());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for a connection slot to " + httpUrl.host());
+        }
+
+        try (Response response = client.newCall(request.build()).execute()) {
+            return handler.handle(response);
+        } finally {
+            permits.release();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>(timings.snapshot());
+        stats.put("pooledConnections", client.connectionPool().connectionCount());
+        stats.put("idleConnections", client.connectionPool().idleConnectionCount());
+        stats.put("trackedHosts", hostPermits.estimatedSize());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        client.dispatcher().executorService().shutdown();
+        client.connectionPool().evictAll();
+    }
+
+    /**
+     * Per-call listener measuring the phases of one request.
+     */
+    private final class TimingListener extends EventListener {
+        private long callStart;
+        private long connectStart;
+        private long secureConnectStart;
+        private boolean connected;
+
+        @Override
+        public void callStart(Call call) {
+            callStart = System.nanoTime();
+        }
+
+        @Override
+        public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+            connectStart = System.nanoTime();
+            connected = true;
+        }
+
+        @Override
+        public void secureConnectStart(Call call) {
+            secureConnectStart = System.nanoTime();
+        }
+
+        @Override
+        public void secureConnectEnd(Call call, Handshake handshake) {
+            timings.record(HttpTimings.Phase.TLS, System.nanoTime() - secureConnectStart);
+        }
+
+        @Override
+        public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+            timings.record(HttpTimings.Phase.CONNECT, System.nanoTime() - connectStart);
+        }
+
+        @Override
+        public void connectionAcquired(Call call, Connection connection) {
+            timings.connectionAcquired(!connected);
+        }
+
+        @Override
+        public void responseHeadersStart(Call call) {
+            timings.record(HttpTimings.Phase.TTFB, System.nanoTime() - callStart);
+        }
+
+        @Override
+        public void callEnd(Call call) {
+            timings.record(HttpTimings.Phase.TOTAL, System.nanoTime() - callStart);
+        }
+
+        @Override
+        public void callFailed(Call call, IOException ioe) {
+            logger.debug("Outbound call to {} failed: {}", call.request().url().host(), ioe.getMessage());
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.devpost.amplify.service.jobs;
+
+import com.devpost.amplify.service.fetch.FetchPipeline;
+import com.devpost.amplify.service.fetch.QueryFetchResult;
+import com.devpost.amplify.service.pipeline.PipelineStages;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Durable queue of pipeline runs worked off by a fixed pool of workers.
+ * <p>
+ * Each job runs the query → summarize → generate stages and checkpoints after every stage,
+ * so a failed stage is retried with exponential backoff without repeating the stages before
+ * it, and jobs interrupted by a restart resume where they stopped. New jobs are refused
+ * once {@code amplify.jobs.max-depth} jobs are queued or running.
+ * <p>
+ * Workers are started with the application context rather than on construction, so they
+ * never claim a job before the rest of the pipeline is wired up, and stopped with it.
+ */
+@Service
+public class JobQueue implements SmartLifecycle {
+    private static final Logger logger = LoggerFactory.getLogger(JobQueue.class);
+    private static final long CLEANUP_INTERVAL_MILLIS = Duration.ofMinutes(10).toMillis();
+
+    /**
+     * Thrown when the queue is at its depth bound.
+     */
+    public static class QueueFullException extends RuntimeException {
+        public QueueFullException(int depth) {
+            super("Job queue is full (" + depth + " pending jobs)");
+        }
+    }
+
+    private final JobRepository repository;
+    private final PipelineStages stages;
+    private final FetchPipeline fetchPipeline;
+    private final int maxDepth;
+    private final int maxAttempts;
+    private final long retryBackoffMillis;
+    private final long pollIntervalMillis;
+    private final long retentionMillis;
+    private final int workerCount;
+    private final List<Thread> workers = new ArrayList<>();
+    // Makes the depth check and the insert one step, so concurrent enqueues cannot overshoot the bound
+    private final Object enqueueLock = new Object();
+    // Released on enqueue so an idle worker picks the job up without waiting for the next poll
+    private final Semaphore wakeups = new Semaphore(0);
+    private volatile boolean running;
+    private volatile long lastCleanup;
+
+    public JobQueue(
+            JobRepository repository,
+            PipelineStages stages,
+            FetchPipeline fetchPipeline,
+            @Value("${amplify.jobs.workers:4}") int workerCount,
+            @Value("${amplify.jobs.max-depth:1000}") int maxDepth,
+            @Value("${amplify.jobs.max-attempts:3}") int maxAttempts,
+            @Value("${amplify.jobs.retry-backoff:5s}") Duration retryBackoff,
+            @Value("${amplify.jobs.poll-interval:1s}") Duration pollInterval,
+            @Value("${amplify.jobs.retention:24h}") Duration retention
+    ) {
+        this.repository = repository;
+        this.stages = stages;
+        this.fetchPipeline = fetchPipeline;
+        this.maxDepth = maxDepth;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoffMillis = retryBackoff.toMillis();
+        this.pollIntervalMillis = pollInterval.toMillis();
+        this.retentionMillis = retention.toMillis();
+        this.workerCount = workerCount;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        int recovered = repository.requeueRunning();
+        if (recovered > 0) {
+            logger.info("Requeued {} jobs interrupted by the previous shutdown", recovered);
+        }
+
+        running = true;
+        for (int i = 1; i <= workerCount; i++) {
+            Thread worker = new Thread(this::workLoop, "JobWorker-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        workers.forEach(Thread::interrupt);
+        workers.clear();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Queue a pipeline run.
+     *
+     * @param queries     queries to use instead of generating them from the seed, may be empty
+     * @param contentType content to generate, or {@code null} to stop after the analysis
+     * @throws QueueFullException when {@code amplify.jobs.max-depth} jobs are pending
+     */
+    public PipelineJob enqueue(String seedTerm, List<String> queries, String contentType) {
+        long now = System.currentTimeMillis();
+        PipelineJob job = new PipelineJob(
+                UUID.randomUUID().toString(),
+                PipelineJob.Status.QUEUED,
+                queries.isEmpty() ? PipelineJob.Stage.QUERIES : PipelineJob.Stage.SUMMARY,
+                seedTerm,
+                contentType,
+                queries,
+                List.of(),
+                null,
+                null,
+                0,
+                null,
+                now,
+                now
+        );
+        int pending;
+        synchronized (enqueueLock) {
+            pending = repository.countPending();
+            if (pending >= maxDepth) {
+                throw new QueueFullException(pending);
+            }
+            repository.insert(job);
+        }
+        wakeups.release();
+
+        logger.info("Queued job {} ({} pending)", job.id(), pending + 1);
+        return job;
+    }
+
+    public Optional<PipelineJob> find(String jobId) {
+        return repository.find(jobId);
+    }
+
+    public int depth() {
+        return repository.countPending();
+    }
+
+    private void workLoop() {
+        while (running) {
+            try {
+                Optional<PipelineJob> job = repository.claimNext(System.currentTimeMillis());
+                if (job.isPresent()) {
+                    process(job.get());
+                } else {
+                    cleanupIfDue();
+                    wakeups.tryAcquire(pollIntervalMillis, TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                // Database trouble: back off instead of spinning
+                logger.error("Job worker error: {}", e.getMessage(), e);
+                try {
+                    Thread.sleep(pollIntervalMillis);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void process(PipelineJob job) throws InterruptedException {
+        PipelineJob current = job;
+        try {
+            while (current.stage() != PipelineJob.Stage.COMPLETE) {
+                current = runStage(current);
+            }
+            logger.info("Job {} completed after {} attempt(s)", job.id(), job.attempts() + 1);
+        } catch (InterruptedException e) {
+            // Left RUNNING; it is requeued on the next start
+            throw e;
+        } catch (Exception e) {
+            int attempts = current.attempts() + 1;
+            if (attempts >= maxAttempts) {
+                logger.error("Job {} failed in stage {} after {} attempts: {}",
+                        job.id(), current.stage(), attempts, e.getMessage());
+                repository.fail(job.id(), attempts, e.getMessage());
+            } else {
+                long backoff = retryBackoffMillis * (1L << (attempts - 1));
+                long jitter = ThreadLocalRandom.current().nextLong(backoff / 4 + 1);
+                logger.warn("Job {} failed in stage {}, retrying in {} ms: {}",
+                        job.id(), current.stage(), backoff + jitter, e.getMessage());
+                repository.retryAt(job.id(), attempts, System.currentTimeMillis() + backoff + jitter, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Run the job's next stage and checkpoint its output.
+     */
+    private PipelineJob runStage(PipelineJob job) throws InterruptedException {
+        PipelineJob next = switch (job.stage()) {
+            case QUERIES -> {
+                List<String> queries = stages.generateQueries(job.seedTerm());
+                yield advance(job, PipelineJob.Stage.SUMMARY, queries, job.failedQueries(), null, null);
+            }
+            case SUMMARY -> {
+                List<QueryFetchResult> results = fetchPipeline.fetchAll(job.queries());
+                List<String> failed = results.stream()
+                        .filter(r -> r.status() == QueryFetchResult.Status.FAILED)
+                        .map(QueryFetchResult::query)
+                        .toList();
+                String analysis = stages.summarize(job.queries(), results);
+                PipelineJob.Stage stage = job.contentType() == null
+                        ? PipelineJob.Stage.COMPLETE
+                        : PipelineJob.Stage.CONTENT;
+                yield advance(job, stage, job.queries(), failed, analysis, null);
+            }
+            case CONTENT -> {
+                String content = stages.generateContent(job.contentType(), job.analysisText());
+                yield advance(job, PipelineJob.Stage.COMPLETE, job.queries(), job.failedQueries(),
+                        job.analysisText(), content);
+            }
+            case COMPLETE -> throw new IllegalStateException("Job " + job.id() + " has no stage left to run");
+        };
+
+        repository.checkpoint(next);
+        logger.debug("Job {} checkpointed, next stage {}", job.id(), next.stage());
+        return next;
+    }
+
+    private static PipelineJob advance(PipelineJob job, PipelineJob.Stage stage, List<String> queries,
+                                       List<String> failedQueries, String analysisText, String generatedContent) {
+        PipelineJob.Status status = stage == PipelineJob.Stage.COMPLETE
+                ? PipelineJob.Status.DONE
+                : PipelineJob.Status.RUNNING;
+        return new PipelineJob(job.id(), status, stage, job.seedTerm(), job.contentType(),
+                queries, failedQueries, analysisText, generatedContent,
+                job.attempts(), null, job.createdAt(), System.currentTimeMillis());
+    }
+
+    private void cleanupIfDue() {
+        long now = System.currentTimeMillis();
+        if (now - lastCleanup < CLEANUP_INTERVAL_MILLIS) {
+            return;
+        }
+        lastCleanup = now;
+        int deleted = repository.deleteFinishedBefore(now - retentionMillis);
+        if (deleted > 0) {
+            logger.info("Deleted {} finished jobs older than the retention period", deleted);
+        }
+    }
+}
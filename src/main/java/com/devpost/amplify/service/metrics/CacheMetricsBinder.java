@@ -0,0 +1,81 @@
+package com.devpost.amplify.service.metrics;
+
+import com.devpost.amplify.model.SessionStore;
+import com.devpost.amplify.service.fetch.CustomSearchClient;
+import com.devpost.amplify.service.fetch.FetchPipeline;
+import com.devpost.amplify.service.fetch.PageCache;
+import com.devpost.amplify.service.llm.LlmResponseCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Publishes the counters behind the {@code /cache/stats} and {@code /sessions/stats}
+ * endpoints as meters: lookups by outcome as {@code amplify.cache.requests} and sizes as
+ * {@code amplify.cache.size}, both tagged with the cache name.
+ */
+@Component
+public class CacheMetricsBinder implements MeterBinder {
+
+    private final PageCache pageCache;
+    private final CustomSearchClient searchClient;
+    private final LlmResponseCache responseCache;
+    private final FetchPipeline fetchPipeline;
+
+    public CacheMetricsBinder(PageCache pageCache, CustomSearchClient searchClient,
+                              LlmResponseCache responseCache, FetchPipeline fetchPipeline) {
+        this.pageCache = pageCache;
+        this.searchClient = searchClient;
+        this.responseCache = responseCache;
+        this.fetchPipeline = fetchPipeline;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        bind(registry, "page", pageCache, PageCache::stats,
+                List.of("memoryHits", "diskHits", "misses", "revalidations"),
+                List.of("memoryEntries", "diskBytes"));
+        bind(registry, "search", searchClient, CustomSearchClient::stats,
+                List.of("hits", "coalesced", "upstreamCalls"),
+                List.of("entries"));
+        bind(registry, "llm", responseCache, LlmResponseCache::stats,
+                List.of("exactHits", "semanticHits", "misses"),
+                List.of("entries"));
+        bind(registry, "prefetch", fetchPipeline, FetchPipeline::stats,
+                List.of("prefetched", "prefetchJoined"),
+                List.of("prefetchesInFlight"));
+        bind(registry, "session", SessionStore.class, type -> SessionStore.getStats(),
+                List.of("hitCount", "missCount", "evictionCount"),
+                List.of("activeSessions", "estimatedBytes"));
+    }
+
+    /**
+     * Meters only hold their state object weakly, so it must be something that stays reachable
+     * on its own (the cache bean) rather than a lambda created here.
+     */
+    private static <T> void bind(MeterRegistry registry, String cache, T source, Function<T, Map<String, Object>> stats,
+                                 List<String> requestKeys, List<String> sizeKeys) {
+        for (String key : requestKeys) {
+            FunctionCounter.builder("amplify.cache.requests", source, s -> value(stats.apply(s), key))
+                    .tag("cache", cache)
+                    .tag("result", key)
+                    .register(registry);
+        }
+        for (String key : sizeKeys) {
+            Gauge.builder("amplify.cache.size", source, s -> value(stats.apply(s), key))
+                    .tag("cache", cache)
+                    .tag("measure", key)
+                    .register(registry);
+        }
+    }
+
+    private static double value(Map<String, Object> stats, String key) {
+        return stats.get(key) instanceof Number number ? number.doubleValue() : Double.NaN;
+    }
+}
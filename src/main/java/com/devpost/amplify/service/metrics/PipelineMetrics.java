@@ -0,0 +1,82 @@
+package com.devpost.amplify.service.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Latency timers and counters for each stage of the pipeline.
+ * <p>
+ * Meters are registered with Micrometer's global registry, which Spring Boot backs with the
+ * Prometheus registry, so static code such as the {@code SessionStore} can record into them.
+ * Every timer publishes a percentile histogram, from which Prometheus computes p50/p99 per
+ * stage, plus locally computed p50 and p99.
+ */
+public final class PipelineMetrics {
+    private static final MeterRegistry registry = Metrics.globalRegistry;
+
+    public static final Timer SESSION_LOOKUP = timer("amplify.session.lookup",
+            "Session store get-or-create, including snapshot restore");
+    public static final Timer SEARCH_CALL = timer("amplify.search.call",
+            "Custom Search API round trip on a cache miss");
+    public static final Timer SCRAPE_FETCH = timer("amplify.scrape.fetch",
+            "Page download on a page cache miss, including the streamed parse");
+    public static final Timer HTML_PARSE = timer("amplify.html.parse",
+            "Extracting the analysis fields from a page body");
+    public static final Timer PROMPT_BUILD = timer("amplify.prompt.build",
+            "Packing scraped content into the summarization context");
+
+    private PipelineMetrics() {
+    }
+
+    /** Time until the model's first event for a call by {@code agent} */
+    public static Timer llmFirstEvent(String agent) {
+        return Timer.builder("amplify.llm.first-event")
+                .description("Time until the first event of a model call")
+                .tag("agent", agent)
+                .publishPercentileHistogram()
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+    }
+
+    /** Duration of a whole model call by {@code agent}, until its last event */
+    public static Timer llmCall(String agent) {
+        return Timer.builder("amplify.llm.call")
+                .description("Duration of a model call")
+                .tag("agent", agent)
+                .publishPercentileHistogram()
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+    }
+
+    /**
+     * Count estimated tokens sent to ({@code prompt}) or produced by ({@code completion}) the
+     * model for {@code agent}; see {@link com.devpost.amplify.service.llm.TokenEstimator}.
+     */
+    public static void tokens(String agent, String kind, int count) {
+        Counter.builder("amplify.llm.tokens")
+                .description("Estimated tokens sent to and produced by the model")
+                .tag("agent", agent)
+                .tag("kind", kind)
+                .register(registry)
+                .increment(count);
+    }
+
+    /** Count a query whose search + scrape did not produce content */
+    public static void queryNotProcessed(String status) {
+        Counter.builder("amplify.queries.failed")
+                .description("Queries without scraped content, by outcome")
+                .tag("status", status)
+                .register(registry)
+                .increment();
+    }
+
+    private static Timer timer(String name, String description) {
+        return Timer.builder(name)
+                .description(description)
+                .publishPercentileHistogram()
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+    }
+}
@@ -0,0 +1,176 @@
+package com.devpost.amplify.service.pipeline;
+
+import com.devpost.amplify.model.SessionStore;
+import com.devpost.amplify.service.ContextPacker;
+import com.devpost.amplify.service.PromptTemplates;
+import com.devpost.amplify.service.StageTimings;
+import com.devpost.amplify.service.agents.ContentGenerationAgent;
+import com.devpost.amplify.service.agents.QueryGenerationAgent;
+import com.devpost.amplify.service.agents.SummarizationAgent;
+import com.devpost.amplify.service.fetch.FetchPipeline;
+import com.devpost.amplify.service.fetch.FetchedContent;
+import com.devpost.amplify.service.fetch.QueryFetchResult;
+import com.google.adk.agents.InvocationContext;
+import com.google.adk.events.Event;
+import com.google.genai.types.Content;
+import com.google.genai.types.Part;
+import io.reactivex.rxjava3.core.Flowable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Query generation, fetch + summarize and content generation as one reactive stream over a
+ * single session context.
+ * <p>
+ * The query agent's output is parsed while it streams, and each query's search + scrape is
+ * started as soon as the query is complete, so fetching overlaps with the rest of the query
+ * generation. Summarization starts once every fetch has finished, content generation once
+ * the summary is done.
+ */
+@Service
+public class FusedPipeline {
+    private static final Logger logger = LoggerFactory.getLogger(FusedPipeline.class);
+
+    private final QueryGenerationAgent queryAgent;
+    private final SummarizationAgent analyseAgent;
+    private final ContentGenerationAgent contentAgent;
+    private final FetchPipeline fetchPipeline;
+    private final ContextPacker contextPacker;
+
+    public FusedPipeline(
+            QueryGenerationAgent queryAgent,
+            SummarizationAgent analyseAgent,
+            ContentGenerationAgent contentAgent,
+            FetchPipeline fetchPipeline,
+            ContextPacker contextPacker
+    ) {
+        this.queryAgent = queryAgent;
+        this.analyseAgent = analyseAgent;
+        this.contentAgent = contentAgent;
+        this.fetchPipeline = fetchPipeline;
+        this.contextPacker = contextPacker;
+    }
+
+    /**
+     * Run the whole pipeline for {@code seed}. Emits a {@code query} event per parsed query, a
+     * {@code fetched} event per finished fetch, {@code summary} and {@code content} events with
+     * the text of each stage as the model produces it, and a final {@code done} event.
+     * <p>
+     * The session state ends up as it would after calling /query, /summarize and /generate in
+     * turn; saving it is left to the caller. Nothing runs until the stream is subscribed to.
+     *
+     * @param contentType content to generate from the summary, or {@code null} to stop after it
+     */
+    public Flowable<PipelineEvent> run(InvocationContext ctx, String seed, String contentType) {
+        return Flowable.defer(() -> {
+            ConcurrentMap<String, Object> state = ctx.session().state();
+            InvocationContext streamingCtx = SessionStore.streaming(ctx);
+            StageTimings timings = new StageTimings();
+            long start = System.nanoTime();
+
+            List<String> queries = new ArrayList<>();
+            Map<String, QueryFetchResult> results = new ConcurrentHashMap<>();
+            AtomicReference<FetchedContent> fetchedRef = new AtomicReference<>();
+
+            state.put("input", seed);
+            state.put("seedTerm", seed);
+
+            QueryStreamParser parser = new QueryStreamParser();
+            TextDeltas queryText = new TextDeltas();
+            Flowable<String> parsedQueries = queryAgent.runAsync(streamingCtx)
+                    .concatMapIterable(event -> parser.feed(queryText.delta(event)))
+                    .concatWith(Flowable.defer(() -> Flowable.fromIterable(parser.finish(state.get("relatedQueries")))))
+                    .doOnComplete(() -> timings.record("queries", start));
+
+            // Fetching overlaps with query generation, so both are timed from the start
+            Flowable<PipelineEvent> fetchStage = parsedQueries
+                    .doOnNext(queries::add)
+                    .flatMap(query -> Flowable.just(new PipelineEvent("query", query))
+                            .concatWith(Flowable.fromCompletionStage(fetchPipeline.fetchAsync(query))
+                                    .map(result -> {
+                                        results.put(query, result);
+                                        return new PipelineEvent("fetched", Map.of(
+                                                "query", query,
+                                                "status", result.status()
+                                        ));
+                                    })))
+                    .doOnComplete(() -> timings.record("fetch", start));
+
+            Flowable<PipelineEvent> summaryStage = Flowable.defer(() -> {
+                if (queries.isEmpty()) {
+                    return Flowable.error(new IllegalStateException("No queries generated for: " + seed));
+                }
+                state.put("relatedQueries", List.copyOf(queries));
+
+                List<QueryFetchResult> ordered = queries.stream().map(results::get).toList();
+                FetchedContent fetched = timings.time("pack", () -> FetchedContent.of(ordered, contextPacker));
+                if (fetched.aggregatedText().isBlank()) {
+                    logger.info("No search content available. Using fallback analysis for queries: {}", queries);
+                }
+                state.put("input", Content.fromParts(Part.fromText(
+                        PromptTemplates.analysisPrompt(queries, fetched.aggregatedText()))));
+                fetchedRef.set(fetched);
+
+                return stage("summary", analyseAgent.runAsync(streamingCtx), state, "analysisText", timings);
+            });
+
+            Flowable<PipelineEvent> contentStage = Flowable.defer(() -> {
+                if (contentType == null) {
+                    return Flowable.empty();
+                }
+                state.put("input", PromptTemplates.contentPrompt(contentType, state.get("analysisText")));
+                return stage("content", contentAgent.runAsync(streamingCtx), state, "generatedContent", timings)
+                        .doOnComplete(() -> {
+                            state.put("lastGeneratedContent", state.get("generatedContent"));
+                            state.put("lastContentType", contentType);
+                        });
+            });
+
+            Flowable<PipelineEvent> done = Flowable.fromCallable(() -> {
+                FetchedContent fetched = fetchedRef.get();
+                timings.record("total", start);
+
+                Map<String, Object> summary = new LinkedHashMap<>();
+                summary.put("relatedQueries", List.copyOf(queries));
+                summary.put("processedQueries", fetched.successfulQueries());
+                summary.put("failedQueries", fetched.failedQueries());
+                summary.put("timings", timings.asMap());
+                return new PipelineEvent("done", summary);
+            });
+
+            return Flowable.concat(List.of(fetchStage, summaryStage, contentStage, done));
+        });
+    }
+
+    /**
+     * Forward the new text of each event as {@code name} events; if the agent produced none
+     * (a cached response), send the stored output instead.
+     */
+    private static Flowable<PipelineEvent> stage(String name, Flowable<Event> events, Map<String, Object> state,
+                                                 String outputKey, StageTimings timings) {
+        long start = System.nanoTime();
+        TextDeltas deltas = new TextDeltas();
+        return events
+                .concatMapIterable(event -> {
+                    String text = deltas.delta(event);
+                    return text == null ? List.<PipelineEvent>of() : List.of(new PipelineEvent(name, text));
+                })
+                .concatWith(Flowable.defer(() -> {
+                    timings.record(name, start);
+                    Object output = state.get(outputKey);
+                    if (output == null) {
+                        return Flowable.error(new IllegalStateException(name + " failed - no result generated"));
+                    }
+                    return deltas.emitted() ? Flowable.empty() : Flowable.just(new PipelineEvent(name, output.toString()));
+                }));
+    }
+}
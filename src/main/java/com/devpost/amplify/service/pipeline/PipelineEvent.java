@@ -0,0 +1,10 @@
+package com.devpost.amplify.service.pipeline;
+
+/**
+ * Progress of a fused pipeline run, forwarded to the client as a server-sent event.
+ *
+ * @param name event name: {@code query}, {@code fetched}, {@code summary}, {@code content} or {@code done}
+ * @param data event payload
+ */
+public record PipelineEvent(String name, Object data) {
+}
@@ -0,0 +1,102 @@
+package com.devpost.amplify.service.pipeline;
+
+import com.devpost.amplify.service.ContextPacker;
+import com.devpost.amplify.service.PromptTemplates;
+import com.devpost.amplify.service.agents.AgentInvoker;
+import com.devpost.amplify.service.agents.ContentGenerationAgent;
+import com.devpost.amplify.service.agents.QueryGenerationAgent;
+import com.devpost.amplify.service.agents.SummarizationAgent;
+import com.devpost.amplify.service.fetch.QueryFetchResult;
+import com.google.adk.agents.BaseAgent;
+import com.google.genai.types.Content;
+import com.google.genai.types.Part;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+/**
+ * The query → summarize → generate stages of the pipeline as plain calls, for work that runs
+ * outside of a user session (batches, queued jobs).
+ * <p>
+ * Every stage runs its agent through the {@link AgentInvoker} and holds one of a fixed
+ * number of LLM permits while doing so, so background work can't flood the model with
+ * concurrent calls.
+ */
+@Service
+public class PipelineStages {
+
+    private final AgentInvoker agentInvoker;
+    private final QueryGenerationAgent queryAgent;
+    private final SummarizationAgent analyseAgent;
+    private final ContentGenerationAgent contentAgent;
+    private final ContextPacker contextPacker;
+    private final Semaphore llmPermits;
+
+    public PipelineStages(
+            AgentInvoker agentInvoker,
+            QueryGenerationAgent queryAgent,
+            SummarizationAgent analyseAgent,
+            ContentGenerationAgent contentAgent,
+            ContextPacker contextPacker,
+            @Value("${amplify.pipeline.max-inflight-llm-calls:4}") int maxInflightLlmCalls
+    ) {
+        this.agentInvoker = agentInvoker;
+        this.queryAgent = queryAgent;
+        this.analyseAgent = analyseAgent;
+        this.contentAgent = contentAgent;
+        this.contextPacker = contextPacker;
+        this.llmPermits = new Semaphore(maxInflightLlmCalls);
+    }
+
+    /**
+     * @return the related queries for {@code seed}, without duplicates
+     */
+    public List<String> generateQueries(String seed) throws InterruptedException {
+        Object output = callLlm(queryAgent, seed, "relatedQueries");
+        return parseQueries(output);
+    }
+
+    /**
+     * @return the analysis of the fetched results, falling back to an LLM-knowledge-only
+     * analysis when nothing could be scraped
+     */
+    public String summarize(List<String> queries, List<QueryFetchResult> results) throws InterruptedException {
+        String prompt = PromptTemplates.analysisPrompt(queries, contextPacker.pack(results));
+        Object output = callLlm(analyseAgent, Content.fromParts(Part.fromText(prompt)), "analysisText");
+        if (output == null) {
+            throw new IllegalStateException("Analysis failed - no result generated");
+        }
+        return output.toString();
+    }
+
+    public String generateContent(String contentType, String analysisText) throws InterruptedException {
+        Object output = callLlm(contentAgent, PromptTemplates.contentPrompt(contentType, analysisText), "generatedContent");
+        if (output == null) {
+            throw new IllegalStateException("Content generation failed - no result generated");
+        }
+        return output.toString();
+    }
+
+    private Object callLlm(BaseAgent agent, Object input, String outputKey) throws InterruptedException {
+        llmPermits.acquire();
+        try {
+            return agentInvoker.invokeForOutput(agent, input, outputKey);
+        } finally {
+            llmPermits.release();
+        }
+    }
+
+    /**
+     * Flatten the query agent's output, one or more lines of comma-separated queries, possibly
+     * numbered or quoted, into distinct queries.
+     */
+    static List<String> parseQueries(Object output) {
+        List<String> queries = QueryOutputParser.parse(output);
+        if (queries.isEmpty()) {
+            throw new IllegalStateException("Failed to generate queries");
+        }
+        return queries;
+    }
+}
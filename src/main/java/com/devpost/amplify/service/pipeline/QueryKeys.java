@@ -0,0 +1,36 @@
+package com.devpost.amplify.service.pipeline;
+
+import java.util.Locale;
+
+/**
+ * The key under which a query is cached and deduplicated across the pipeline: trimmed, runs
+ * of whitespace collapsed to one space and lower-cased, so {@code " Vegan  Recipes"} and
+ * {@code "vegan recipes"} share search results, pages and summaries.
+ * <p>
+ * This runs for every query on the hot path, so the whitespace is collapsed in one scan
+ * rather than with a regex.
+ */
+public final class QueryKeys {
+
+    private QueryKeys() {
+    }
+
+    public static String normalize(String query) {
+        int length = query.length();
+        StringBuilder key = new StringBuilder(length);
+        boolean pendingSpace = false;
+        for (int i = 0; i < length; i++) {
+            char c = query.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = !key.isEmpty();
+                continue;
+            }
+            if (pendingSpace) {
+                key.append(' ');
+                pendingSpace = false;
+            }
+            key.append(c);
+        }
+        return key.toString().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,153 @@
+package com.devpost.amplify.service.pipeline;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Turns the query agent's output into distinct queries in a single pass over the text.
+ * <p>
+ * The model is asked for one comma-separated line but also answers with numbered or bulleted
+ * lists, quoted lines or a mix; commas and line breaks both end a query. Leading numbering
+ * ({@code 1.}, {@code 2)}) and bullets ({@code -}, {@code *}, {@code •}) are dropped, as are
+ * brackets and quotes anywhere, and runs of whitespace become one space. Queries that differ
+ * only in case are returned once, in order of first appearance.
+ * <p>
+ * Characters are scanned directly instead of splitting and matching regexes per line, so
+ * the only allocations are one buffer per call and the queries themselves.
+ */
+public final class QueryOutputParser {
+
+    private QueryOutputParser() {
+    }
+
+    /**
+     * @param output the agent's output: text, or a list of lines as stored in the session
+     * @return the distinct queries, empty if there are none
+     */
+    public static List<String> parse(Object output) {
+        List<String> queries = new ArrayList<>(8);
+        StringBuilder query = new StringBuilder(64);
+        if (output instanceof List<?> lines) {
+            for (Object line : lines) {
+                scan(String.valueOf(line), queries, query);
+            }
+        } else if (output != null) {
+            scan(output.toString(), queries, query);
+        }
+        return queries;
+    }
+
+    /**
+     * The cleaned-up query between {@code start} and {@code end} of {@code text}, which must
+     * not contain a separator; empty if nothing is left.
+     */
+    public static String clean(CharSequence text, int start, int end) {
+        StringBuilder query = new StringBuilder(end - start);
+        appendCleaned(text, start, end, query);
+        return query.toString();
+    }
+
+    private static void scan(CharSequence text, List<String> queries, StringBuilder query) {
+        int start = 0;
+        int length = text.length();
+        for (int i = 0; i <= length; i++) {
+            if (i < length && !isSeparator(text.charAt(i))) {
+                continue;
+            }
+            query.setLength(0);
+            appendCleaned(text, start, i, query);
+            if (!query.isEmpty() && !containsIgnoreCase(queries, query)) {
+                queries.add(query.toString());
+            }
+            start = i + 1;
+        }
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == ',' || c == '\n' || c == '\r';
+    }
+
+    private static void appendCleaned(CharSequence text, int start, int end, StringBuilder query) {
+        int i = skipPrefix(text, skipWhitespace(text, start, end), end);
+        boolean pendingSpace = false;
+        for (; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == '[' || c == ']' || c == '"') {
+                continue;
+            }
+            if (Character.isWhitespace(c)) {
+                pendingSpace = !query.isEmpty();
+                continue;
+            }
+            if (pendingSpace) {
+                query.append(' ');
+                pendingSpace = false;
+            }
+            query.append(c);
+        }
+    }
+
+    /**
+     * Skip a leading list marker, with or without brackets or quotes around the query, and the
+     * whitespace after it.
+     */
+    private static int skipPrefix(CharSequence text, int start, int end) {
+        int i = start;
+        while (i < end && (text.charAt(i) == '[' || text.charAt(i) == '"')) {
+            i++;
+        }
+        if (i == end) {
+            return start;
+        }
+
+        char c = text.charAt(i);
+        if (c == '-' || c == '*' || c == '•') {
+            return endsMarker(text, i + 1, end) ? skipWhitespace(text, i + 1, end) : start;
+        }
+        int digits = i;
+        while (digits < end && Character.isDigit(text.charAt(digits))) {
+            digits++;
+        }
+        if (digits > i && digits < end && (text.charAt(digits) == '.' || text.charAt(digits) == ')')
+                && endsMarker(text, digits + 1, end)) {
+            return skipWhitespace(text, digits + 1, end);
+        }
+        return start;
+    }
+
+    // A marker is followed by whitespace, so "1.5 kg" and "-free" are left alone
+    private static boolean endsMarker(CharSequence text, int i, int end) {
+        return i == end || Character.isWhitespace(text.charAt(i));
+    }
+
+    private static int skipWhitespace(CharSequence text, int i, int end) {
+        while (i < end && Character.isWhitespace(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean containsIgnoreCase(List<String> queries, CharSequence query) {
+        for (String existing : queries) {
+            if (equalsIgnoreCase(existing, query)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean equalsIgnoreCase(String a, CharSequence b) {
+        if (a.length() != b.length()) {
+            return false;
+        }
+        for (int i = 0; i < a.length(); i++) {
+            char x = a.charAt(i);
+            char y = b.charAt(i);
+            if (x != y && Character.toLowerCase(x) != Character.toLowerCase(y)
+                    && Character.toUpperCase(x) != Character.toUpperCase(y)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
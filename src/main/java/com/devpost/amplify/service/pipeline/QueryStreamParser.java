@@ -0,0 +1,66 @@
+package com.devpost.amplify.service.pipeline;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Picks queries out of the query agent's output while it is still being streamed.
+ * <p>
+ * A query is complete once the comma or line break after it has arrived; the last one is
+ * completed by {@link #finish}. Each query is cleaned up like {@link QueryOutputParser} does
+ * and repeated queries are only returned once.
+ */
+public final class QueryStreamParser {
+    private final StringBuilder pending = new StringBuilder();
+    private final Set<String> seen = new HashSet<>();
+
+    /**
+     * @return the queries completed by {@code delta}
+     */
+    public List<String> feed(String delta) {
+        List<String> queries = new ArrayList<>();
+        if (delta == null || delta.isEmpty()) {
+            return queries;
+        }
+
+        pending.append(delta);
+        int start = 0;
+        for (int i = 0; i < pending.length(); i++) {
+            char c = pending.charAt(i);
+            if (c == ',' || c == '\n') {
+                accept(QueryOutputParser.clean(pending, start, i), queries);
+                start = i + 1;
+            }
+        }
+        pending.delete(0, start);
+        return queries;
+    }
+
+    /**
+     * Complete the trailing query, plus any in {@code storedOutput} (the agent's stored list or
+     * text) that were never streamed, as happens when the response came from the cache.
+     */
+    public List<String> finish(Object storedOutput) {
+        List<String> queries = new ArrayList<>();
+        accept(QueryOutputParser.clean(pending, 0, pending.length()), queries);
+        pending.setLength(0);
+
+        if (storedOutput instanceof List<?> lines) {
+            for (Object line : lines) {
+                queries.addAll(feed(line + "\n"));
+            }
+        } else if (storedOutput != null) {
+            queries.addAll(feed(storedOutput + "\n"));
+        }
+        return queries;
+    }
+
+    private void accept(String query, List<String> queries) {
+        if (!query.isEmpty() && seen.add(query.toLowerCase(Locale.ROOT))) {
+            queries.add(query);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.devpost.amplify.service.pipeline;
+
+import com.google.adk.events.Event;
+import com.google.genai.types.Content;
+
+/**
+ * Turns the events of one agent run into the pieces of text that are new in each event.
+ * <p>
+ * With SSE streaming each partial event carries a new chunk and the final non-partial event
+ * repeats the whole response, so that one is skipped. Without streaming the single
+ * non-partial event is the whole response.
+ */
+public final class TextDeltas {
+    private boolean sawPartial;
+    private boolean emitted;
+
+    /**
+     * @return the new text carried by {@code event}, or {@code null} if there is none
+     */
+    public String delta(Event event) {
+        String text = event.content().map(Content::text).orElse(null);
+        if (text == null || text.isEmpty()) {
+            return null;
+        }
+        if (event.partial().orElse(false)) {
+            sawPartial = true;
+            emitted = true;
+            return text;
+        }
+        if (sawPartial) {
+            return null;
+        }
+        emitted = true;
+        return text;
+    }
+
+    /** Whether any text was returned, false when the response came from the cache */
+    public boolean emitted() {
+        return emitted;
+    }
+}
@@ -0,0 +1,155 @@
+package com.devpost.amplify.service.resilience;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Concurrency limit for one upstream that adapts to its latency, in the style of a gradient
+ * limiter.
+ * <p>
+ * A slow moving average of the round trip time serves as the no-load baseline. Each sample
+ * scales the limit by {@code baseline / sample} (at most 1) and adds {@code sqrt(limit)} of
+ * headroom for probing, so the limit grows while latency stays at the baseline and shrinks
+ * as soon as requests start to queue upstream. Failed calls back the limit off
+ * multiplicatively. Calls over the limit are rejected rather than queued.
+ */
+public final class AdaptiveLimiter {
+    // Samples it takes the baseline to catch up with a latency change
+    private static final int BASELINE_WINDOW = 500;
+    // Latency may rise this much above the baseline before the limit shrinks
+    private static final double TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.2;
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final LongSupplier nanoClock;
+    private final AtomicInteger inflight = new AtomicInteger();
+    private volatile double limit;
+    private double baselineNanos;
+
+    public AdaptiveLimiter(int initialLimit, int minLimit, int maxLimit) {
+        this(initialLimit, minLimit, maxLimit, System::nanoTime);
+    }
+
+    AdaptiveLimiter(int initialLimit, int minLimit, int maxLimit, LongSupplier nanoClock) {
+        if (minLimit < 1 || initialLimit < minLimit || maxLimit < initialLimit) {
+            throw new IllegalArgumentException("Expected 1 <= minLimit <= initialLimit <= maxLimit");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = initialLimit;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * @return a permit to release once the call is done, or empty if the limit is reached
+     */
+    public Optional<Permit> tryAcquire() {
+        while (true) {
+            int current = inflight.get();
+            if (current >= (int) limit) {
+                return Optional.empty();
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                return Optional.of(new Permit(current + 1));
+            }
+        }
+    }
+
+    /** Whether a call would be rejected right now */
+    public boolean saturated() {
+        return inflight.get() >= (int) limit;
+    }
+
+    public int limit() {
+        return (int) limit;
+    }
+
+    public int inflight() {
+        return inflight.get();
+    }
+
+    private synchronized void onSample(long rttNanos, int inflightAtStart) {
+        // A zero sample would make the gradient 0 / 0
+        rttNanos = Math.max(1, rttNanos);
+        if (baselineNanos == 0) {
+            baselineNanos = rttNanos;
+        } else {
+            baselineNanos += (rttNanos - baselineNanos) / BASELINE_WINDOW;
+            // After a period of high latency, let the baseline recover quickly
+            if (baselineNanos > 2 * rttNanos) {
+                baselineNanos *= 0.95;
+            }
+        }
+
+        // Don't grow the limit on calls that weren't anywhere near it
+        if (inflightAtStart < limit / 2) {
+            return;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * baselineNanos / rttNanos));
+        double target = limit * gradient + Math.sqrt(limit);
+        limit = clamp(limit * (1 - SMOOTHING) + target * SMOOTHING);
+    }
+
+    private synchronized void onDropped() {
+        limit = clamp(limit * BACKOFF_RATIO);
+    }
+
+    private double clamp(double value) {
+        return Math.max(minLimit, Math.min(maxLimit, value));
+    }
+
+    /**
+     * One admitted call. Exactly one of {@link #success}, {@link #dropped} or {@link #ignore}
+     * releases it; later calls are no-ops. A streamed call can take its latency sample early
+     * with {@link #sample} and still hold its slot until the stream ends.
+     */
+    public final class Permit {
+        private final long startNanos = nanoClock.getAsLong();
+        private final int inflightAtStart;
+        private final AtomicBoolean released = new AtomicBoolean();
+        private final AtomicBoolean sampled = new AtomicBoolean();
+
+        private Permit(int inflightAtStart) {
+            this.inflightAtStart = inflightAtStart;
+        }
+
+        /** Sample the latency now (e.g. time to first token) without releasing the slot */
+        public void sample() {
+            if (!released.get() && sampled.compareAndSet(false, true)) {
+                onSample(nanoClock.getAsLong() - startNanos, inflightAtStart);
+            }
+        }
+
+        /** The upstream answered; its latency is sampled unless {@link #sample} already did */
+        public void success() {
+            if (release() && sampled.compareAndSet(false, true)) {
+                onSample(nanoClock.getAsLong() - startNanos, inflightAtStart);
+            }
+        }
+
+        /** The upstream failed or timed out; the limit is backed off */
+        public void dropped() {
+            if (release()) {
+                onDropped();
+            }
+        }
+
+        /** The call ended without telling anything about the upstream, e.g. it was cancelled */
+        public void ignore() {
+            release();
+        }
+
+        private boolean release() {
+            if (released.compareAndSet(false, true)) {
+                inflight.decrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    }
+}
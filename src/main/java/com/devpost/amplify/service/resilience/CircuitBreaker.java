@@ -0,0 +1,131 @@
+package com.devpost.amplify.service.resilience;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Count-based circuit breaker. Opens when at least {@code failureRateThreshold} of the last
+ * {@value #WINDOW} calls failed (once {@value #MIN_CALLS} calls have been seen), rejects
+ * every call while open, and after {@code openDuration} lets a single trial call through:
+ * its success closes the breaker, its failure opens it again.
+ */
+public final class CircuitBreaker {
+    private static final int WINDOW = 20;
+    private static final int MIN_CALLS = 10;
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final double failureRateThreshold;
+    private final long openNanos;
+    private final LongSupplier nanoClock;
+
+    private final boolean[] outcomes = new boolean[WINDOW];
+    private int calls;
+    private int failures;
+    private int next;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    public CircuitBreaker(double failureRateThreshold, Duration openDuration) {
+        this(failureRateThreshold, openDuration, System::nanoTime);
+    }
+
+    CircuitBreaker(double failureRateThreshold, Duration openDuration, LongSupplier nanoClock) {
+        this.failureRateThreshold = failureRateThreshold;
+        this.openNanos = openDuration.toNanos();
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * @return whether a call may go ahead; if so, report its outcome with {@link #onSuccess},
+     * {@link #onFailure} or {@link #onIgnored}
+     */
+    public synchronized boolean tryAcquire() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (nanoClock.getAsLong() - openedAt < openNanos) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                trialInFlight = true;
+                return true;
+            default:
+                if (trialInFlight) {
+                    return false;
+                }
+                trialInFlight = true;
+                return true;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            close();
+        } else if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (calls >= MIN_CALLS && failures >= failureRateThreshold * calls) {
+                open();
+            }
+        }
+    }
+
+    /** The call ended without an outcome, e.g. it was cancelled */
+    public synchronized void onIgnored() {
+        trialInFlight = false;
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    /** Time until an open breaker lets a trial call through, zero otherwise */
+    public synchronized Duration retryAfter() {
+        if (state != State.OPEN) {
+            return Duration.ZERO;
+        }
+        return Duration.ofNanos(Math.max(0, openNanos - (nanoClock.getAsLong() - openedAt)));
+    }
+
+    private void record(boolean failed) {
+        if (calls == WINDOW) {
+            if (outcomes[next]) {
+                failures--;
+            }
+        } else {
+            calls++;
+        }
+        outcomes[next] = failed;
+        if (failed) {
+            failures++;
+        }
+        next = (next + 1) % WINDOW;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = nanoClock.getAsLong();
+        trialInFlight = false;
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        trialInFlight = false;
+        calls = 0;
+        failures = 0;
+        next = 0;
+    }
+}
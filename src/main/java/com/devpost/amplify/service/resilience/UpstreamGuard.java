@@ -0,0 +1,137 @@
+package com.devpost.amplify.service.resilience;
+
+import io.reactivex.rxjava3.core.Flowable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An {@link AdaptiveLimiter} and a {@link CircuitBreaker} in front of one upstream service.
+ * <p>
+ * Calls are rejected with an {@link UpstreamRejectedException} instead of waiting when the
+ * limit is reached or the breaker is open, so latency stays bounded under overload and a
+ * failing upstream is not piled onto.
+ */
+public class UpstreamGuard {
+    private static final Logger logger = LoggerFactory.getLogger(UpstreamGuard.class);
+
+    // Hint for clients shed by the limiter; slots usually free up within a call's duration
+    private static final Duration OVERLOADED_RETRY_AFTER = Duration.ofSeconds(1);
+
+    @FunctionalInterface
+    public interface Call<T, E extends Exception> {
+        T call() throws E;
+    }
+
+    private final String name;
+    private final AdaptiveLimiter limiter;
+    private final CircuitBreaker breaker;
+
+    private final AtomicLong rejectedOverloaded = new AtomicLong();
+    private final AtomicLong rejectedOpen = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    public UpstreamGuard(String name, AdaptiveLimiter limiter, CircuitBreaker breaker) {
+        this.name = name;
+        this.limiter = limiter;
+        this.breaker = breaker;
+    }
+
+    /**
+     * Reject early, before doing any work that leads up to a call, if the call would be
+     * rejected right now.
+     */
+    public void checkAdmission() {
+        if (breaker.state() == CircuitBreaker.State.OPEN && !breaker.retryAfter().isZero()) {
+            rejectedOpen.incrementAndGet();
+            throw new UpstreamRejectedException(name, UpstreamRejectedException.Reason.CIRCUIT_OPEN, breaker.retryAfter());
+        }
+        if (limiter.saturated()) {
+            rejectedOverloaded.incrementAndGet();
+            throw new UpstreamRejectedException(name, UpstreamRejectedException.Reason.OVERLOADED, OVERLOADED_RETRY_AFTER);
+        }
+    }
+
+    /** Whether the breaker is currently refusing calls */
+    public boolean isOpen() {
+        return breaker.state() == CircuitBreaker.State.OPEN;
+    }
+
+    /**
+     * Run a blocking call. Any exception it throws counts as an upstream failure.
+     */
+    public <T, E extends Exception> T call(Call<T, E> call) throws E {
+        AdaptiveLimiter.Permit permit = acquire();
+        try {
+            T result = call.call();
+            permit.success();
+            breaker.onSuccess();
+            return result;
+        } catch (Exception e) {
+            onFailure(permit, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Guard a streamed call: a permit is taken on subscription and held until the stream
+     * completes, fails or is cancelled, so the limit bounds concurrent generations. The
+     * latency is sampled at the first item (time to first token for the model).
+     */
+    public <T> Flowable<T> guard(Flowable<T> upstream) {
+        return Flowable.defer(() -> {
+            AdaptiveLimiter.Permit permit = acquire();
+            return upstream
+                    .doOnNext(item -> permit.sample())
+                    .doOnComplete(() -> {
+                        permit.success();
+                        breaker.onSuccess();
+                    })
+                    .doOnError(e -> onFailure(permit, e))
+                    .doOnCancel(() -> {
+                        permit.ignore();
+                        breaker.onIgnored();
+                    });
+        });
+    }
+
+    public Map<String, Object> stats() {
+        return Map.of(
+                "state", breaker.state(),
+                "limit", limiter.limit(),
+                "inflight", limiter.inflight(),
+                "rejectedOverloaded", rejectedOverloaded.get(),
+                "rejectedOpen", rejectedOpen.get(),
+                "failures", failures.get()
+        );
+    }
+
+    private AdaptiveLimiter.Permit acquire() {
+        if (!breaker.tryAcquire()) {
+            rejectedOpen.incrementAndGet();
+            throw new UpstreamRejectedException(name, UpstreamRejectedException.Reason.CIRCUIT_OPEN, breaker.retryAfter());
+        }
+
+        Optional<AdaptiveLimiter.Permit> permit = limiter.tryAcquire();
+        if (permit.isEmpty()) {
+            breaker.onIgnored();
+            rejectedOverloaded.incrementAndGet();
+            throw new UpstreamRejectedException(name, UpstreamRejectedException.Reason.OVERLOADED, OVERLOADED_RETRY_AFTER);
+        }
+        return permit.get();
+    }
+
+    private void onFailure(AdaptiveLimiter.Permit permit, Throwable e) {
+        failures.incrementAndGet();
+        permit.dropped();
+        CircuitBreaker.State before = breaker.state();
+        breaker.onFailure();
+        if (before != CircuitBreaker.State.OPEN && breaker.state() == CircuitBreaker.State.OPEN) {
+            logger.warn("Circuit for {} opened after failure: {}", name, e.getMessage());
+        }
+    }
+}
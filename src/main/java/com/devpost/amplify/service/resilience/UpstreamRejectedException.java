@@ -0,0 +1,37 @@
+package com.devpost.amplify.service.resilience;
+
+import java.time.Duration;
+
+/**
+ * A call to an upstream was refused locally, without reaching the upstream, because its
+ * concurrency limit was reached or its circuit breaker is open.
+ */
+public class UpstreamRejectedException extends RuntimeException {
+
+    public enum Reason {
+        OVERLOADED, CIRCUIT_OPEN
+    }
+
+    private final String upstream;
+    private final Reason reason;
+    private final Duration retryAfter;
+
+    public UpstreamRejectedException(String upstream, Reason reason, Duration retryAfter) {
+        super(upstream + (reason == Reason.OVERLOADED ? " is at its concurrency limit" : " circuit is open"));
+        this.upstream = upstream;
+        this.reason = reason;
+        this.retryAfter = retryAfter;
+    }
+
+    public String upstream() {
+        return upstream;
+    }
+
+    public Reason reason() {
+        return reason;
+    }
+
+    public Duration retryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,178 @@
+package com.devpost.amplify.config;
+
+import com.devpost.amplify.service.agents.QueryGenerationAgent;
+import com.google.adk.agents.InvocationContext;
+import com.google.adk.agents.LlmAgent;
+import com.google.adk.events.Event;
+import io.reactivex.rxjava3.core.Flowable;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives concurrent {@code /query} requests through Tomcat in each {@link ExecutionMode}, with
+ * the query agent replaced by one that parks the request thread for a slow LLM round-trip.
+ * With platform threads the number of requests inside the agent at once is capped by the
+ * request thread pool; with virtual threads every request gets in at once.
+ * <p>
+ * Each mode logs the requests per second it sustained. With platform threads that can't
+ * exceed {@code REQUEST_THREADS} requests per LLM round-trip; with virtual threads it has to.
+ */
+@SpringBootTest(
+		webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+		properties = {
+				"server.tomcat.threads.max=" + ExecutionModeLoadTests.REQUEST_THREADS,
+				"server.tomcat.threads.min-spare=" + ExecutionModeLoadTests.REQUEST_THREADS
+		}
+)
+@ActiveProfiles("test")
+class ExecutionModeLoadTests {
+	private static final Logger logger = LoggerFactory.getLogger(ExecutionModeLoadTests.class);
+
+	static final int REQUEST_THREADS = 8;
+	private static final int SESSIONS = 32;
+	private static final long LLM_LATENCY_MS = 300;
+	// Most requests per second a pool of REQUEST_THREADS threads can finish when each one waits on the LLM
+	private static final double THREAD_POOL_CEILING = REQUEST_THREADS * 1000.0 / LLM_LATENCY_MS;
+
+	private static final AtomicInteger inFlight = new AtomicInteger();
+	private static final AtomicInteger peakInFlight = new AtomicInteger();
+	private static final AtomicBoolean sawPlatformThread = new AtomicBoolean();
+	private static final AtomicBoolean sawVirtualThread = new AtomicBoolean();
+
+	@TestConfiguration
+	static class SlowAgentConfig {
+		@Bean
+		@Primary
+		QueryGenerationAgent slowQueryAgent() {
+			LlmAgent llmAgent = LlmAgent.builder().name("slow_query_gen").model("gemini-2.0-flash").build();
+			return new QueryGenerationAgent(llmAgent, null, null) {
+				@Override
+				protected Flowable<Event> runAsyncImpl(InvocationContext ctx) {
+					return Flowable.defer(() -> {
+						// Subscribed on the request thread, which then blocks until the timer fires
+						(Thread.currentThread().isVirtual() ? sawVirtualThread : sawPlatformThread).set(true);
+						peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+						return Flowable.timer(LLM_LATENCY_MS, TimeUnit.MILLISECONDS)
+								.doOnComplete(() -> ctx.session().state().put("relatedQueries", List.of("first query", "second query")))
+								.doFinally(inFlight::decrementAndGet)
+								.ignoreElements()
+								.<Event>toFlowable();
+					});
+				}
+			};
+		}
+	}
+
+	@BeforeEach
+	void reset() {
+		inFlight.set(0);
+		peakInFlight.set(0);
+		sawPlatformThread.set(false);
+		sawVirtualThread.set(false);
+	}
+
+	@Nested
+	@TestPropertySource(properties = "spring.threads.virtual.enabled=false")
+	class PlatformThreads {
+		@LocalServerPort
+		int port;
+
+		@Test
+		void concurrentSessionsAreCappedByRequestThreads() throws Exception {
+			LoadRun run = load(port, "platform threads");
+			assertEquals(List.of(200), run.statuses());
+			assertTrue(run.requestsPerSecond() <= THREAD_POOL_CEILING, run.requestsPerSecond() + " requests/s");
+			assertTrue(peakInFlight.get() <= REQUEST_THREADS, "peak " + peakInFlight.get());
+			assertTrue(sawPlatformThread.get());
+			assertFalse(sawVirtualThread.get());
+		}
+	}
+
+	@Nested
+	@TestPropertySource(properties = "spring.threads.virtual.enabled=true")
+	class VirtualThreads {
+		@LocalServerPort
+		int port;
+
+		@Test
+		void everySessionIsHeldAtOnce() throws Exception {
+			LoadRun run = load(port, "virtual threads");
+			assertEquals(List.of(200), run.statuses());
+			assertTrue(run.requestsPerSecond() > THREAD_POOL_CEILING, run.requestsPerSecond() + " requests/s");
+			assertTrue(peakInFlight.get() > REQUEST_THREADS, "peak " + peakInFlight.get());
+			assertTrue(sawVirtualThread.get());
+			assertFalse(sawPlatformThread.get());
+		}
+	}
+
+	/**
+	 * @param statuses          distinct response codes
+	 * @param requestsPerSecond completed requests per second of wall-clock time
+	 */
+	private record LoadRun(List<Integer> statuses, double requestsPerSecond) {
+	}
+
+	/**
+	 * Send {@link #SESSIONS} /query requests at once, after one warm-up request, and measure
+	 * how long it takes until all of them have been answered.
+	 */
+	private static LoadRun load(int port, String mode) throws Exception {
+		HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+		client.send(query(port, "warm-up"), HttpResponse.BodyHandlers.discarding());
+
+		long start = System.nanoTime();
+		List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>(SESSIONS);
+		for (int i = 0; i < SESSIONS; i++) {
+			responses.add(client.sendAsync(query(port, "load-" + i), HttpResponse.BodyHandlers.ofString()));
+		}
+
+		List<Integer> statuses = new ArrayList<>();
+		for (CompletableFuture<HttpResponse<String>> response : responses) {
+			int status = response.get().statusCode();
+			if (!statuses.contains(status)) {
+				statuses.add(status);
+			}
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		double requestsPerSecond = SESSIONS / seconds;
+		logger.info("{}: {} requests in {} ms, {} requests/s (thread pool ceiling {} requests/s, peak {} in flight)",
+				mode, SESSIONS, Math.round(seconds * 1000), String.format("%.1f", requestsPerSecond),
+				String.format("%.1f", THREAD_POOL_CEILING), peakInFlight.get());
+		return new LoadRun(statuses, requestsPerSecond);
+	}
+
+	private static HttpRequest query(int port, String sessionId) {
+		return HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/query"))
+				.timeout(Duration.ofSeconds(30))
+				.header("Content-Type", "application/json")
+				.POST(HttpRequest.BodyPublishers.ofString(
+						"{\"sessionId\": \"" + sessionId + "\", \"seedTerm\": \"seed " + sessionId + "\"}"))
+				.build();
+	}
+}
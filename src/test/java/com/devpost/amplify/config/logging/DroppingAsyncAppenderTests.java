@@ -0,0 +1,97 @@
+package com.devpost.amplify.config.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.classic.util.LogbackMDCAdapter;
+import ch.qos.logback.core.AppenderBase;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DroppingAsyncAppenderTests {
+
+	/** Records events, holding the writer thread on the first one until released */
+	private static final class GatedAppender extends AppenderBase<ILoggingEvent> {
+		final List<ILoggingEvent> events = new CopyOnWriteArrayList<>();
+		final CountDownLatch entered = new CountDownLatch(1);
+		final CountDownLatch gate = new CountDownLatch(1);
+
+		@Override
+		protected void append(ILoggingEvent event) {
+			entered.countDown();
+			try {
+				gate.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			events.add(event);
+		}
+	}
+
+	@Test
+	void fullQueueDropsOnlyEventsBelowWarn() throws Exception {
+		LoggerContext context = new LoggerContext();
+		context.setMDCAdapter(new LogbackMDCAdapter());
+		Logger logger = context.getLogger("test");
+		GatedAppender target = new GatedAppender();
+		target.setContext(context);
+		target.start();
+
+		DroppingAsyncAppender appender = new DroppingAsyncAppender();
+		appender.setContext(context);
+		appender.setName("async");
+		appender.setQueueSize(10);
+		appender.setDiscardingThreshold(4);
+		appender.setMaxWarnBlockMillis(5_000);
+		appender.addAppender(target);
+		appender.start();
+
+		// Park the writer so the queue fills up
+		appender.doAppend(event(logger, Level.INFO, "blocker"));
+		assertTrue(target.entered.await(5, TimeUnit.SECONDS));
+
+		for (int i = 0; i < 20; i++) {
+			appender.doAppend(event(logger, Level.INFO, "info " + i));
+		}
+		// The reserved slots take these without waiting
+		for (int i = 0; i < 4; i++) {
+			appender.doAppend(event(logger, i % 2 == 0 ? Level.WARN : Level.ERROR, "warn " + i));
+		}
+		assertEquals(14, appender.getDroppedTotal());
+
+		// With the queue full this one waits for the writer instead of being dropped
+		Thread release = new Thread(() -> {
+			try {
+				Thread.sleep(200);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			target.gate.countDown();
+		});
+		release.start();
+		appender.doAppend(event(logger, Level.ERROR, "last error"));
+		release.join();
+		appender.stop();
+
+		List<String> messages = target.events.stream()
+				.filter(e -> e.getLoggerName().equals("test"))
+				.map(ILoggingEvent::getMessage)
+				.toList();
+		assertEquals(1 + 6 + 5, messages.size(), messages.toString());
+		assertTrue(messages.containsAll(List.of("warn 0", "warn 1", "warn 2", "warn 3", "last error")));
+		assertEquals(14, appender.getDroppedTotal());
+	}
+
+	private static LoggingEvent event(Logger logger, Level level, String message) {
+		return new LoggingEvent(DroppingAsyncAppenderTests.class.getName(), logger, level, message, null, null);
+	}
+}
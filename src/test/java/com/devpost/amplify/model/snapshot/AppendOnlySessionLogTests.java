@@ -0,0 +1,149 @@
+package com.devpost.amplify.model.snapshot;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AppendOnlySessionLogTests {
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void snapshotsSurviveReopening() throws IOException {
+		Path path = dir.resolve("sessions.log");
+		SessionSnapshot first = snapshot("a", "first");
+		SessionSnapshot updated = snapshot("a", "updated");
+		SessionSnapshot other = snapshot("b", "other");
+		try (AppendOnlySessionLog log = new AppendOnlySessionLog(path)) {
+			log.save(first);
+			log.save(other);
+			log.save(updated);
+		}
+
+		try (AppendOnlySessionLog log = new AppendOnlySessionLog(path)) {
+			assertEquals(Optional.of(updated), log.load("a"));
+			assertEquals(Optional.of(other), log.load("b"));
+		}
+	}
+
+	@Test
+	void deletesSurviveReopening() throws IOException {
+		Path path = dir.resolve("sessions.log");
+		try (AppendOnlySessionLog log = new AppendOnlySessionLog(path)) {
+			log.save(snapshot("a", "first"));
+			log.save(snapshot("b", "other"));
+			log.delete("a");
+		}
+
+		try (AppendOnlySessionLog log = new AppendOnlySessionLog(path)) {
+			assertTrue(log.load("a").isEmpty());
+			assertTrue(log.load("b").isPresent());
+		}
+	}
+
+	@Test
+	void tornTrailingRecordIsTruncatedOnReopen() throws IOException {
+		Path path = dir.resolve("sessions.log");
+		SessionSnapshot first = snapshot("a", "first");
+		SessionSnapshot second = snapshot("b", "second");
+		long intact;
+		try (AppendOnlySessionLog log = new AppendOnlySessionLog(path)) {
+			log.save(first);
+			log.save(second);
+			intact = Files.size(path);
+			log.save(snapshot("c", "written when the process died"));
+		}
+		// Cut the last record off in the middle of its payload
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+			channel.truncate(intact + 10);
+		}
+
+		try (AppendOnlySessionLog log = new AppendOnlySessionLog(path)) {
+			assertEquals(intact, Files.size(path));
+			assertEquals(Optional.of(first), log.load("a"));
+			assertEquals(Optional.of(second), log.load("b"));
+			assertTrue(log.load("c").isEmpty());
+
+			// Appends continue from the end of the last intact record
+			log.save(snapshot("c", "saved again"));
+		}
+
+		try (AppendOnlySessionLog log = new AppendOnlySessionLog(path)) {
+			assertEquals(Optional.of(first), log.load("a"));
+			assertEquals(Optional.of(snapshot("c", "saved again")), log.load("c"));
+		}
+	}
+
+	@Test
+	void undecodableRecordIsTruncatedLikeATornOne() throws IOException {
+		Path path = dir.resolve("sessions.log");
+		SessionSnapshot first = snapshot("a", "first");
+		long intact;
+		try (AppendOnlySessionLog log = new AppendOnlySessionLog(path)) {
+			log.save(first);
+			intact = Files.size(path);
+			log.save(snapshot("b", "second"));
+			log.save(snapshot("c", "third"));
+		}
+		// Overwrite the format version byte of the second record's payload
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.wrap(new byte[]{0x7f}), intact + Integer.BYTES + 1);
+		}
+
+		try (AppendOnlySessionLog log = new AppendOnlySessionLog(path)) {
+			assertEquals(intact, Files.size(path));
+			assertEquals(Optional.of(first), log.load("a"));
+			assertTrue(log.load("b").isEmpty());
+			assertTrue(log.load("c").isEmpty());
+
+			log.save(snapshot("b", "saved again"));
+		}
+
+		try (AppendOnlySessionLog log = new AppendOnlySessionLog(path)) {
+			assertEquals(Optional.of(first), log.load("a"));
+			assertEquals(Optional.of(snapshot("b", "saved again")), log.load("b"));
+		}
+	}
+
+	@Test
+	void compactionKeepsLatestSnapshotsAndAppendsAfterThem() throws IOException {
+		Path path = dir.resolve("sessions.log");
+		String large = "x".repeat(1024 * 1024);
+		SessionSnapshot other = snapshot("b", "other");
+		try (AppendOnlySessionLog log = new AppendOnlySessionLog(path)) {
+			log.save(other);
+			for (int i = 0; i < 20; i++) {
+				log.save(snapshot("a", large + i));
+			}
+			assertTrue(Files.size(path) < 16L * 1024 * 1024, "log should have been compacted");
+			assertEquals(Optional.of(snapshot("a", large + 19)), log.load("a"));
+			assertEquals(Optional.of(other), log.load("b"));
+			log.delete("b");
+		}
+
+		try (AppendOnlySessionLog log = new AppendOnlySessionLog(path)) {
+			assertEquals(Optional.of(snapshot("a", large + 19)), log.load("a"));
+			assertTrue(log.load("b").isEmpty());
+		}
+	}
+
+	private static SessionSnapshot snapshot(String sessionId, String seedTerm) {
+		return new SessionSnapshot(sessionId, 1_000L, Map.of(
+				"seedTerm", seedTerm,
+				"relatedQueries", List.of(seedTerm + " recipes", seedTerm + " ideas")
+		));
+	}
+}
@@ -0,0 +1,71 @@
+package com.devpost.amplify.model.snapshot;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SessionSnapshotCodecTests {
+
+	@Test
+	void emptyStateRoundTrips() throws IOException {
+		SessionSnapshot snapshot = new SessionSnapshot("session-1", 1_700_000_000_000L, Map.of());
+
+		assertEquals(snapshot, SessionSnapshotCodec.decode(SessionSnapshotCodec.encode(snapshot)));
+	}
+
+	@Test
+	void unicodeStringsRoundTrip() throws IOException {
+		Map<String, Object> state = new LinkedHashMap<>();
+		state.put("seedTerm", "crème brûlée");
+		state.put("analysisText", "東京 ramen 🍜 and Ελληνικά");
+		state.put("clé", "");
+		SessionSnapshot snapshot = new SessionSnapshot("sessión-ü", 42L, state);
+
+		SessionSnapshot decoded = SessionSnapshotCodec.decode(SessionSnapshotCodec.encode(snapshot));
+
+		assertEquals(snapshot, decoded);
+		assertEquals("sessión-ü", SessionSnapshotCodec.decodeSessionId(SessionSnapshotCodec.encode(snapshot)));
+	}
+
+	@Test
+	void listsRoundTripInOrder() throws IOException {
+		Map<String, Object> state = new LinkedHashMap<>();
+		state.put("relatedQueries", List.of("vegan recipes", "vegan protein", "plant based diet"));
+		state.put("failedQueries", List.of());
+		state.put("long", "x".repeat(70_000));
+		SessionSnapshot snapshot = new SessionSnapshot("session-2", 7L, state);
+
+		SessionSnapshot decoded = SessionSnapshotCodec.decode(SessionSnapshotCodec.encode(snapshot));
+
+		assertEquals(snapshot, decoded);
+		assertEquals(List.of("relatedQueries", "failedQueries", "long"), List.copyOf(decoded.state().keySet()));
+	}
+
+	@Test
+	void transientAndUnsupportedValuesAreLeftOut() throws IOException {
+		Map<String, Object> state = new LinkedHashMap<>();
+		state.put("input", "rebuilt per request");
+		state.put("count", 3);
+		state.put("mixed", List.of("a", 1));
+		state.put("seedTerm", "vegan");
+
+		SessionSnapshot decoded = SessionSnapshotCodec.decode(
+				SessionSnapshotCodec.encode(new SessionSnapshot("session-3", 0L, state)));
+
+		assertEquals(Map.of("seedTerm", "vegan"), decoded.state());
+	}
+
+	@Test
+	void unknownVersionIsRejected() {
+		byte[] encoded = SessionSnapshotCodec.encode(new SessionSnapshot("session-4", 0L, Map.of()));
+		encoded[0] = 99;
+
+		assertThrows(IOException.class, () -> SessionSnapshotCodec.decode(encoded));
+	}
+}
@@ -0,0 +1,83 @@
+package com.devpost.amplify.service;
+
+import com.devpost.amplify.model.HtmlAnalysisResult;
+import com.devpost.amplify.service.fetch.QueryFetchResult;
+import com.devpost.amplify.service.llm.TokenEstimator;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ContextPackerTests {
+
+	private static final String HISTORY = "Our company history began in a small garage where the founders tinkered with radios and old engines for many years.";
+	private static final String HOW_TO = "This guide explains how to brew cold brew coffee at home: a coarse grind, cold water and a twelve hour steep give the smoothest cold brew coffee.";
+	private static final String SHARED = "Cold brew coffee needs a coarse grind and twelve hours in cold water before you strain it through a paper filter.";
+
+	private final ContextPacker packer = new ContextPacker(6000, 160, 0.8);
+
+	@Test
+	void mostRelevantPassageWinsWhenTheBudgetIsTight() {
+		List<QueryFetchResult> results = List.of(page("cold brew coffee at home", HISTORY + "\n" + HOW_TO));
+		int headerTokens = TokenEstimator.estimate(packer.pack(results, 0));
+
+		String packed = packer.pack(results, headerTokens + TokenEstimator.estimate(HOW_TO));
+
+		assertTrue(packed.contains(HOW_TO));
+		assertFalse(packed.contains(HISTORY));
+	}
+
+	@Test
+	void selectedPassagesKeepTheirPageOrder() {
+		String packed = packer.pack(List.of(page("cold brew coffee at home", HISTORY + "\n" + HOW_TO)));
+
+		assertTrue(packed.indexOf(HISTORY) >= 0);
+		assertTrue(packed.indexOf(HISTORY) < packed.indexOf(HOW_TO));
+	}
+
+	@Test
+	void nearDuplicatePassagesAcrossPagesAreKeptOnce() {
+		String reworded = SHARED.replace("paper filter", "paper filter.");
+		String packed = packer.pack(List.of(
+				page("cold brew coffee", SHARED + "\n" + HISTORY),
+				page("cold brew ratio", reworded + "\n" + HOW_TO)
+		));
+
+		assertEquals(1, occurrences(packed, "Cold brew coffee needs a coarse grind"));
+		assertTrue(packed.contains(HISTORY));
+		assertTrue(packed.contains(HOW_TO));
+		assertTrue(packed.contains("[Source 2]"));
+	}
+
+	@Test
+	void sentenceCutByTheExtractorIsDropped() {
+		String packed = packer.pack(List.of(page("cold brew coffee", SHARED + " Serve it over ice with a splash of...")));
+
+		assertTrue(packed.contains(SHARED));
+		assertFalse(packed.contains("splash"));
+	}
+
+	@Test
+	void onlySuccessfulResultsArePacked() {
+		assertEquals("", packer.pack(List.of(QueryFetchResult.failed("cold brew"), QueryFetchResult.skipped("iced latte"))));
+
+		String packed = packer.pack(List.of(QueryFetchResult.failed("cold brew"), page("iced latte", HOW_TO)));
+		assertTrue(packed.startsWith("[Source 1] Title for iced latte\nQuery: iced latte\n"));
+		assertFalse(packed.contains("Query: cold brew"));
+	}
+
+	private static QueryFetchResult page(String query, String fullText) {
+		return QueryFetchResult.success(query, new HtmlAnalysisResult("Title for " + query, null, null, fullText));
+	}
+
+	private static int occurrences(String text, String part) {
+		int count = 0;
+		for (int i = text.indexOf(part); i >= 0; i = text.indexOf(part, i + 1)) {
+			count++;
+		}
+		return count;
+	}
+}
@@ -0,0 +1,182 @@
+package com.devpost.amplify.service;
+
+import com.devpost.amplify.model.HtmlAnalysisResult;
+import com.devpost.amplify.model.SessionStore;
+import com.devpost.amplify.service.agents.AgentInvoker;
+import com.devpost.amplify.service.agents.PartialSummaryAgent;
+import com.devpost.amplify.service.fetch.FetchPipeline;
+import com.devpost.amplify.service.fetch.QueryFetchResult;
+import com.google.adk.agents.InvocationContext;
+import com.google.adk.agents.RunConfig;
+import com.google.adk.artifacts.InMemoryArtifactService;
+import com.google.adk.sessions.InMemorySessionService;
+import com.google.adk.sessions.Session;
+import com.google.genai.types.Content;
+import com.google.genai.types.Part;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.invocation.InvocationOnMock;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MapReduceSummarizerTests {
+
+	private final FetchPipeline fetchPipeline = mock(FetchPipeline.class);
+	private final AgentInvoker agentInvoker = mock(AgentInvoker.class);
+	private final PartialSummaryAgent partialSummaryAgent = mock(PartialSummaryAgent.class);
+	private MapReduceSummarizer summarizer;
+	private InvocationContext ctx;
+
+	@BeforeEach
+	void setUp() {
+		summarizer = new MapReduceSummarizer(fetchPipeline, new ContextPacker(6000, 160, 0.8), agentInvoker,
+				partialSummaryAgent, 2000, 4, false);
+
+		// Queries starting with "broken" find nothing; every other query scrapes one page
+		when(fetchPipeline.fetchAll(anyList())).thenAnswer(invocation -> invocation.<List<String>>getArgument(0).stream()
+				.map(query -> query.startsWith("broken")
+						? QueryFetchResult.failed(query)
+						: QueryFetchResult.success(query, new HtmlAnalysisResult(query, null, null,
+								"Everything worth knowing about " + query + " in a single sentence.")))
+				.toList());
+		doAnswer(MapReduceSummarizerTests::notes).when(agentInvoker).invoke(any(), any(), eq("partialSummary"));
+
+		InMemorySessionService sessions = new InMemorySessionService();
+		Session session = sessions.createSession(SessionStore.APP, SessionStore.USER).blockingGet();
+		ctx = InvocationContext.create(sessions, new InMemoryArtifactService(), SessionStore.USER, partialSummaryAgent,
+				session, Content.fromParts(Part.fromText("")), RunConfig.builder().build());
+	}
+
+	@AfterEach
+	void tearDown() {
+		summarizer.shutdown();
+	}
+
+	@Test
+	void rerunOnlyFetchesAndCondensesChangedQueries() {
+		summarizer.prepare(ctx, List.of("vegan recipes", "cold brew"), true);
+		MapReduceSummarizer.Prepared rerun = summarizer.prepare(ctx, List.of("vegan recipes", "iced tea"), true);
+
+		verify(fetchPipeline).fetchAll(List.of("iced tea"));
+		verify(fetchPipeline, times(2)).fetchAll(anyList());
+		verify(agentInvoker, times(3)).invoke(any(), any(), eq("partialSummary"));
+		assertEquals(List.of("vegan recipes"), rerun.reusedQueries());
+		assertEquals(List.of("vegan recipes", "iced tea"), rerun.processedQueries());
+		assertTrue(input().contains("notes on vegan recipes"));
+		assertTrue(input().contains("notes on iced tea"));
+	}
+
+	@Test
+	void entriesOfDroppedQueriesAreRemoved() {
+		summarizer.prepare(ctx, List.of("vegan recipes", "cold brew"), true);
+		summarizer.prepare(ctx, List.of("vegan recipes"), true);
+
+		assertTrue(ctx.session().state().containsKey("partial:vegan recipes"));
+		assertFalse(ctx.session().state().containsKey("partial:cold brew"));
+		assertFalse(ctx.session().state().containsKey("scraped:cold brew"));
+		assertFalse(input().contains("cold brew"));
+	}
+
+	@Test
+	void queriesDifferingOnlyInCaseOrSpacingAreReused() {
+		summarizer.prepare(ctx, List.of("Vegan Recipes"), true);
+		MapReduceSummarizer.Prepared rerun = summarizer.prepare(ctx, List.of("  vegan   recipes "), true);
+
+		verify(fetchPipeline, times(1)).fetchAll(anyList());
+		verify(agentInvoker, times(1)).invoke(any(), any(), eq("partialSummary"));
+		assertEquals(List.of("  vegan   recipes "), rerun.reusedQueries());
+	}
+
+	@Test
+	void scrapedTextIsReusedWhenOnlyTheCondenseCallFailed() {
+		doAnswer(invocation -> {
+			throw new IllegalStateException("quota exceeded");
+		}).doAnswer(MapReduceSummarizerTests::notes).when(agentInvoker).invoke(any(), any(), eq("partialSummary"));
+
+		MapReduceSummarizer.Prepared first = summarizer.prepare(ctx, List.of("vegan recipes"), true);
+		assertEquals(List.of(), first.processedQueries());
+		assertTrue(ctx.session().state().containsKey("scraped:vegan recipes"));
+
+		MapReduceSummarizer.Prepared rerun = summarizer.prepare(ctx, List.of("vegan recipes"), true);
+		verify(fetchPipeline, times(1)).fetchAll(anyList());
+		assertEquals(List.of("vegan recipes"), rerun.processedQueries());
+		assertEquals(List.of(), rerun.reusedQueries());
+	}
+
+	@Test
+	void mapReduceModeFetchesAndCondensesEveryQueryOnEachRun() {
+		summarizer.prepare(ctx, List.of("vegan recipes", "cold brew"), false);
+		MapReduceSummarizer.Prepared rerun = summarizer.prepare(ctx, List.of("vegan recipes", "cold brew"), false);
+
+		verify(fetchPipeline, times(2)).fetchAll(List.of("vegan recipes", "cold brew"));
+		verify(agentInvoker, times(4)).invoke(any(), any(), eq("partialSummary"));
+		assertEquals(List.of(), rerun.reusedQueries());
+		assertEquals(List.of("vegan recipes", "cold brew"), rerun.processedQueries());
+	}
+
+	@Test
+	void mergePromptHoldsTheNotesOfEachQueryInOrder() {
+		MapReduceSummarizer.Prepared prepared = summarizer.prepare(ctx,
+				List.of("vegan recipes", "broken link", "cold brew"), false);
+
+		assertEquals(List.of("vegan recipes", "cold brew"), prepared.processedQueries());
+		assertEquals(List.of("broken link"), prepared.failedQueries());
+		String merge = input();
+		assertTrue(merge.contains("### Query: vegan recipes\nnotes on vegan recipes\n"));
+		assertTrue(merge.indexOf("### Query: vegan recipes") < merge.indexOf("### Query: cold brew"));
+		assertFalse(merge.contains("broken link"));
+		assertEquals(List.of("fetch", "pack", "map"), List.copyOf(prepared.timings().asMap().keySet()));
+	}
+
+	@Test
+	void failedCondenseCallOnlyDropsThatQuery() {
+		doAnswer(invocation -> {
+			if (notes(invocation).endsWith("cold brew")) {
+				throw new IllegalStateException("quota exceeded");
+			}
+			return notes(invocation);
+		}).when(agentInvoker).invoke(any(), any(), eq("partialSummary"));
+
+		MapReduceSummarizer.Prepared prepared = summarizer.prepare(ctx, List.of("vegan recipes", "cold brew"), false);
+
+		assertEquals(List.of("vegan recipes"), prepared.processedQueries());
+		assertTrue(input().contains("notes on vegan recipes"));
+	}
+
+	@Test
+	void fallsBackToTheAnalysisPromptWhenNoQueryHasContent() {
+		MapReduceSummarizer.Prepared prepared = summarizer.prepare(ctx, List.of("broken link", "broken feed"), false);
+
+		assertEquals(List.of(), prepared.processedQueries());
+		assertEquals(List.of("broken link", "broken feed"), prepared.failedQueries());
+		assertTrue(input().contains("Assume the following queries were searched: broken link, broken feed"));
+		verify(agentInvoker, times(0)).invoke(any(), any(), eq("partialSummary"));
+	}
+
+	private String input() {
+		Content input = (Content) ctx.session().state().get("input");
+		return input.parts().orElseThrow().get(0).text().orElseThrow();
+	}
+
+	/** Answers a partial summary call with "notes on" the query named in its prompt */
+	private static String notes(InvocationOnMock invocation) {
+		Content prompt = invocation.getArgument(1);
+		String text = prompt.parts().orElseThrow().get(0).text().orElseThrow();
+		String query = text.lines().filter(line -> line.startsWith("Search query: ")).findFirst().orElseThrow()
+				.substring("Search query: ".length());
+		return "notes on " + query;
+	}
+}
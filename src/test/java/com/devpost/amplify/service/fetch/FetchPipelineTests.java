@@ -0,0 +1,121 @@
+package com.devpost.amplify.service.fetch;
+
+import com.devpost.amplify.model.HtmlAnalysisResult;
+import com.devpost.amplify.model.SearchResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FetchPipelineTests {
+
+	private final CustomSearchClient searchClient = mock(CustomSearchClient.class);
+	private final PageScraper pageScraper = mock(PageScraper.class);
+	private final CountDownLatch release = new CountDownLatch(1);
+	private FetchPipeline pipeline;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		pipeline = new FetchPipeline(searchClient, pageScraper, mock(ScrapeScheduler.class), 4, 5000, 3, false);
+		// Every page is already cached, so the scrape scheduler is never needed
+		when(pageScraper.cached(anyString())).thenReturn(new HtmlAnalysisResult("Vegan recipes", null, null, "Lentil curry."));
+	}
+
+	@AfterEach
+	void tearDown() {
+		pipeline.shutdown();
+	}
+
+	@Test
+	void fetchJoinsAPrefetchStillInFlight() throws Exception {
+		when(searchClient.search(anyString())).thenAnswer(invocation -> {
+			release.await();
+			return results();
+		});
+
+		pipeline.prefetch("Vegan  Recipes");
+		CompletableFuture<QueryFetchResult> fetch = pipeline.fetchAsync("vegan recipes");
+		release.countDown();
+		QueryFetchResult result = fetch.get(5, TimeUnit.SECONDS);
+
+		assertEquals(QueryFetchResult.Status.SUCCESS, result.status());
+		assertEquals("vegan recipes", result.query());
+		verify(searchClient, times(1)).search(anyString());
+		assertEquals(1L, pipeline.stats().get("prefetchJoined"));
+	}
+
+	@Test
+	void failedPrefetchIsRetriedByTheFetchThatJoinedIt() throws Exception {
+		when(searchClient.search(anyString()))
+				.thenAnswer(invocation -> {
+					release.await();
+					throw new IOException("quota exceeded");
+				})
+				.thenAnswer(invocation -> results());
+
+		pipeline.prefetch("vegan recipes");
+		CompletableFuture<QueryFetchResult> fetch = pipeline.fetchAsync("vegan recipes");
+		release.countDown();
+
+		assertEquals(QueryFetchResult.Status.SUCCESS, fetch.get(5, TimeUnit.SECONDS).status());
+		verify(searchClient, times(2)).search("vegan recipes");
+	}
+
+	@Test
+	void queryAlreadyBeingPrefetchedIsNotPrefetchedAgain() throws Exception {
+		when(searchClient.search(anyString())).thenAnswer(invocation -> {
+			release.await();
+			return results();
+		});
+
+		pipeline.prefetch("vegan recipes");
+		pipeline.prefetch("Vegan Recipes");
+		assertEquals(1, pipeline.stats().get("prefetchesInFlight"));
+		release.countDown();
+		awaitPrefetches();
+
+		verify(searchClient, times(1)).search(anyString());
+		assertEquals(1L, pipeline.stats().get("prefetched"));
+	}
+
+	@Test
+	void finishedPrefetchIsNotJoined() throws Exception {
+		release.countDown();
+		when(searchClient.search(anyString())).thenAnswer(invocation -> results());
+
+		pipeline.prefetch("vegan recipes");
+		awaitPrefetches();
+		QueryFetchResult result = pipeline.fetchAsync("vegan recipes").get(5, TimeUnit.SECONDS);
+
+		// The search and page caches serve this fetch in production; here it reaches the mock again
+		assertEquals(QueryFetchResult.Status.SUCCESS, result.status());
+		verify(searchClient, times(2)).search("vegan recipes");
+		assertEquals(0L, pipeline.stats().get("prefetchJoined"));
+	}
+
+	private void awaitPrefetches() throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!pipeline.stats().get("prefetchesInFlight").equals(0) && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals(0, pipeline.stats().get("prefetchesInFlight"));
+	}
+
+	private static List<SearchResult> results() {
+		SearchResult result = new SearchResult();
+		result.setLink("https://example.com/vegan-recipes");
+		return List.of(result);
+	}
+}
@@ -0,0 +1,91 @@
+package com.devpost.amplify.service.fetch;
+
+import com.devpost.amplify.model.HtmlAnalysisResult;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HtmlExtractorTests {
+
+	private static HtmlAnalysisResult extract(InputStream in) throws IOException {
+		try (in) {
+			return HtmlExtractor.extract(in, null, "https://example.com/", 8000);
+		}
+	}
+
+	@Test
+	void inlineSvgTitlesDoNotReplaceTheDocumentTitle() throws IOException {
+		HtmlAnalysisResult result = extract(getClass().getResourceAsStream("/fixtures/svg-icons.html"));
+
+		assertEquals("Rasmalai Recipe: Soft Chhena Discs in Saffron Milk", result.getTitle());
+		assertEquals("A step-by-step rasmalai recipe with tips for soft chhena.", result.getMetaDescription());
+		assertEquals("Rasmalai Recipe", result.getH1());
+		assertTrue(result.getFullText().contains("Prep time: 30 minutes."));
+		assertFalse(result.getFullText().contains("Clock"));
+		assertFalse(result.getFullText().contains("Close"));
+	}
+
+	@Test
+	void pageWithoutTitleHasAnEmptyOneEvenWithSvgTitles() throws IOException {
+		String html = "<html><body><svg><title>Menu</title></svg><h1>Heading</h1><p>Body text.</p></body></html>";
+		HtmlAnalysisResult result = extract(new ByteArrayInputStream(html.getBytes(StandardCharsets.UTF_8)));
+
+		assertEquals("", result.getTitle());
+		assertEquals("Heading", result.getH1());
+	}
+
+	@Test
+	void longPageWithoutH1StopsOnceTheTextBudgetIsFull() throws IOException {
+		StringBuilder html = new StringBuilder("<html><head><title>Listing</title>"
+				+ "<meta name=\"description\" content=\"All the recipes\"></head><body><main>");
+		for (int i = 0; i < 20_000; i++) {
+			html.append("<div class=\"card\"><h2>Recipe ").append(i).append("</h2><p>Short summary of recipe ")
+					.append(i).append(" with a few words.</p></div>");
+		}
+		html.append("</main></body></html>");
+		byte[] page = html.toString().getBytes(StandardCharsets.UTF_8);
+		CountingInputStream in = new CountingInputStream(new ByteArrayInputStream(page));
+
+		HtmlAnalysisResult result = extract(in);
+
+		assertEquals("Listing", result.getTitle());
+		assertEquals("All the recipes", result.getMetaDescription());
+		assertEquals("", result.getH1());
+		assertTrue(result.getFullText().startsWith("Recipe 0"));
+		assertTrue(in.read < page.length / 10, "read " + in.read + " of " + page.length + " bytes");
+	}
+
+	private static final class CountingInputStream extends FilterInputStream {
+		long read;
+
+		CountingInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b >= 0) {
+				read++;
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			int n = super.read(buffer, offset, length);
+			if (n > 0) {
+				read += n;
+			}
+			return n;
+		}
+	}
+}
@@ -0,0 +1,67 @@
+package com.devpost.amplify.service.fetch;
+
+import com.devpost.amplify.model.HtmlAnalysisResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class PageCacheTests {
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void diskHitPassesTheStoredCharsetToTheParser() {
+		String key = PageCache.key("https://example.com/menu");
+		byte[] body = "<html><title>Crème brûlée</title></html>".getBytes(StandardCharsets.ISO_8859_1);
+		HtmlAnalysisResult analysis = new HtmlAnalysisResult("Crème brûlée", null, null, "");
+		newCache().store(key, new PageCache.CachedPage(analysis, "ISO-8859-1", "\"v1\"", null,
+				System.currentTimeMillis()), body);
+
+		AtomicReference<String> parsedCharset = new AtomicReference<>();
+		AtomicReference<byte[]> parsedBody = new AtomicReference<>();
+		PageCache.CachedPage page = newCache().lookup(key, (bytes, charset) -> {
+			parsedBody.set(bytes);
+			parsedCharset.set(charset);
+			return analysis;
+		});
+
+		assertNotNull(page);
+		assertEquals("ISO-8859-1", parsedCharset.get());
+		assertArrayEquals(body, parsedBody.get());
+		assertEquals("ISO-8859-1", page.charset());
+		assertEquals("\"v1\"", page.etag());
+		assertNull(page.lastModified());
+	}
+
+	@Test
+	void diskHitWithoutADeclaredCharsetLeavesDetectionToTheParser() {
+		String key = PageCache.key("https://example.com/");
+		newCache().store(key, new PageCache.CachedPage(new HtmlAnalysisResult("", null, null, ""), null, null,
+				"Tue, 13 Oct 2026 10:00:00 GMT", System.currentTimeMillis()), "<html></html>".getBytes(StandardCharsets.UTF_8));
+
+		AtomicReference<String> parsedCharset = new AtomicReference<>("unset");
+		PageCache.CachedPage page = newCache().lookup(key, (bytes, charset) -> {
+			parsedCharset.set(charset);
+			return new HtmlAnalysisResult("", null, null, "");
+		});
+
+		assertNotNull(page);
+		assertNull(parsedCharset.get());
+		assertNull(page.charset());
+		assertEquals("Tue, 13 Oct 2026 10:00:00 GMT", page.lastModified());
+	}
+
+	private PageCache newCache() {
+		return new PageCache(Duration.ofHours(1), 100, dir, 1 << 20);
+	}
+}
@@ -0,0 +1,113 @@
+package com.devpost.amplify.service.fetch;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RobotsRulesTests {
+
+	private static RobotsRules rules(String body) {
+		return RobotsRules.parse(body, "amplify");
+	}
+
+	@Test
+	void plainRuleMatchesPrefix() {
+		RobotsRules rules = rules("User-agent: *\nDisallow: /private\n");
+		assertFalse(rules.allows("/private"));
+		assertFalse(rules.allows("/private/page.html"));
+		assertTrue(rules.allows("/public"));
+		assertTrue(rules.allows("/"));
+	}
+
+	@Test
+	void wildcardMatchesAnyRunOfCharacters() {
+		RobotsRules rules = rules("User-agent: *\nDisallow: /*?sort=\nDisallow: /*/checkout\n");
+		assertFalse(rules.allows("/shoes?sort=price"));
+		assertFalse(rules.allows("/shop/cart/checkout"));
+		assertTrue(rules.allows("/shoes"));
+		assertTrue(rules.allows("/shoes?color=red"));
+		assertTrue(rules.allows("/checkout"));
+		assertTrue(rules.allows("/"));
+	}
+
+	@Test
+	void dollarAnchorsTheEnd() {
+		RobotsRules rules = rules("User-agent: *\nDisallow: /*.pdf$\nDisallow: /exact$\n");
+		assertFalse(rules.allows("/files/report.pdf"));
+		assertTrue(rules.allows("/files/report.pdf?download=1"));
+		assertTrue(rules.allows("/files/report.pdf.html"));
+		assertFalse(rules.allows("/exact"));
+		assertTrue(rules.allows("/exact/more"));
+	}
+
+	@Test
+	void longestMatchWinsAndAllowWinsTies() {
+		RobotsRules rules = rules("""
+				User-agent: *
+				Disallow: /shop/
+				Allow: /shop/*/reviews
+				Allow: /page.
+				Disallow: /*.php
+				""");
+		assertFalse(rules.allows("/shop/item"));
+		assertTrue(rules.allows("/shop/item/reviews"));
+		// "/page." and "/*.php" are the same length, so allow wins
+		assertTrue(rules.allows("/page.php"));
+		assertFalse(rules.allows("/index.php"));
+	}
+
+	@Test
+	void specificAgentGroupTakesPrecedence() {
+		RobotsRules rules = rules("""
+				User-agent: *
+				Disallow: /
+
+				User-agent: amplify
+				Disallow: /admin
+				Crawl-delay: 2.5
+				""");
+		assertTrue(rules.allows("/blog"));
+		assertFalse(rules.allows("/admin/users"));
+		assertEquals(Duration.ofMillis(2500), rules.crawlDelay());
+	}
+
+	@Test
+	void agentGroupMatchesTheProductTokenIgnoringCase() {
+		RobotsRules rules = rules("""
+				User-agent: *
+				Disallow: /
+
+				User-agent: Amplify/1.0 (+https://example.com/bot)
+				Disallow: /admin
+				""");
+		assertTrue(rules.allows("/blog"));
+		assertFalse(rules.allows("/admin"));
+	}
+
+	@Test
+	void agentGroupDoesNotMatchOnASubstringOfTheToken() {
+		RobotsRules rules = rules("""
+				User-agent: amp
+				Disallow: /
+
+				User-agent: amplifybot
+				Disallow: /
+
+				User-agent: *
+				Disallow: /private
+				""");
+		assertTrue(rules.allows("/blog"));
+		assertFalse(rules.allows("/private"));
+	}
+
+	@Test
+	void emptyDisallowAllowsEverything() {
+		assertTrue(rules("User-agent: *\nDisallow:\n").allows("/anything"));
+		assertSame(RobotsRules.ALLOW_ALL, rules("User-agent: otherbot\nDisallow: /\n"));
+	}
+}
@@ -0,0 +1,57 @@
+package com.devpost.amplify.service.llm;
+
+import com.devpost.amplify.service.PromptTemplates;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LlmResponseCacheTests {
+
+	private final LlmResponseCache cache = new LlmResponseCache(new HashingPromptEmbedder(), true, 0.95, 100, Duration.ofHours(1));
+
+	@Test
+	void contentTypesOverOneAnalysisDoNotShareAnAnswer() {
+		String analysis = analysis(600);
+		String blogPrompt = PromptTemplates.contentPrompt("blog-post", analysis);
+		String socialPrompt = PromptTemplates.contentPrompt("social-media", analysis);
+		String marketingPrompt = PromptTemplates.contentPrompt("marketing", analysis);
+
+		LlmResponseCache.Lookup blog = cache.lookup("content_generation", blogPrompt, false);
+		assertTrue(blog.response().isEmpty());
+		cache.store(blog, "A long blog post");
+
+		assertTrue(cache.lookup("content_generation", socialPrompt, false).response().isEmpty());
+		assertTrue(cache.lookup("content_generation", marketingPrompt, false).response().isEmpty());
+		assertEquals("A long blog post", cache.lookup("content_generation", blogPrompt, false).response().orElseThrow());
+	}
+
+	@Test
+	void nearDuplicateSeedsShareQueries() {
+		LlmResponseCache.Lookup first = cache.lookup("query_generation", "Easy vegan dinner recipes", true);
+		cache.store(first, "vegan pasta, vegan curry");
+
+		assertEquals("vegan pasta, vegan curry",
+				cache.lookup("query_generation", "easy vegan dinner recipes!", true).response().orElseThrow());
+		assertTrue(cache.lookup("content_generation", "easy vegan dinner recipes!", true).response().isEmpty());
+	}
+
+	@Test
+	void exactOnlyEntriesAreNotMatchedByNearDuplicateLookups() {
+		LlmResponseCache.Lookup exact = cache.lookup("query_generation", "Easy vegan dinner recipes", false);
+		cache.store(exact, "vegan pasta");
+
+		assertTrue(cache.lookup("query_generation", "easy vegan dinner recipes!", true).response().isEmpty());
+	}
+
+	private static String analysis(int words) {
+		String[] vocabulary = "trend audience recipe season market growth brand search video local guide price review".split(" ");
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < words; i++) {
+			text.append(vocabulary[(i * 7 + i / 13) % vocabulary.length]).append(i % 12 == 11 ? ". " : " ");
+		}
+		return text.toString();
+	}
+}
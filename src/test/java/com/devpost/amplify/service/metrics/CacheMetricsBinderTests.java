@@ -0,0 +1,85 @@
+package com.devpost.amplify.service.metrics;
+
+import com.devpost.amplify.service.fetch.CustomSearchClient;
+import com.devpost.amplify.service.fetch.FetchPipeline;
+import com.devpost.amplify.service.fetch.PageCache;
+import com.devpost.amplify.service.llm.LlmResponseCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CacheMetricsBinderTests {
+
+	private final PageCache pageCache = mock(PageCache.class);
+	private final CustomSearchClient searchClient = mock(CustomSearchClient.class);
+	private final LlmResponseCache responseCache = mock(LlmResponseCache.class);
+	private final FetchPipeline fetchPipeline = mock(FetchPipeline.class);
+	private final Map<String, Object> pageStats = new HashMap<>();
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+	@BeforeEach
+	void setUp() {
+		pageStats.putAll(Map.of("memoryHits", 7L, "diskHits", 2L, "misses", 3L, "revalidations", 1L,
+				"memoryEntries", 40L, "diskBytes", 4096L));
+		when(pageCache.stats()).thenAnswer(invocation -> Map.copyOf(pageStats));
+		when(searchClient.stats()).thenReturn(Map.of("hits", 5L, "coalesced", 1L, "upstreamCalls", 9L, "entries", 12L));
+		when(responseCache.stats()).thenReturn(Map.of("exactHits", 4L, "semanticHits", 2L, "misses", 6L, "entries", 10));
+		when(fetchPipeline.stats()).thenReturn(Map.of("prefetched", 8L, "prefetchJoined", 3L));
+
+		new CacheMetricsBinder(pageCache, searchClient, responseCache, fetchPipeline).bindTo(registry);
+	}
+
+	@Test
+	void requestCountersAreTaggedByCacheAndResult() {
+		assertEquals(7, requests("page", "memoryHits"));
+		assertEquals(2, requests("page", "diskHits"));
+		assertEquals(9, requests("search", "upstreamCalls"));
+		assertEquals(2, requests("llm", "semanticHits"));
+		assertEquals(3, requests("prefetch", "prefetchJoined"));
+	}
+
+	@Test
+	void sizeGaugesAreTaggedByCacheAndMeasure() {
+		assertEquals(4096, size("page", "diskBytes"));
+		assertEquals(12, size("search", "entries"));
+		assertEquals(10, size("llm", "entries"));
+	}
+
+	@Test
+	void metersReadTheCurrentStatsOnEachScrape() {
+		pageStats.put("memoryHits", 11L);
+		pageStats.put("memoryEntries", 41L);
+
+		assertEquals(11, requests("page", "memoryHits"));
+		assertEquals(41, size("page", "memoryEntries"));
+	}
+
+	@Test
+	void missingStatIsReportedAsNaN() {
+		assertTrue(Double.isNaN(size("prefetch", "prefetchesInFlight")));
+	}
+
+	@Test
+	void sessionStoreIsBound() {
+		assertNotNull(registry.find("amplify.cache.requests").tags("cache", "session", "result", "hitCount").functionCounter());
+		assertFalse(Double.isNaN(size("session", "activeSessions")));
+	}
+
+	private double requests(String cache, String result) {
+		return registry.get("amplify.cache.requests").tags("cache", cache, "result", result).functionCounter().count();
+	}
+
+	private double size(String cache, String measure) {
+		return registry.get("amplify.cache.size").tags("cache", cache, "measure", measure).gauge().value();
+	}
+}
@@ -0,0 +1,64 @@
+package com.devpost.amplify.service.metrics;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PipelineMetricsTests {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+	@BeforeEach
+	void setUp() {
+		Metrics.addRegistry(registry);
+	}
+
+	@AfterEach
+	void tearDown() {
+		Metrics.removeRegistry(registry);
+	}
+
+	@Test
+	void tokensAreCountedPerAgentAndKind() {
+		PipelineMetrics.tokens("summarization", "prompt", 1200);
+		PipelineMetrics.tokens("summarization", "prompt", 300);
+		PipelineMetrics.tokens("summarization", "completion", 250);
+
+		assertEquals(1500, registry.get("amplify.llm.tokens").tags("agent", "summarization", "kind", "prompt").counter().count());
+		assertEquals(250, registry.get("amplify.llm.tokens").tags("agent", "summarization", "kind", "completion").counter().count());
+	}
+
+	@Test
+	void queriesWithoutContentAreCountedByStatus() {
+		PipelineMetrics.queryNotProcessed("FAILED");
+		PipelineMetrics.queryNotProcessed("FAILED");
+		PipelineMetrics.queryNotProcessed("SKIPPED");
+
+		assertEquals(2, registry.get("amplify.queries.failed").tag("status", "FAILED").counter().count());
+		assertEquals(1, registry.get("amplify.queries.failed").tag("status", "SKIPPED").counter().count());
+	}
+
+	@Test
+	void llmTimersAreTaggedByAgent() {
+		PipelineMetrics.llmFirstEvent("query_generation").record(120, TimeUnit.MILLISECONDS);
+		PipelineMetrics.llmCall("query_generation").record(900, TimeUnit.MILLISECONDS);
+
+		assertEquals(120, registry.get("amplify.llm.first-event").tag("agent", "query_generation").timer()
+				.totalTime(TimeUnit.MILLISECONDS), 0.001);
+		assertEquals(1, registry.get("amplify.llm.call").tag("agent", "query_generation").timer().count());
+	}
+
+	@Test
+	void stageTimersRecordIntoTheGlobalRegistry() {
+		String packed = PipelineMetrics.PROMPT_BUILD.record(() -> "packed");
+
+		assertEquals("packed", packed);
+		assertEquals(1, registry.get("amplify.prompt.build").timer().count());
+	}
+}
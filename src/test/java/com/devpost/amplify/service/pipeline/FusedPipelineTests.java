@@ -0,0 +1,151 @@
+package com.devpost.amplify.service.pipeline;
+
+import com.devpost.amplify.model.HtmlAnalysisResult;
+import com.devpost.amplify.model.SessionStore;
+import com.devpost.amplify.service.ContextPacker;
+import com.devpost.amplify.service.agents.ContentGenerationAgent;
+import com.devpost.amplify.service.agents.QueryGenerationAgent;
+import com.devpost.amplify.service.agents.SummarizationAgent;
+import com.devpost.amplify.service.fetch.FetchPipeline;
+import com.devpost.amplify.service.fetch.QueryFetchResult;
+import com.google.adk.agents.InvocationContext;
+import com.google.adk.agents.RunConfig;
+import com.google.adk.artifacts.InMemoryArtifactService;
+import com.google.adk.events.Event;
+import com.google.adk.sessions.InMemorySessionService;
+import com.google.adk.sessions.Session;
+import com.google.genai.types.Content;
+import com.google.genai.types.Part;
+import io.reactivex.rxjava3.core.Flowable;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FusedPipelineTests {
+
+	private final QueryGenerationAgent queryAgent = mock(QueryGenerationAgent.class);
+	private final SummarizationAgent analyseAgent = mock(SummarizationAgent.class);
+	private final ContentGenerationAgent contentAgent = mock(ContentGenerationAgent.class);
+	private final FetchPipeline fetchPipeline = mock(FetchPipeline.class);
+	private final List<String> order = Collections.synchronizedList(new ArrayList<>());
+	private FusedPipeline pipeline;
+	private InvocationContext ctx;
+
+	@BeforeEach
+	void setUp() {
+		pipeline = new FusedPipeline(queryAgent, analyseAgent, contentAgent, fetchPipeline,
+				new ContextPacker(6000, 160, 0.8));
+
+		// The second query is only completed by the end of the stream
+		when(queryAgent.runAsync(any())).thenReturn(Flowable.just(
+						event("vegan recipes, plant", true),
+						event(" protein", true),
+						event("vegan recipes, plant protein", false))
+				.doOnComplete(() -> order.add("queries streamed")));
+		when(fetchPipeline.fetchAsync(anyString())).thenAnswer(invocation -> {
+			String query = invocation.getArgument(0);
+			order.add("fetch " + query);
+			return CompletableFuture.completedFuture(QueryFetchResult.success(query,
+					new HtmlAnalysisResult(query, null, null, "All about " + query + ".")));
+		});
+		when(analyseAgent.runAsync(any())).thenAnswer(invocation -> respond("analysisText",
+				event("Plant protein ", true), event("is trending.", true), event("Plant protein is trending.", false)));
+		when(contentAgent.runAsync(any())).thenAnswer(invocation -> respond("generatedContent",
+				event("<h1>Plant protein</h1>", false)));
+
+		InMemorySessionService sessions = new InMemorySessionService();
+		Session session = sessions.createSession(SessionStore.APP, SessionStore.USER).blockingGet();
+		ctx = InvocationContext.create(sessions, new InMemoryArtifactService(), SessionStore.USER, queryAgent,
+				session, Content.fromParts(Part.fromText("")), RunConfig.builder().build());
+	}
+
+	@Test
+	void stagesRunInOrderAndFetchingStartsWhileQueriesStream() {
+		List<PipelineEvent> events = pipeline.run(ctx, "vegan", "blog-post").toList().blockingGet();
+
+		assertEquals(List.of("fetch vegan recipes", "queries streamed", "fetch plant protein"), order);
+		assertEquals(List.of("query", "fetched", "query", "fetched", "summary", "summary", "content", "done"),
+				events.stream().map(PipelineEvent::name).toList());
+		assertEquals("vegan recipes", events.get(0).data());
+		assertEquals("Plant protein ", events.get(4).data());
+		assertEquals("is trending.", events.get(5).data());
+		assertEquals("<h1>Plant protein</h1>", events.get(6).data());
+
+		Map<?, ?> done = (Map<?, ?>) events.get(7).data();
+		assertEquals(List.of("vegan recipes", "plant protein"), done.get("relatedQueries"));
+		assertEquals(List.of("vegan recipes", "plant protein"), done.get("processedQueries"));
+		assertEquals(List.of(), done.get("failedQueries"));
+		assertTrue(((Map<?, ?>) done.get("timings")).keySet().containsAll(List.of("queries", "fetch", "summary", "content", "total")));
+	}
+
+	@Test
+	void sessionStateMatchesTheSeparateEndpoints() {
+		pipeline.run(ctx, "vegan", "blog-post").toList().blockingGet();
+
+		Map<String, Object> state = ctx.session().state();
+		assertEquals("vegan", state.get("seedTerm"));
+		assertEquals(List.of("vegan recipes", "plant protein"), state.get("relatedQueries"));
+		assertEquals("Plant protein is trending.", state.get("analysisText"));
+		assertEquals("<h1>Plant protein</h1>", state.get("lastGeneratedContent"));
+		assertEquals("blog-post", state.get("lastContentType"));
+	}
+
+	@Test
+	void withoutAContentTypeThePipelineStopsAfterTheSummary() {
+		List<PipelineEvent> events = pipeline.run(ctx, "vegan", null).toList().blockingGet();
+
+		assertEquals(List.of("query", "fetched", "query", "fetched", "summary", "summary", "done"),
+				events.stream().map(PipelineEvent::name).toList());
+	}
+
+	@Test
+	void cachedStageSendsItsStoredOutputOnce() {
+		// A cached response stores the output without producing any events
+		when(analyseAgent.runAsync(any())).thenAnswer(invocation -> respond("analysisText"));
+
+		List<PipelineEvent> summaries = pipeline.run(ctx, "vegan", null).toList().blockingGet().stream()
+				.filter(event -> event.name().equals("summary"))
+				.toList();
+
+		assertEquals(List.of(new PipelineEvent("summary", "Plant protein is trending.")), summaries);
+	}
+
+	@Test
+	void runFailsWhenNoQueriesWereGenerated() {
+		when(queryAgent.runAsync(any())).thenReturn(Flowable.just(event("", false)));
+
+		RuntimeException error = assertThrows(RuntimeException.class,
+				() -> pipeline.run(ctx, "vegan", null).toList().blockingGet());
+		assertEquals("No queries generated for: vegan", error.getMessage());
+	}
+
+	/** Events of an agent run that stores its canned output under {@code outputKey} once it completes */
+	private Flowable<Event> respond(String outputKey, Event... events) {
+		return Flowable.fromArray(events).doOnComplete(() -> ctx.session().state().put(outputKey,
+				outputKey.equals("analysisText") ? "Plant protein is trending." : "<h1>Plant protein</h1>"));
+	}
+
+	private static Event event(String text, boolean partial) {
+		return Event.builder()
+				.id(UUID.randomUUID().toString())
+				.invocationId("test")
+				.author("test")
+				.content(Content.fromParts(Part.fromText(text)))
+				.partial(partial)
+				.build();
+	}
+}
@@ -0,0 +1,20 @@
+package com.devpost.amplify.service.pipeline;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class QueryKeysTests {
+
+	@Test
+	void trimsCollapsesWhitespaceAndLowerCases() {
+		assertEquals("vegan recipes", QueryKeys.normalize("  Vegan \t\n Recipes  "));
+		assertEquals("vegan recipes", QueryKeys.normalize("vegan recipes"));
+	}
+
+	@Test
+	void blankQueryHasAnEmptyKey() {
+		assertEquals("", QueryKeys.normalize(""));
+		assertEquals("", QueryKeys.normalize(" \r\n "));
+	}
+}
@@ -0,0 +1,104 @@
+package com.devpost.amplify.service.pipeline;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QueryOutputParserTests {
+
+	@Test
+	void commaSeparatedLine() {
+		assertEquals(List.of("vegan recipes", "vegan protein", "plant based diet"),
+				QueryOutputParser.parse("vegan recipes, vegan protein,plant based diet"));
+	}
+
+	@Test
+	void numberedList() {
+		assertEquals(List.of("vegan recipes", "vegan protein", "plant based diet"),
+				QueryOutputParser.parse("1. vegan recipes\n2) vegan protein\n10.  plant based diet\n"));
+	}
+
+	@Test
+	void bulletedList() {
+		assertEquals(List.of("vegan recipes", "vegan protein", "plant based diet"),
+				QueryOutputParser.parse("- vegan recipes\n* vegan protein\n•\tplant based diet"));
+	}
+
+	@Test
+	void quotesAndBracketsAreDropped() {
+		assertEquals(List.of("vegan recipes", "vegan protein", "plant based diet"),
+				QueryOutputParser.parse("[\"vegan recipes\", \"vegan protein\", \"plant based diet\"]"));
+		assertEquals(List.of("vegan recipes", "vegan protein"),
+				QueryOutputParser.parse("\"1. vegan recipes\"\n[- vegan protein]"));
+	}
+
+	@Test
+	void markersNeedTrailingWhitespace() {
+		assertEquals(List.of("1.5 kg protein per day", "-free baking", "*starred"),
+				QueryOutputParser.parse("1.5 kg protein per day\n-free baking\n*starred"));
+	}
+
+	@Test
+	void crlfLineBreaks() {
+		assertEquals(List.of("vegan recipes", "vegan protein"),
+				QueryOutputParser.parse("1. vegan recipes\r\n2. vegan protein\r\n"));
+	}
+
+	@Test
+	void whitespaceIsCollapsed() {
+		assertEquals(List.of("vegan recipes"), QueryOutputParser.parse("  vegan \t  recipes  "));
+	}
+
+	@Test
+	void duplicatesDifferingInCaseAreDroppedKeepingTheFirst() {
+		assertEquals(List.of("Vegan Recipes", "vegan protein"),
+				QueryOutputParser.parse("Vegan Recipes, vegan recipes, VEGAN RECIPES, vegan protein"));
+	}
+
+	@Test
+	void storedListOfLines() {
+		assertEquals(List.of("vegan recipes", "vegan protein", "plant based diet"),
+				QueryOutputParser.parse(List.of("1. vegan recipes", "vegan protein, plant based diet")));
+	}
+
+	@Test
+	void emptyOutput() {
+		assertTrue(QueryOutputParser.parse(null).isEmpty());
+		assertTrue(QueryOutputParser.parse("").isEmpty());
+		assertTrue(QueryOutputParser.parse(" ,\n - \n,").isEmpty());
+	}
+
+	@Test
+	void streamParserMatchesParseForAnyChunking() {
+		String output = "Here you go:\r\n1. Vegan recipes\r\n2) vegan  protein, \"plant based diet\"\n"
+				+ "- [1.5 kg protein]\n* -free baking\n•\tVEGAN RECIPES\nmeal prep ideas";
+		List<String> expected = QueryOutputParser.parse(output);
+
+		Random random = new Random(42);
+		for (int run = 0; run < 200; run++) {
+			QueryStreamParser parser = new QueryStreamParser();
+			List<String> streamed = new ArrayList<>();
+			int start = 0;
+			while (start < output.length()) {
+				int end = Math.min(output.length(), start + 1 + random.nextInt(8));
+				streamed.addAll(parser.feed(output.substring(start, end)));
+				start = end;
+			}
+			streamed.addAll(parser.finish(null));
+			assertEquals(expected, streamed, "run " + run);
+		}
+	}
+
+	@Test
+	void streamParserAddsStoredQueriesThatWereNeverStreamed() {
+		QueryStreamParser parser = new QueryStreamParser();
+		List<String> streamed = new ArrayList<>(parser.feed("vegan recipes, vegan pro"));
+		streamed.addAll(parser.finish(List.of("vegan recipes", "vegan protein", "plant based diet")));
+		assertEquals(List.of("vegan recipes", "vegan pro", "vegan protein", "plant based diet"), streamed);
+	}
+}
@@ -0,0 +1,45 @@
+package com.devpost.amplify.service.pipeline;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class QueryStreamParserTests {
+
+	@Test
+	void queryIsReturnedOnceItsSeparatorArrives() {
+		QueryStreamParser parser = new QueryStreamParser();
+
+		assertEquals(List.of(), parser.feed("vegan rec"));
+		assertEquals(List.of("vegan recipes"), parser.feed("ipes, vegan"));
+		assertEquals(List.of("vegan protein"), parser.feed(" protein\n2. plant"));
+		assertEquals(List.of(), parser.feed(" based diet"));
+		assertEquals(List.of("plant based diet"), parser.finish(null));
+	}
+
+	@Test
+	void repeatedQueriesAreReturnedOnce() {
+		QueryStreamParser parser = new QueryStreamParser();
+
+		assertEquals(List.of("vegan recipes"), parser.feed("- vegan recipes\n- Vegan Recipes\n"));
+		assertEquals(List.of(), parser.finish(" vegan  recipes"));
+	}
+
+	@Test
+	void finishAddsStoredQueriesThatWereNeverStreamed() {
+		QueryStreamParser parser = new QueryStreamParser();
+
+		assertEquals(List.of("vegan recipes"), parser.feed("vegan recipes,"));
+		assertEquals(List.of("vegan protein", "plant based diet"),
+				parser.finish(List.of("vegan recipes", "vegan protein", "\"plant based diet\"")));
+	}
+
+	@Test
+	void cachedResponseIsParsedFromTheStoredText() {
+		QueryStreamParser parser = new QueryStreamParser();
+
+		assertEquals(List.of("vegan recipes", "vegan protein"), parser.finish("1. vegan recipes\n2. vegan protein"));
+	}
+}
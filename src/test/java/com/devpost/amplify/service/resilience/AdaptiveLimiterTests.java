@@ -0,0 +1,142 @@
+package com.devpost.amplify.service.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveLimiterTests {
+
+	private final AtomicLong clock = new AtomicLong();
+
+	/** Fill the limit, let every call take {@code rttMillis} and release them as successes */
+	private void round(AdaptiveLimiter limiter, long rttMillis) {
+		List<AdaptiveLimiter.Permit> permits = new ArrayList<>();
+		for (Optional<AdaptiveLimiter.Permit> permit = limiter.tryAcquire(); permit.isPresent(); permit = limiter.tryAcquire()) {
+			permits.add(permit.get());
+		}
+		clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(rttMillis));
+		permits.forEach(AdaptiveLimiter.Permit::success);
+	}
+
+	@Test
+	void rejectsOverTheLimitUntilAPermitIsReleased() {
+		AdaptiveLimiter limiter = new AdaptiveLimiter(2, 1, 10, clock::get);
+		AdaptiveLimiter.Permit first = limiter.tryAcquire().orElseThrow();
+		limiter.tryAcquire().orElseThrow();
+
+		assertTrue(limiter.saturated());
+		assertTrue(limiter.tryAcquire().isEmpty());
+
+		first.ignore();
+		first.ignore();
+		assertEquals(1, limiter.inflight());
+		assertTrue(limiter.tryAcquire().isPresent());
+	}
+
+	@Test
+	void limitGrowsWhileLatencyStaysAtTheBaseline() {
+		AdaptiveLimiter limiter = new AdaptiveLimiter(4, 1, 50, clock::get);
+		for (int i = 0; i < 30; i++) {
+			round(limiter, 100);
+		}
+		assertTrue(limiter.limit() > 4, "limit " + limiter.limit());
+		assertTrue(limiter.limit() <= 50);
+	}
+
+	@Test
+	void limitShrinksWhenLatencyRises() {
+		AdaptiveLimiter limiter = new AdaptiveLimiter(20, 1, 50, clock::get);
+		round(limiter, 100);
+		int before = limiter.limit();
+		for (int i = 0; i < 10; i++) {
+			round(limiter, 1000);
+		}
+		assertTrue(limiter.limit() < before, before + " -> " + limiter.limit());
+	}
+
+	@Test
+	void droppedCallsBackTheLimitOffDownToTheMinimum() {
+		AdaptiveLimiter limiter = new AdaptiveLimiter(10, 3, 10, clock::get);
+		for (int i = 0; i < 50; i++) {
+			limiter.tryAcquire().orElseThrow().dropped();
+		}
+		assertEquals(3, limiter.limit());
+		assertEquals(0, limiter.inflight());
+	}
+
+	@Test
+	void sampleKeepsTheSlotUntilReleased() {
+		AdaptiveLimiter limiter = new AdaptiveLimiter(1, 1, 1, clock::get);
+		AdaptiveLimiter.Permit permit = limiter.tryAcquire().orElseThrow();
+
+		permit.sample();
+		assertEquals(1, limiter.inflight());
+		assertTrue(limiter.tryAcquire().isEmpty());
+
+		permit.success();
+		assertEquals(0, limiter.inflight());
+		assertFalse(limiter.saturated());
+	}
+
+	@Test
+	void onlyTheFirstOutcomeOfAPermitCounts() {
+		AdaptiveLimiter limiter = new AdaptiveLimiter(10, 1, 10, clock::get);
+		AdaptiveLimiter.Permit permit = limiter.tryAcquire().orElseThrow();
+
+		permit.success();
+		permit.dropped();
+		permit.ignore();
+		assertEquals(10, limiter.limit());
+		assertEquals(0, limiter.inflight());
+	}
+
+	@Test
+	void ignoredCallsLeaveTheLimitAlone() {
+		AdaptiveLimiter limiter = new AdaptiveLimiter(5, 1, 10, clock::get);
+		for (int i = 0; i < 20; i++) {
+			limiter.tryAcquire().orElseThrow().ignore();
+		}
+		assertEquals(5, limiter.limit());
+	}
+
+	@Test
+	void callsFarBelowTheLimitDoNotGrowIt() {
+		AdaptiveLimiter limiter = new AdaptiveLimiter(10, 1, 50, clock::get);
+		for (int i = 0; i < 50; i++) {
+			AdaptiveLimiter.Permit permit = limiter.tryAcquire().orElseThrow();
+			clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+			permit.success();
+		}
+		assertEquals(10, limiter.limit());
+	}
+
+	@Test
+	void limitRecoversOnceLatencyReturnsToTheBaseline() {
+		AdaptiveLimiter limiter = new AdaptiveLimiter(20, 1, 50, clock::get);
+		round(limiter, 100);
+		for (int i = 0; i < 10; i++) {
+			round(limiter, 1000);
+		}
+		int shrunk = limiter.limit();
+		for (int i = 0; i < 30; i++) {
+			round(limiter, 100);
+		}
+		assertTrue(limiter.limit() > shrunk, shrunk + " -> " + limiter.limit());
+	}
+
+	@Test
+	void rejectsInconsistentBounds() {
+		assertThrows(IllegalArgumentException.class, () -> new AdaptiveLimiter(5, 0, 10));
+		assertThrows(IllegalArgumentException.class, () -> new AdaptiveLimiter(2, 3, 10));
+		assertThrows(IllegalArgumentException.class, () -> new AdaptiveLimiter(20, 1, 10));
+	}
+}
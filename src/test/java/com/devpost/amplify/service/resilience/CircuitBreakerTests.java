@@ -0,0 +1,138 @@
+package com.devpost.amplify.service.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTests {
+
+	private static final Duration OPEN_DURATION = Duration.ofSeconds(30);
+
+	private final AtomicLong clock = new AtomicLong();
+	private final CircuitBreaker breaker = new CircuitBreaker(0.5, OPEN_DURATION, clock::get);
+
+	private void calls(int count, boolean fail) {
+		for (int i = 0; i < count; i++) {
+			assertTrue(breaker.tryAcquire());
+			if (fail) {
+				breaker.onFailure();
+			} else {
+				breaker.onSuccess();
+			}
+		}
+	}
+
+	private void open() {
+		calls(10, true);
+		assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+	}
+
+	@Test
+	void staysClosedBelowTheMinimumNumberOfCalls() {
+		calls(9, true);
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+	}
+
+	@Test
+	void staysClosedBelowTheFailureRate() {
+		calls(6, false);
+		calls(5, true);
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+	}
+
+	@Test
+	void opensAtTheFailureRateAndRejectsWhileOpen() {
+		calls(5, false);
+		calls(5, true);
+		assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+		assertFalse(breaker.tryAcquire());
+		assertEquals(OPEN_DURATION, breaker.retryAfter());
+
+		clock.addAndGet(Duration.ofSeconds(10).toNanos());
+		assertFalse(breaker.tryAcquire());
+		assertEquals(Duration.ofSeconds(20), breaker.retryAfter());
+	}
+
+	@Test
+	void halfOpenLetsOneTrialThroughAndItsSuccessCloses() {
+		open();
+		clock.addAndGet(OPEN_DURATION.toNanos());
+
+		assertTrue(breaker.tryAcquire());
+		assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+		assertFalse(breaker.tryAcquire());
+
+		breaker.onSuccess();
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+		// The failure window starts over after closing
+		calls(9, true);
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+	}
+
+	@Test
+	void failedTrialOpensAgain() {
+		open();
+		clock.addAndGet(OPEN_DURATION.toNanos());
+
+		assertTrue(breaker.tryAcquire());
+		breaker.onFailure();
+		assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+		assertFalse(breaker.tryAcquire());
+		assertEquals(OPEN_DURATION, breaker.retryAfter());
+	}
+
+	@Test
+	void ignoredTrialFreesTheTrialSlot() {
+		open();
+		clock.addAndGet(OPEN_DURATION.toNanos());
+
+		assertTrue(breaker.tryAcquire());
+		breaker.onIgnored();
+		assertTrue(breaker.tryAcquire());
+	}
+
+	@Test
+	void oldOutcomesLeaveTheWindow() {
+		calls(20, false);
+		calls(9, true);
+		// 9 of the last 20 calls failed, not 9 of 29
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+		calls(1, true);
+		assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+	}
+
+	@Test
+	void trialWaitsForTheWholeOpenDuration() {
+		open();
+		clock.addAndGet(OPEN_DURATION.toNanos() - 1);
+		assertFalse(breaker.tryAcquire());
+		assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+
+		clock.incrementAndGet();
+		assertTrue(breaker.tryAcquire());
+		assertEquals(Duration.ZERO, breaker.retryAfter());
+	}
+
+	@Test
+	void lateOutcomesWhileOpenAreIgnored() {
+		open();
+		clock.addAndGet(Duration.ofSeconds(10).toNanos());
+
+		// Calls admitted before the breaker opened finish afterwards
+		breaker.onSuccess();
+		breaker.onFailure();
+		assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+		assertEquals(Duration.ofSeconds(20), breaker.retryAfter());
+	}
+
+	@Test
+	void retryAfterIsZeroWhileClosed() {
+		calls(9, true);
+		assertEquals(Duration.ZERO, breaker.retryAfter());
+	}
+}
@@ -0,0 +1,59 @@
+package com.devpost.amplify.service.resilience;
+
+import io.reactivex.rxjava3.processors.PublishProcessor;
+import io.reactivex.rxjava3.subscribers.TestSubscriber;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class UpstreamGuardTests {
+
+	private final AdaptiveLimiter limiter = new AdaptiveLimiter(1, 1, 1);
+	private final UpstreamGuard guard = new UpstreamGuard("test", limiter, new CircuitBreaker(0.5, Duration.ofSeconds(30)));
+
+	@Test
+	void streamHoldsItsPermitUntilItCompletes() {
+		PublishProcessor<String> upstream = PublishProcessor.create();
+		TestSubscriber<String> subscriber = guard.guard(upstream).test();
+
+		upstream.onNext("first token");
+		assertEquals(1, limiter.inflight());
+		guard.guard(PublishProcessor.<String>create()).test()
+				.assertError(e -> e instanceof UpstreamRejectedException rejected
+						&& rejected.reason() == UpstreamRejectedException.Reason.OVERLOADED);
+
+		upstream.onNext("more");
+		upstream.onComplete();
+		subscriber.assertComplete();
+		assertEquals(0, limiter.inflight());
+	}
+
+	@Test
+	void streamReleasesItsPermitOnErrorAndCancel() {
+		PublishProcessor<String> failing = PublishProcessor.create();
+		TestSubscriber<String> failed = guard.guard(failing).test();
+		failing.onNext("first token");
+		failing.onError(new IOException("reset"));
+		failed.assertError(IOException.class);
+		assertEquals(0, limiter.inflight());
+
+		PublishProcessor<String> cancelled = PublishProcessor.create();
+		TestSubscriber<String> subscriber = guard.guard(cancelled).test();
+		cancelled.onNext("first token");
+		subscriber.cancel();
+		assertEquals(0, limiter.inflight());
+	}
+
+	@Test
+	void blockingCallReleasesItsPermit() throws IOException {
+		assertEquals("ok", guard.call(() -> "ok"));
+		assertThrows(IOException.class, () -> guard.call(() -> {
+			throw new IOException("reset");
+		}));
+		assertEquals(0, limiter.inflight());
+	}
+}